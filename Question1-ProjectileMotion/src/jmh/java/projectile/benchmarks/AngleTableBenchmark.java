@@ -0,0 +1,93 @@
+package projectile.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * {@code AngleTable} lookups against the exact formulas of the scalar
+ * batch kernel, for a batch of launches at random angles: either on the
+ * table's 0.01-degree grid, or anywhere between.
+ *
+ * "exact" is the scalar kernel; the other interpolations use a table of
+ * the given storage. As in {@link BatchKernelBenchmark}, the batch is
+ * computed through a method handle bound to the table or kernel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AngleTableBenchmark {
+
+    private static final double GRAVITY = 9.81;
+    private static final int STEPS = 9000;
+    private static final int SIZE = 4096;
+
+    @Param({"exact", "nearest", "linear", "cubic"})
+    public String interpolation;
+
+    @Param({"heap", "offheap"})
+    public String storage;
+
+    @Param({"true", "false"})
+    public boolean onGrid;
+
+    private MethodHandle compute;
+    private final double[] velocity = new double[SIZE];
+    private final double[] angle = new double[SIZE];
+    private final double[] timeOfFlight = new double[SIZE];
+    private final double[] maxHeight = new double[SIZE];
+    private final double[] range = new double[SIZE];
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() throws Exception {
+        SplittableRandom random = new SplittableRandom(1);
+        boolean exact = interpolation.equals("exact");
+        for (int i = 0; i < SIZE; i++) {
+            velocity[i] = random.nextDouble(0, 1000);
+            double degrees = onGrid ? random.nextInt(STEPS + 1) * (90.0 / STEPS) : random.nextDouble(0, 90);
+            // The kernel takes radians, the table degrees
+            angle[i] = exact ? Math.toRadians(degrees) : degrees;
+        }
+        MethodType batch = MethodType.methodType(void.class, double[].class, double[].class, double[].class,
+                double[].class, double[].class, int.class);
+        if (exact) {
+            // Gravity bound in, so both take the same arguments
+            compute = MethodHandles.insertArguments(
+                    BatchKernelBenchmark.computeHandle(BatchKernelBenchmark.load("scalar")), 2, GRAVITY);
+            return;
+        }
+        Class<?> type = Class.forName("AngleTable");
+        Class<? extends Enum> interpolations = (Class<? extends Enum>) Class.forName("AngleTable$Interpolation");
+        Object table = type.getMethod(storage.equals("heap") ? "onHeap" : "offHeap", int.class, double.class)
+                .invoke(null, STEPS, GRAVITY);
+        table = type.getMethod("withInterpolation", interpolations)
+                .invoke(table, Enum.valueOf(interpolations, interpolation.toUpperCase()));
+        compute = MethodHandles.publicLookup().findVirtual(type, "compute", batch).bindTo(table);
+    }
+
+    @Benchmark
+    public double[] compute() throws Throwable {
+        compute.invokeExact(velocity, angle, timeOfFlight, maxHeight, range, SIZE);
+        return range;
+    }
+}
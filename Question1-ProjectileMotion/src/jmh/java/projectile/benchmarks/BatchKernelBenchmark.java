@@ -0,0 +1,114 @@
+package projectile.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Scalar against SIMD batch kernel: time to fill the time of flight,
+ * maximum height and range columns for a batch of launches.
+ *
+ * The simulator's classes live in the default package and cannot be
+ * imported here, so the kernels are looked up by name and called through
+ * a method handle; over a batch of a thousand launches or more the call
+ * itself is noise. After the measurement the kernel's output is checked
+ * against the scalar kernel, by then compiled, to within
+ * {@code BatchKernel.MAX_ULPS}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class BatchKernelBenchmark {
+
+    private static final double GRAVITY = 9.81;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    // Launches per batch
+    @Param({"1024", "65536"})
+    public int size;
+
+    private Object instance;
+    private MethodHandle compute;
+    private double[] velocity;
+    private double[] angle;
+    private double[] timeOfFlight;
+    private double[] maxHeight;
+    private double[] range;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        instance = load(kernel);
+        velocity = new double[size];
+        angle = new double[size];
+        timeOfFlight = new double[size];
+        maxHeight = new double[size];
+        range = new double[size];
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < size; i++) {
+            velocity[i] = random.nextDouble(0, 1000);
+            angle[i] = random.nextDouble(0, Math.PI / 2);
+        }
+        compute = computeHandle(instance);
+    }
+
+    @Benchmark
+    public double[] compute() throws Throwable {
+        compute.invokeExact(velocity, angle, GRAVITY, timeOfFlight, maxHeight, range, size);
+        return range;
+    }
+
+    @TearDown(Level.Trial)
+    public void checkAgainstScalar() throws Throwable {
+        Class<?> type = Class.forName("BatchKernel");
+        double[] worst = (double[]) type.getMethod("compare", type, type, double[].class, double[].class,
+                double.class).invoke(null, load("scalar"), instance, velocity, angle, GRAVITY);
+        double limit = type.getField("MAX_ULPS").getDouble(null);
+        for (double ulps : worst) {
+            if (ulps > limit) {
+                throw new IllegalStateException(kernel + " differs from scalar by " + ulps + " ulp");
+            }
+        }
+    }
+
+    static Object load(String kernel) throws Exception {
+        if (kernel.equals("vector")) {
+            // Directly, so a missing Vector API fails the run instead of measuring the fallback
+            return Class.forName("VectorKernel").getDeclaredConstructor().newInstance();
+        }
+        return Class.forName("BatchKernel").getMethod(kernel).invoke(null);
+    }
+
+    /**
+     * BatchKernel.compute bound to the kernel, as (double[], double[], double, double[], double[],
+     * double[], int) void
+     */
+    static MethodHandle computeHandle(Object kernel) throws Exception {
+        MethodType type = MethodType.methodType(void.class, double[].class, double[].class, double.class,
+                double[].class, double[].class, double[].class, int.class);
+        return MethodHandles.publicLookup()
+                .findVirtual(Class.forName("BatchKernel"), "compute", type)
+                .bindTo(kernel);
+    }
+}
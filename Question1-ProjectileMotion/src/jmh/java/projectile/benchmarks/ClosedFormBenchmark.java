@@ -0,0 +1,98 @@
+package projectile.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * One launch at a time through {@code ProjectileMath}: time of flight,
+ * maximum height and range separately, and all three for one launch as
+ * the simulator computes them.
+ *
+ * The handles are static finals, so the JIT treats them as constants and
+ * inlines the formulas as if called directly. Inputs cycle through a
+ * table of random launches so the results cannot be folded away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClosedFormBenchmark {
+
+    private static final double GRAVITY = 9.81;
+    // A power of two, so the index wraps with a mask
+    private static final int LAUNCHES = 1024;
+
+    private static final MethodHandle TIME_OF_FLIGHT = formula("timeOfFlight");
+    private static final MethodHandle MAX_HEIGHT = formula("maxHeight");
+    private static final MethodHandle RANGE = formula("range");
+
+    private final double[] velocity = new double[LAUNCHES];
+    private final double[] angle = new double[LAUNCHES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < LAUNCHES; i++) {
+            velocity[i] = random.nextDouble(0, 1000);
+            angle[i] = random.nextDouble(0, Math.PI / 2);
+        }
+    }
+
+    @Benchmark
+    public double timeOfFlight() throws Throwable {
+        int i = next++ & (LAUNCHES - 1);
+        return (double) TIME_OF_FLIGHT.invokeExact(velocity[i], angle[i], GRAVITY);
+    }
+
+    @Benchmark
+    public double maxHeight() throws Throwable {
+        int i = next++ & (LAUNCHES - 1);
+        return (double) MAX_HEIGHT.invokeExact(velocity[i], angle[i], GRAVITY);
+    }
+
+    @Benchmark
+    public double range() throws Throwable {
+        int i = next++ & (LAUNCHES - 1);
+        return (double) RANGE.invokeExact(velocity[i], angle[i], GRAVITY);
+    }
+
+    @Benchmark
+    public double allThree() throws Throwable {
+        int i = next++ & (LAUNCHES - 1);
+        double v = velocity[i];
+        double a = angle[i];
+        return (double) TIME_OF_FLIGHT.invokeExact(v, a, GRAVITY)
+                + (double) MAX_HEIGHT.invokeExact(v, a, GRAVITY)
+                + (double) RANGE.invokeExact(v, a, GRAVITY);
+    }
+
+    /**
+     * ProjectileMath.name as (double velocity, double angleRadians, double gravity) double
+     */
+    private static MethodHandle formula(String name) {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("ProjectileMath"), name,
+                    MethodType.methodType(double.class, double.class, double.class, double.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package projectile.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The cost of turning results into text: the simulator's full report for
+ * one launch, one of its {@code printf} lines on its own, the CSV row the
+ * sweep writes with {@link StringBuilder#append(double)}, and a
+ * {@code --batch} row of five numbers written with {@code printf} and
+ * with the batch mode's own formatter, which gives the same text.
+ *
+ * Output goes to a stream that only counts bytes. The report includes
+ * the inverse solver's hint, which is part of what a batch of reports
+ * pays for.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OutputFormatBenchmark {
+
+    // A power of two, so the index wraps with a mask
+    private static final int LAUNCHES = 1024;
+
+    private static final MethodHandle PRINT_RESULTS = printResults();
+    // LaunchBatch.NumberWriter's writeFixed(double, int) and write(char), with the writer as Object
+    private static final MethodHandle WRITE_FIXED = numberWriter("writeFixed", double.class, int.class);
+    private static final MethodHandle WRITE_CHAR = numberWriter("write", char.class);
+
+    private final double[] velocity = new double[LAUNCHES];
+    private final double[] angle = new double[LAUNCHES];
+    private final StringBuilder line = new StringBuilder(128);
+    private CountingStream bytes;
+    private PrintStream out;
+    private Object writer;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < LAUNCHES; i++) {
+            velocity[i] = random.nextDouble(0, 1000);
+            angle[i] = random.nextDouble(0, 90);
+        }
+        bytes = new CountingStream();
+        out = new PrintStream(bytes, false);
+        Constructor<?> constructor = Class.forName("LaunchBatch$NumberWriter")
+                .getDeclaredConstructor(OutputStream.class, int.class);
+        constructor.setAccessible(true);
+        writer = constructor.newInstance(bytes, 1 << 16);
+    }
+
+    @Benchmark
+    public long report() throws Throwable {
+        int i = next++ & (LAUNCHES - 1);
+        PRINT_RESULTS.invokeExact(out, velocity[i], angle[i]);
+        return bytes.count;
+    }
+
+    @Benchmark
+    public long printfLine() {
+        int i = next++ & (LAUNCHES - 1);
+        out.printf("Horizontal Range:     %.2f meters\n", velocity[i]);
+        return bytes.count;
+    }
+
+    @Benchmark
+    public long csvRow() {
+        int i = next++ & (LAUNCHES - 1);
+        line.setLength(0);
+        line.append(velocity[i]).append(',')
+                .append(angle[i]).append(',')
+                .append(9.81).append(',')
+                .append(velocity[i] / 9.81).append(',')
+                .append(velocity[i] * 0.5).append(',')
+                .append(velocity[i] * velocity[i]).append('\n');
+        out.append(line);
+        return bytes.count;
+    }
+
+    @Benchmark
+    public long printfRow() {
+        int i = next++ & (LAUNCHES - 1);
+        out.printf("%.6f,%.6f,%.6f,%.6f,%.6f\n", velocity[i], angle[i], velocity[i] / 9.81, velocity[i] * 0.5,
+                velocity[i] * velocity[i]);
+        return bytes.count;
+    }
+
+    @Benchmark
+    public long batchRow() throws Throwable {
+        int i = next++ & (LAUNCHES - 1);
+        Object w = writer;
+        w = (Object) WRITE_FIXED.invokeExact(w, velocity[i], 6);
+        w = (Object) WRITE_CHAR.invokeExact(w, ',');
+        w = (Object) WRITE_FIXED.invokeExact(w, angle[i], 6);
+        w = (Object) WRITE_CHAR.invokeExact(w, ',');
+        w = (Object) WRITE_FIXED.invokeExact(w, velocity[i] / 9.81, 6);
+        w = (Object) WRITE_CHAR.invokeExact(w, ',');
+        w = (Object) WRITE_FIXED.invokeExact(w, velocity[i] * 0.5, 6);
+        w = (Object) WRITE_CHAR.invokeExact(w, ',');
+        w = (Object) WRITE_FIXED.invokeExact(w, velocity[i] * velocity[i], 6);
+        w = (Object) WRITE_CHAR.invokeExact(w, '\n');
+        return bytes.count;
+    }
+
+    /**
+     * ProjectileMotionSimulator.printResults as (PrintStream, double velocity, double angleDegrees) void
+     */
+    private static MethodHandle printResults() {
+        try {
+            Method method = Class.forName("ProjectileMotionSimulator")
+                    .getDeclaredMethod("printResults", PrintStream.class, double.class, double.class);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle numberWriter(String name, Class<?>... parameters) {
+        try {
+            Class<?> type = Class.forName("LaunchBatch$NumberWriter");
+            Method method = type.getDeclaredMethod(name, parameters);
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            return handle.asType(handle.type().changeParameterType(0, Object.class).changeReturnType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Drops everything written to it, counting only its length so the
+     * formatting cannot be optimized away.
+     */
+    static final class CountingStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package projectile.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/**
+ * Runs the benchmarks at 1, 2, 4 ... threads up to a maximum, in
+ * throughput mode with the GC profiler, and writes one JSON document:
+ * per benchmark and parameter set, the throughput at each thread count,
+ * the allocation rate in MB/s and bytes per operation, and the scaling
+ * efficiency, throughput over the thread count times the one-thread
+ * throughput. 1.0 is perfect scaling.
+ *
+ * Usage: java -cp benchmarks.jar projectile.benchmarks.ScalingRunner
+ * [--include REGEX] [--max-threads N] [--out FILE]; the maximum defaults
+ * to the number of processors, as does 0.
+ */
+public final class ScalingRunner {
+
+    /**
+     * One benchmark and parameter set at one thread count
+     */
+    static final class Run {
+        int threads;
+        double score;
+        double error;
+        String unit;
+        double allocRate = Double.NaN;
+        double allocNorm = Double.NaN;
+    }
+
+    private ScalingRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        String include = ".*";
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        String out = "target/jmh-scaling.json";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--include":
+                        include = args[++i];
+                        break;
+                    case "--max-threads":
+                        maxThreads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--out":
+                        out = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: ScalingRunner [--include REGEX] [--max-threads N] [--out FILE]");
+            System.exit(2);
+        }
+
+        if (maxThreads < 1) {
+            maxThreads = Runtime.getRuntime().availableProcessors();
+        }
+
+        // Keyed by benchmark and parameters, in the order JMH ran them
+        Map<String, List<Run>> runs = new LinkedHashMap<>();
+        Map<String, BenchmarkParams> params = new LinkedHashMap<>();
+        for (int threads : threadCounts(maxThreads)) {
+            for (RunResult result : new Runner(new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .mode(Mode.Throughput)
+                    .addProfiler(GCProfiler.class)
+                    .shouldFailOnError(true)
+                    .build()).run()) {
+                String key = key(result.getParams());
+                params.putIfAbsent(key, result.getParams());
+                runs.computeIfAbsent(key, k -> new ArrayList<>()).add(run(result, threads));
+            }
+        }
+
+        try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+            writer.write(toJson(runs, params));
+        }
+        System.err.println("Wrote scaling results for " + runs.size() + " benchmarks to " + out);
+    }
+
+    /**
+     * 1, 2, 4 ... below the maximum, then the maximum itself
+     */
+    static List<Integer> threadCounts(int max) {
+        TreeSet<Integer> counts = new TreeSet<>();
+        for (int t = 1; t < max; t *= 2) {
+            counts.add(t);
+        }
+        counts.add(max);
+        return new ArrayList<>(counts);
+    }
+
+    private static String key(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark());
+        for (String name : params.getParamsKeys()) {
+            key.append(':').append(name).append('=').append(params.getParam(name));
+        }
+        return key.toString();
+    }
+
+    private static Run run(RunResult result, int threads) {
+        Run run = new Run();
+        run.threads = threads;
+        Result<?> primary = result.getPrimaryResult();
+        run.score = primary.getScore();
+        run.error = primary.getScoreError();
+        run.unit = primary.getScoreUnit();
+        // Older JMH versions prefix the profiler's labels with "·"
+        for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+            if (secondary.getKey().endsWith("gc.alloc.rate")) {
+                run.allocRate = secondary.getValue().getScore();
+            } else if (secondary.getKey().endsWith("gc.alloc.rate.norm")) {
+                run.allocNorm = secondary.getValue().getScore();
+            }
+        }
+        return run;
+    }
+
+    static String toJson(Map<String, List<Run>> runs, Map<String, BenchmarkParams> params) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"jvm\": ").append(quote(System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.runtime.version"))).append(",\n");
+        json.append("  \"cpus\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"benchmarks\": [");
+        String separator = "\n";
+        for (Map.Entry<String, List<Run>> entry : runs.entrySet()) {
+            BenchmarkParams benchmark = params.get(entry.getKey());
+            json.append(separator).append("    {\n");
+            json.append("      \"benchmark\": ").append(quote(benchmark.getBenchmark())).append(",\n");
+            json.append("      \"params\": {");
+            String comma = "";
+            for (String name : benchmark.getParamsKeys()) {
+                json.append(comma).append(quote(name)).append(": ").append(quote(benchmark.getParam(name)));
+                comma = ", ";
+            }
+            json.append("},\n");
+            json.append("      \"runs\": [");
+            List<Run> list = entry.getValue();
+            double single = list.get(0).threads == 1 ? list.get(0).score : Double.NaN;
+            for (int i = 0; i < list.size(); i++) {
+                Run run = list.get(i);
+                json.append(i == 0 ? "\n" : ",\n");
+                json.append("        {\"threads\": ").append(run.threads)
+                        .append(", \"score\": ").append(number(run.score))
+                        .append(", \"error\": ").append(number(run.error))
+                        .append(", \"unit\": ").append(quote(run.unit))
+                        .append(", \"allocRateMBps\": ").append(number(run.allocRate))
+                        .append(", \"allocBytesPerOp\": ").append(number(run.allocNorm))
+                        .append(", \"efficiency\": ").append(number(run.score / (run.threads * single)))
+                        .append('}');
+            }
+            json.append("\n      ]\n    }");
+            separator = ",\n";
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    // JSON has no NaN or infinity; a missing measurement is null
+    private static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,129 @@
+package projectile.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+
+/**
+ * A whole {@code ParameterSweep} grid: the closed forms over 65,536
+ * points, or Dormand-Prince with drag over 256, each either discarded
+ * or written as CSV to a writer that drops it.
+ *
+ * Each benchmark thread sweeps on its own single-worker pool, so the
+ * scaling runs measure independent sweeps side by side rather than the
+ * sweep's own fork-join split.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SweepBenchmark {
+
+    @Param({"closed", "dopri"})
+    public String method;
+
+    @Param({"none", "csv"})
+    public String output;
+
+    private ForkJoinPool pool;
+    private Object sweep;
+    private Object sink;
+    private Method run;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Class<?> sweepType = Class.forName("ParameterSweep");
+        Class<?> axisType = Class.forName("ParameterSweep$Axis");
+        Class<?> modelType = Class.forName("FlightModel");
+        Class<?> sinkType = Class.forName("ParameterSweep$Sink");
+        Constructor<?> axis = axisType.getConstructor(double.class, double.class, int.class);
+
+        boolean closed = method.equals("closed");
+        int steps = closed ? 256 : 16;
+        Object model = modelType.getConstructor(double.class, double.class, double.class, double.class)
+                .newInstance(9.81, closed ? 0.0 : 0.001, 0.0, 0.0);
+        Method integrators = sweepType.getDeclaredMethod("integrators", String.class, modelType, double.class,
+                double.class);
+        integrators.setAccessible(true);
+
+        pool = new ForkJoinPool(1);
+        sweep = sweepType.getConstructor(axisType, axisType, axisType, modelType, Supplier.class, double.class,
+                int.class, ForkJoinPool.class).newInstance(
+                axis.newInstance(10.0, 1000.0, steps),
+                axis.newInstance(1.0, 89.0, steps),
+                axis.newInstance(9.81, 9.81, 1),
+                model,
+                integrators.invoke(null, method, model, 0.0, 1e-9),
+                0.0,
+                4096,
+                pool);
+        if (output.equals("csv")) {
+            Constructor<?> csv = Class.forName("ParameterSweep$CsvSink").getDeclaredConstructor(Writer.class);
+            csv.setAccessible(true);
+            sink = csv.newInstance(new NullWriter());
+        } else {
+            sink = Proxy.newProxyInstance(sinkType.getClassLoader(), new Class<?>[] {sinkType},
+                    (proxy, called, args) -> null);
+        }
+        run = sweepType.getMethod("run", sinkType);
+    }
+
+    @Benchmark
+    public Object sweep() throws Exception {
+        return run.invoke(sweep, sink);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Drops everything written to it, counting only its length so the
+     * formatting cannot be optimized away.
+     */
+    static final class NullWriter extends Writer {
+
+        long written;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            written += length;
+        }
+
+        @Override
+        public Writer append(CharSequence text) {
+            written += text.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,526 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+
+/**
+ * Per-angle coefficients of the vacuum formulas, so that a query at a
+ * tabled angle costs one or two multiplies and no trigonometry:
+ * <pre>
+ * time of flight = v  × 2·sin θ / g
+ * maximum height = v² × sin²θ / 2g
+ * range          = v² × sin 2θ / g
+ * </pre>
+ * The table covers 0 to 90 degrees in equal steps for one gravity. At a
+ * tabled angle every interpolation returns the tabled coefficient; in
+ * between, {@link Interpolation} picks how it is estimated, and
+ * {@link #bound} and {@link #measureError} give the error against the
+ * exact formulas.
+ *
+ * The coefficients live in a little-endian buffer: on the heap, off-heap
+ * in direct memory, or memory-mapped from a file that any number of
+ * processes can map at once and share through the page cache. The file
+ * starts with a 24-byte header: the magic "ANGL", the format version, the
+ * number of steps and a reserved int, then gravity as a double. The angles
+ * follow in order, each as {@value #COLUMNS} doubles: the time, height and
+ * range coefficients, then their derivatives with respect to the angle
+ * times the step in radians, for cubic interpolation.
+ *
+ * Tables are immutable and safe to share between threads.
+ */
+public final class AngleTable {
+
+    public enum Interpolation {
+        // The coefficient at the nearest tabled angle
+        NEAREST,
+        // Straight line between the tabled angles on either side
+        LINEAR,
+        // Cubic Hermite between the tabled angles on either side, using the exact derivatives
+        CUBIC
+    }
+
+    static final int MAGIC = 0x4C474E41;  // "ANGL" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final int COLUMNS = 6;
+    // Largest table one buffer can hold
+    static final int MAX_STEPS = (Integer.MAX_VALUE - HEADER_BYTES) / (COLUMNS * Double.BYTES) - 1;
+
+    private static final int TIME = 0;
+    private static final int HEIGHT = 1;
+    private static final int RANGE = 2;
+
+    private final DoubleBuffer data;
+    private final int steps;
+    private final double gravity;
+    private final double stepsPerDegree;
+    private final Interpolation interpolation;
+    private final String storage;
+
+    private AngleTable(DoubleBuffer data, int steps, double gravity, Interpolation interpolation,
+            String storage) {
+        this.data = data;
+        this.steps = steps;
+        this.gravity = gravity;
+        this.stepsPerDegree = steps / 90.0;
+        this.interpolation = interpolation;
+        this.storage = storage;
+    }
+
+    /**
+     * A table on the Java heap, with linear interpolation
+     *
+     * @param steps intervals between 0 and 90 degrees
+     */
+    public static AngleTable onHeap(int steps, double gravity) {
+        return new AngleTable(fill(ByteBuffer.allocate(bytes(steps)), steps, gravity), steps, gravity,
+                Interpolation.LINEAR, "on the heap");
+    }
+
+    /**
+     * A table in direct memory, outside the Java heap and the garbage
+     * collector's view, with linear interpolation
+     */
+    public static AngleTable offHeap(int steps, double gravity) {
+        return new AngleTable(fill(ByteBuffer.allocateDirect(bytes(steps)), steps, gravity), steps, gravity,
+                Interpolation.LINEAR, "off-heap");
+    }
+
+    /**
+     * Compute a table into a file and map it. The file is written under a
+     * temporary name and then renamed, so a process mapping it at the same
+     * time sees either the old table or the whole new one.
+     */
+    public static AngleTable create(Path file, int steps, double gravity) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes(steps));
+        fill(buffer, steps, gravity);
+        Path absolute = file.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + "." + Long.toHexString(System.nanoTime())
+                + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return map(file);
+    }
+
+    /**
+     * Map a table file read-only, with linear interpolation. The mapping
+     * stays valid after the method returns, until the table is garbage
+     * collected.
+     */
+    public static AngleTable map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not an angle table: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an angle table: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported angle table version " + version + ": " + file);
+            }
+            int steps = buffer.getInt(8);
+            double gravity = buffer.getDouble(16);
+            if (steps < 1 || steps > MAX_STEPS || size != bytes(steps)) {
+                throw new IOException("Truncated or corrupt angle table: " + file);
+            }
+            buffer.position(HEADER_BYTES);
+            DoubleBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            return new AngleTable(data, steps, gravity, Interpolation.LINEAR, "mapped from " + file);
+        }
+    }
+
+    /**
+     * The same table, sharing its storage, estimating between tabled
+     * angles another way
+     */
+    public AngleTable withInterpolation(Interpolation newInterpolation) {
+        return new AngleTable(data, steps, gravity, newInterpolation, storage);
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public double getStepDegrees() {
+        return 90.0 / steps;
+    }
+
+    public double getGravity() {
+        return gravity;
+    }
+
+    public Interpolation getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * Where the coefficients are kept, for messages
+     */
+    public String getStorage() {
+        return storage;
+    }
+
+    public double timeOfFlight(double velocity, double angleDegrees) {
+        return velocity * coefficient(TIME, angleDegrees);
+    }
+
+    public double maxHeight(double velocity, double angleDegrees) {
+        return velocity * velocity * coefficient(HEIGHT, angleDegrees);
+    }
+
+    public double range(double velocity, double angleDegrees) {
+        return velocity * velocity * coefficient(RANGE, angleDegrees);
+    }
+
+    /**
+     * Compute launches 0 to length - 1, as {@link BatchKernel#compute}
+     * does but with angles in degrees and this table's gravity.
+     *
+     * @throws IllegalArgumentException if an angle is outside 0 to 90 degrees
+     */
+    public void compute(double[] velocity, double[] angleDegrees, double[] timeOfFlight, double[] maxHeight,
+            double[] range, int length) {
+        // One loop per interpolation, so each is a straight pass with no switch inside
+        switch (interpolation) {
+            case NEAREST:
+                for (int i = 0; i < length; i++) {
+                    double v = velocity[i];
+                    int at = (int) (position(angleDegrees[i]) + 0.5) * COLUMNS;
+                    timeOfFlight[i] = v * data.get(at + TIME);
+                    maxHeight[i] = v * v * data.get(at + HEIGHT);
+                    range[i] = v * v * data.get(at + RANGE);
+                }
+                break;
+            case LINEAR:
+                for (int i = 0; i < length; i++) {
+                    double v = velocity[i];
+                    double x = position(angleDegrees[i]);
+                    int step = Math.min((int) x, steps - 1);
+                    double t = x - step;
+                    int at = step * COLUMNS;
+                    timeOfFlight[i] = v * linear(at + TIME, t);
+                    maxHeight[i] = v * v * linear(at + HEIGHT, t);
+                    range[i] = v * v * linear(at + RANGE, t);
+                }
+                break;
+            default:
+                for (int i = 0; i < length; i++) {
+                    double v = velocity[i];
+                    double x = position(angleDegrees[i]);
+                    int step = Math.min((int) x, steps - 1);
+                    double t = x - step;
+                    int at = step * COLUMNS;
+                    // The Hermite weights are shared by all three columns
+                    double t2 = t * t;
+                    double t3 = t2 * t;
+                    double w0 = 2 * t3 - 3 * t2 + 1;
+                    double w1 = 3 * t2 - 2 * t3;
+                    double d0 = t3 - 2 * t2 + t;
+                    double d1 = t3 - t2;
+                    timeOfFlight[i] = v * cubic(at + TIME, w0, w1, d0, d1);
+                    maxHeight[i] = v * v * cubic(at + HEIGHT, w0, w1, d0, d1);
+                    range[i] = v * v * cubic(at + RANGE, w0, w1, d0, d1);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Largest error of the three coefficients with the given
+     * interpolation against {@link ProjectileMath}, sampled at points
+     * through every step, as a fraction of each coefficient's peak
+     * (2/g, 1/2g and 1/g). Results scale with v and v², so the error in
+     * a result is at most this fraction of its value at 45 or 90 degrees.
+     *
+     * @return time of flight, maximum height and range, in that order
+     */
+    public double[] measureError(Interpolation with, int samplesPerStep) {
+        AngleTable table = withInterpolation(with);
+        double[] peak = {2 / gravity, 1 / (2 * gravity), 1 / gravity};
+        double[] worst = new double[3];
+        for (int step = 0; step < steps; step++) {
+            for (int k = 0; k < samplesPerStep; k++) {
+                double degrees = (step + (double) k / samplesPerStep) * 90 / steps;
+                double radians = Math.toRadians(degrees);
+                double[] exact = {
+                    ProjectileMath.timeOfFlight(1, radians, gravity),
+                    ProjectileMath.maxHeight(1, radians, gravity),
+                    ProjectileMath.range(1, radians, gravity)
+                };
+                for (int c = 0; c < worst.length; c++) {
+                    double error = Math.abs(table.coefficient(c, degrees) - exact[c]) / peak[c];
+                    worst[c] = Math.max(worst[c], error);
+                }
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Largest interpolation error of the three coefficients from the
+     * bounds on their derivatives, as a fraction of each coefficient's
+     * peak like {@link #measureError}. Rounding adds about 1e-16 on top.
+     *
+     * @return time of flight, maximum height and range, in that order
+     */
+    public static double[] bound(Interpolation interpolation, int steps) {
+        double h = Math.PI / 2 / steps;
+        switch (interpolation) {
+            case NEAREST:
+                // Half a step times the largest first derivative
+                return new double[] {h / 2, h / 2, h};
+            case LINEAR:
+                // h²/8 times the largest second derivative
+                return new double[] {h * h / 8, h * h / 4, h * h / 2};
+            default:
+                // h⁴/384 times the largest fourth derivative
+                double h4 = h * h * h * h;
+                return new double[] {h4 / 384, h4 / 48, h4 / 24};
+        }
+    }
+
+    /**
+     * Angle in steps from 0 degrees
+     */
+    private double position(double angleDegrees) {
+        double x = angleDegrees * stepsPerDegree;
+        if (!(x >= 0 && x <= steps)) {
+            throw new IllegalArgumentException("Angle must be between 0 and 90 degrees, got " + angleDegrees);
+        }
+        return x;
+    }
+
+    private double coefficient(int column, double angleDegrees) {
+        double x = position(angleDegrees);
+        if (interpolation == Interpolation.NEAREST) {
+            return data.get((int) (x + 0.5) * COLUMNS + column);
+        }
+        int step = Math.min((int) x, steps - 1);
+        double t = x - step;
+        int at = step * COLUMNS + column;
+        if (interpolation == Interpolation.LINEAR) {
+            return linear(at, t);
+        }
+        double t2 = t * t;
+        double t3 = t2 * t;
+        return cubic(at, 2 * t3 - 3 * t2 + 1, 3 * t2 - 2 * t3, t3 - 2 * t2 + t, t3 - t2);
+    }
+
+    /**
+     * The value in the column at index, t of the way to the next angle
+     */
+    private double linear(int index, double t) {
+        double a = data.get(index);
+        return a + t * (data.get(index + COLUMNS) - a);
+    }
+
+    /**
+     * The Hermite cubic in the column at index, given the weights of the
+     * values and derivatives at this angle and the next
+     */
+    private double cubic(int index, double w0, double w1, double d0, double d1) {
+        // Derivatives are stored already scaled by the step
+        return w0 * data.get(index) + w1 * data.get(index + COLUMNS)
+                + d0 * data.get(index + 3) + d1 * data.get(index + COLUMNS + 3);
+    }
+
+    private static int bytes(int steps) {
+        if (steps < 1 || steps > MAX_STEPS) {
+            throw new IllegalArgumentException("An angle table needs between 1 and " + MAX_STEPS + " steps");
+        }
+        return HEADER_BYTES + (steps + 1) * COLUMNS * Double.BYTES;
+    }
+
+    /**
+     * Write the header and coefficients into buffer and return a view of
+     * the coefficients
+     */
+    private static DoubleBuffer fill(ByteBuffer buffer, int steps, double gravity) {
+        if (!(gravity > 0)) {
+            throw new IllegalArgumentException("Gravity must be positive");
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(steps).putInt(0).putDouble(gravity);
+        double h = Math.PI / 2 / steps;
+        for (int i = 0; i <= steps; i++) {
+            // The same expressions as ProjectileMath with v = 1; 90 degrees exactly at the end
+            double radians = i == steps ? Math.PI / 2 : i * h;
+            double sin = Math.sin(radians);
+            double cos = Math.cos(radians);
+            double sinDouble = Math.sin(2 * radians);
+            buffer.putDouble((2 * sin) / gravity)
+                    .putDouble((sin * sin) / (2 * gravity))
+                    .putDouble(sinDouble / gravity)
+                    .putDouble(2 * cos / gravity * h)
+                    .putDouble(sinDouble / (2 * gravity) * h)
+                    .putDouble(2 * Math.cos(2 * radians) / gravity * h);
+        }
+        buffer.position(HEADER_BYTES);
+        DoubleBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        buffer.position(0);
+        return data;
+    }
+
+    /**
+     * Command line: --table [--resolution DEGREES] [--gravity G]
+     * [--interpolation nearest|linear|cubic] [--file FILE [--create]]
+     * [--queries N]
+     *
+     * Builds a table off-heap, writes one to FILE with --create, or maps
+     * an existing FILE. Reports the error of each interpolation against
+     * the exact formulas, and times random lookups against them.
+     */
+    static int run(String[] args) {
+        String usage = "Usage: ProjectileMotionSimulator --table [--resolution DEGREES] [--gravity G] "
+                + "[--interpolation nearest|linear|cubic]\n"
+                + "         [--file FILE [--create]] [--queries N]";
+        double resolution = 0.01;
+        double gravity = ProjectileMath.EARTH_GRAVITY;
+        String interpolation = "linear";
+        String file = null;
+        boolean create = false;
+        int queries = 1 << 20;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--resolution":
+                        resolution = Double.parseDouble(args[++i]);
+                        break;
+                    case "--gravity":
+                        gravity = Double.parseDouble(args[++i]);
+                        break;
+                    case "--interpolation":
+                        interpolation = args[++i];
+                        break;
+                    case "--file":
+                        file = args[++i];
+                        break;
+                    case "--create":
+                        create = true;
+                        break;
+                    case "--queries":
+                        queries = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        System.err.println(usage);
+                        return 2;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(usage);
+            return 2;
+        }
+
+        try {
+            double exactSteps = 90 / resolution;
+            long steps = Math.round(exactSteps);
+            if (!(resolution > 0) || steps < 1 || Math.abs(exactSteps - steps) > 1e-6 * steps) {
+                throw new IllegalArgumentException("The resolution must divide 90 degrees, got " + resolution);
+            }
+            if (steps > MAX_STEPS) {
+                throw new IllegalArgumentException("The resolution must be at least " + 90.0 / MAX_STEPS
+                        + " degrees");
+            }
+            if (queries < 1) {
+                throw new IllegalArgumentException("Queries must be positive");
+            }
+            Interpolation chosen = null;
+            for (Interpolation each : Interpolation.values()) {
+                if (each.name().equalsIgnoreCase(interpolation)) {
+                    chosen = each;
+                }
+            }
+            if (chosen == null) {
+                throw new IllegalArgumentException("Unknown interpolation \"" + interpolation + "\"");
+            }
+            if (create && file == null) {
+                throw new IllegalArgumentException("--create needs --file FILE");
+            }
+            AngleTable table;
+            if (file == null) {
+                table = offHeap((int) steps, gravity);
+            } else if (create) {
+                table = create(Paths.get(file), (int) steps, gravity);
+            } else {
+                // The file decides the resolution and gravity
+                table = map(Paths.get(file));
+            }
+            table = table.withInterpolation(chosen);
+
+            System.out.printf("Angle table: %d angles every %s degrees, g = %s, %d KB %s%n",
+                    table.getSteps() + 1, table.getStepDegrees(), table.getGravity(),
+                    bytes(table.getSteps()) / 1024, table.getStorage());
+            System.out.println("Largest error against the exact formulas, as a fraction of each peak "
+                    + "(measured / bound):");
+            System.out.printf("  %-14s %-24s %-24s %-24s%n", "", "time of flight", "max height", "range");
+            // Enough samples to find the worst point of each step, within a few seconds
+            int samples = (int) Math.max(2, Math.min(16, 20_000_000L / table.getSteps()));
+            for (Interpolation each : Interpolation.values()) {
+                double[] measured = table.measureError(each, samples);
+                double[] bound = bound(each, table.getSteps());
+                System.out.printf("  %-14s", each.name().toLowerCase(Locale.ROOT)
+                        + (each == chosen ? " *" : ""));
+                for (int c = 0; c < measured.length; c++) {
+                    System.out.printf(" %-24s", String.format("%.2e / %.2e", measured[c], bound[c]));
+                }
+                System.out.println();
+            }
+
+            // Random launches over the table's whole range, mostly between tabled angles
+            double[] velocity = new double[queries];
+            double[] degrees = new double[queries];
+            double[] radians = new double[queries];
+            SplittableRandom random = new SplittableRandom(1);
+            for (int i = 0; i < queries; i++) {
+                velocity[i] = random.nextDouble(0, 1000);
+                degrees[i] = random.nextDouble(0, 90);
+                radians[i] = Math.toRadians(degrees[i]);
+            }
+            double[][] out = {new double[queries], new double[queries], new double[queries]};
+            BatchKernel exact = BatchKernel.scalar();
+            double tableRate = 0;
+            double exactRate = 0;
+            // Repeat until compiled; the last round is the one reported
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                table.compute(velocity, degrees, out[0], out[1], out[2], queries);
+                long middle = System.nanoTime();
+                exact.compute(velocity, radians, table.getGravity(), out[0], out[1], out[2], queries);
+                long end = System.nanoTime();
+                tableRate = queries / ((middle - start) / 1e3);
+                exactRate = queries / ((end - middle) / 1e3);
+            }
+            System.out.printf("Lookups (%s): %.1f million/s; exact formulas: %.1f million/s%n",
+                    chosen.name().toLowerCase(Locale.ROOT), tableRate, exactRate);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Error opening angle table: " + e);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.SplittableRandom;
+
+
+/**
+ * Closed-form results for columns of launches: given velocity and angle
+ * arrays, fills the time of flight, maximum height and range arrays.
+ *
+ * {@link #scalar()} evaluates the {@link ProjectileMath} expressions one
+ * launch at a time and matches them bit for bit. {@link #best()} returns
+ * the SIMD kernel in {@code VectorKernel} when the JDK Vector API is
+ * available (Java 16 or later, run with
+ * {@code --add-modules jdk.incubator.vector}), and the scalar kernel
+ * otherwise; set {@code -Dprojectile.scalar=true} to force the scalar
+ * kernel.
+ *
+ * The vector kernel's arithmetic is the same, but once compiled its sines
+ * come from a vector math library rather than {@link Math#sin}. Both are
+ * within one ulp of the exact sine, so they can differ by two, and the
+ * square in the maximum height doubles that. Results are expected within
+ * {@link #MAX_ULPS} of the scalar kernel; {@code --kernel-check} measures
+ * it on this machine.
+ *
+ * Kernels hold no state and are safe to share between threads.
+ */
+public interface BatchKernel {
+
+    // Allowed difference between kernels, in units in the last place
+    double MAX_ULPS = 8;
+
+    /**
+     * Compute launches 0 to length - 1. The output arrays may not alias
+     * the inputs.
+     *
+     * @param angleRadians launch angles above the horizontal
+     */
+    void compute(double[] velocity, double[] angleRadians, double gravity, double[] timeOfFlight,
+            double[] maxHeight, double[] range, int length);
+
+    String name();
+
+    static BatchKernel scalar() {
+        return Scalar.INSTANCE;
+    }
+
+    /**
+     * The vector kernel if this JVM can run it, else the scalar one
+     */
+    static BatchKernel best() {
+        return Holder.BEST;
+    }
+
+    /**
+     * Largest difference between two kernels over the given launches, in
+     * units in the last place of the first kernel's result, for the time
+     * of flight, maximum height and range in that order.
+     */
+    static double[] compare(BatchKernel expected, BatchKernel actual, double[] velocity, double[] angleRadians,
+            double gravity) {
+        int n = velocity.length;
+        double[][] a = {new double[n], new double[n], new double[n]};
+        double[][] b = {new double[n], new double[n], new double[n]};
+        expected.compute(velocity, angleRadians, gravity, a[0], a[1], a[2], n);
+        actual.compute(velocity, angleRadians, gravity, b[0], b[1], b[2], n);
+        double[] worst = new double[a.length];
+        for (int k = 0; k < a.length; k++) {
+            for (int i = 0; i < n; i++) {
+                if (Double.doubleToLongBits(a[k][i]) != Double.doubleToLongBits(b[k][i])) {
+                    worst[k] = Math.max(worst[k], Math.abs(a[k][i] - b[k][i]) / Math.ulp(a[k][i]));
+                }
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * Command line: --kernel-check [LAUNCHES]. Compares the best kernel
+     * with the scalar one on random launches, after running both long
+     * enough to be compiled, and times them.
+     *
+     * @return 0 if within {@link #MAX_ULPS}, 1 if not, 2 for bad arguments
+     */
+    static int run(String[] args) {
+        int n;
+        try {
+            n = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+        } catch (NumberFormatException e) {
+            n = 0;
+        }
+        if (args.length > 2 || n < 1) {
+            System.err.println("Usage: ProjectileMotionSimulator --kernel-check [LAUNCHES]");
+            return 2;
+        }
+        BatchKernel scalar = scalar();
+        BatchKernel best = best();
+        double[] velocity = new double[n];
+        double[] angle = new double[n];
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < n; i++) {
+            velocity[i] = random.nextDouble(0, 1000);
+            angle[i] = random.nextDouble(0, Math.PI / 2);
+        }
+        double[][] out = {new double[n], new double[n], new double[n]};
+        for (BatchKernel kernel : new BatchKernel[] {scalar, best}) {
+            // The first calls run interpreted, where the vector sines are still Math.sin
+            long warm = 0;
+            while (warm < 20_000_000L) {
+                kernel.compute(velocity, angle, ProjectileMath.EARTH_GRAVITY, out[0], out[1], out[2], n);
+                warm += n;
+            }
+            long start = System.nanoTime();
+            kernel.compute(velocity, angle, ProjectileMath.EARTH_GRAVITY, out[0], out[1], out[2], n);
+            System.out.printf("%-12s %8.1f million launches/s%n", kernel.name(),
+                    n / ((System.nanoTime() - start) / 1e3));
+        }
+        double[] worst = compare(scalar, best, velocity, angle, ProjectileMath.EARTH_GRAVITY);
+        System.out.printf("Largest difference from scalar: time %.0f, height %.0f, range %.0f ulp (limit %.0f)%n",
+                worst[0], worst[1], worst[2], MAX_ULPS);
+        return Math.max(worst[0], Math.max(worst[1], worst[2])) <= MAX_ULPS ? 0 : 1;
+    }
+
+    /**
+     * The same expressions as {@link ProjectileMath}, in the same order.
+     */
+    final class Scalar implements BatchKernel {
+
+        static final Scalar INSTANCE = new Scalar();
+
+        private Scalar() {
+        }
+
+        @Override
+        public void compute(double[] velocity, double[] angleRadians, double gravity, double[] timeOfFlight,
+                double[] maxHeight, double[] range, int length) {
+            for (int i = 0; i < length; i++) {
+                double v = velocity[i];
+                double velocityY = v * Math.sin(angleRadians[i]);
+                timeOfFlight[i] = (2 * velocityY) / gravity;
+                maxHeight[i] = (velocityY * velocityY) / (2 * gravity);
+                range[i] = (v * v * Math.sin(2 * angleRadians[i])) / gravity;
+            }
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+
+    /**
+     * Looks the vector kernel up by name, so this file compiles on Java 8
+     * and runs where the incubator module is missing.
+     */
+    final class Holder {
+
+        static final BatchKernel BEST = load();
+
+        private Holder() {
+        }
+
+        private static BatchKernel load() {
+            if (Boolean.getBoolean("projectile.scalar")) {
+                return scalar();
+            }
+            try {
+                return (BatchKernel) Class.forName("VectorKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return scalar();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * The conditions a projectile flies in: gravity, quadratic air drag, a
+ * steady horizontal wind and the height it is launched from.
+ *
+ * Drag is given as a single coefficient k = ρ·C_d·A / (2m), in 1/m, so the
+ * drag deceleration is k·|v - w|·(v - w) for air velocity w. A baseball is
+ * about 0.005, a 9 mm bullet about 0.001. With no drag, wind or launch
+ * height the closed-form formulas in {@link ProjectileMath} are exact.
+ */
+public final class FlightModel {
+
+    public static final FlightModel VACUUM = new FlightModel(ProjectileMath.EARTH_GRAVITY, 0, 0, 0);
+
+    final double gravity;
+    final double drag;
+    final double wind;
+    final double launchHeight;
+
+    /**
+     * @param gravity gravitational acceleration in m/s², positive
+     * @param drag quadratic drag coefficient k in 1/m, zero for a vacuum
+     * @param wind horizontal wind speed in m/s, positive in the direction of fire
+     * @param launchHeight height above the ground at launch, in m
+     */
+    public FlightModel(double gravity, double drag, double wind, double launchHeight) {
+        if (!(gravity > 0)) {
+            throw new IllegalArgumentException("Gravity must be positive");
+        }
+        if (!(drag >= 0)) {
+            throw new IllegalArgumentException("Drag coefficient cannot be negative");
+        }
+        if (!(launchHeight >= 0)) {
+            throw new IllegalArgumentException("Launch height cannot be negative");
+        }
+        this.gravity = gravity;
+        this.drag = drag;
+        this.wind = wind;
+        this.launchHeight = launchHeight;
+    }
+
+    public double getGravity() {
+        return gravity;
+    }
+
+    public double getDrag() {
+        return drag;
+    }
+
+    public double getWind() {
+        return wind;
+    }
+
+    public double getLaunchHeight() {
+        return launchHeight;
+    }
+
+    public FlightModel withGravity(double newGravity) {
+        return new FlightModel(newGravity, drag, wind, launchHeight);
+    }
+
+    /**
+     * Whether the closed-form formulas give this model's answers
+     */
+    public boolean isVacuum() {
+        // Wind only acts through drag
+        return drag == 0 && launchHeight == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "FlightModel[g=" + gravity + ", drag=" + drag + ", wind=" + wind
+                + ", launchHeight=" + launchHeight + "]";
+    }
+}
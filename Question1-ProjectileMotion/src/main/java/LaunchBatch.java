@@ -0,0 +1,573 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Non-interactive batch mode: reads one launch per line, "VELOCITY ANGLE"
+ * separated by spaces, tabs or a comma, and writes one CSV row of results
+ * per launch. Blank lines and lines starting with '#' are skipped.
+ *
+ * Built for tens of millions of lines. Input is read in large blocks of
+ * bytes and numbers are parsed straight from them by {@link LineReader},
+ * with no String or Scanner per line. Parsed launches are collected in
+ * column arrays and computed a block at a time by
+ * {@link BatchKernel#best()}. Rows are formatted into a byte buffer by
+ * {@link NumberWriter} rather than printf. A line that cannot be read is
+ * reported on standard error with its file and line number and skipped;
+ * the rest of the input is still processed.
+ */
+public final class LaunchBatch {
+
+    // Launches per kernel call
+    private static final int BLOCK = 8192;
+
+    /**
+     * Reads lines of numbers from a stream through a reusable byte buffer.
+     * Nothing is allocated per line or per number except when a line is
+     * malformed, or for the rare number the fast path cannot convert
+     * exactly (more than 15 significant digits, or a large exponent),
+     * which falls back to {@link Double#parseDouble}. The token buffer
+     * grows for numbers longer than 128 bytes, up to 64 KiB; a longer
+     * token makes the line malformed.
+     */
+    static final class LineReader {
+
+        // Returned by readLine at the end of the input, and for a line that is not all numbers
+        static final int END = -1;
+        static final int MALFORMED = -2;
+
+        // Exactly representable powers of ten
+        private static final double[] POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+
+        private final InputStream in;
+        private final byte[] buffer;
+        private int position;
+        private int limit;
+        private boolean eof;
+        private long lineNumber;
+
+        private static final int MAX_TOKEN_BYTES = 64 * 1024;
+
+        // The token being parsed, for the slow path and error messages
+        private byte[] token = new byte[128];
+        private int tokenLength;
+        private boolean malformed;
+
+        LineReader(InputStream in, int bufferSize) {
+            this.in = in;
+            this.buffer = new byte[bufferSize];
+        }
+
+        /**
+         * Line number of the line readLine last returned, from 1
+         */
+        long lineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * The token that made the last line malformed
+         */
+        String badToken() {
+            return new String(token, 0, Math.min(tokenLength, token.length), StandardCharsets.ISO_8859_1);
+        }
+
+        /**
+         * Parse the next line's numbers into values. A line may hold more
+         * numbers than values has room for; the extra ones are counted but
+         * not stored.
+         *
+         * @return how many numbers the line holds (0 for a blank or comment
+         *         line), {@link #MALFORMED}, or {@link #END}
+         */
+        int readLine(double[] values) throws IOException {
+            int c = read();
+            if (c < 0) {
+                return END;
+            }
+            lineNumber++;
+            int count = 0;
+            while (true) {
+                // Skip separators; a comment runs to the end of the line
+                while (c == ' ' || c == '\t' || c == ',' || c == '\r') {
+                    c = read();
+                }
+                if (c == '#') {
+                    skipLine();
+                    return count;
+                }
+                if (c == '\n' || c < 0) {
+                    return count;
+                }
+                tokenLength = 0;
+                c = parseNumber(c, values, count);
+                if (malformed) {
+                    malformed = false;
+                    if (c != '\n' && c >= 0) {
+                        skipLine();
+                    }
+                    return MALFORMED;
+                }
+                count++;
+            }
+        }
+
+        /**
+         * Parse one number starting with first into values[index], or set
+         * malformed.
+         *
+         * @return the byte after the number
+         */
+        private int parseNumber(int first, double[] values, int index) throws IOException {
+            int c = first;
+            boolean negative = false;
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                c = next(c);
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean anyDigit = false;
+            for (; c >= '0' && c <= '9'; c = next(c)) {
+                anyDigit = true;
+                if (mantissa != 0 || c != '0') {
+                    if (digits < 19) {
+                        mantissa = mantissa * 10 + (c - '0');
+                    } else {
+                        exponent++;
+                    }
+                    digits++;
+                }
+            }
+            if (c == '.') {
+                for (c = next(c); c >= '0' && c <= '9'; c = next(c)) {
+                    anyDigit = true;
+                    if (mantissa != 0 || c != '0') {
+                        if (digits < 19) {
+                            mantissa = mantissa * 10 + (c - '0');
+                            exponent--;
+                        }
+                        digits++;
+                    } else {
+                        exponent--;
+                    }
+                }
+            }
+            boolean fast = anyDigit;
+            if (anyDigit && (c == 'e' || c == 'E')) {
+                c = next(c);
+                boolean negativeExponent = false;
+                if (c == '-' || c == '+') {
+                    negativeExponent = c == '-';
+                    c = next(c);
+                }
+                int power = 0;
+                boolean anyExponentDigit = false;
+                for (; c >= '0' && c <= '9'; c = next(c)) {
+                    anyExponentDigit = true;
+                    if (power < 100_000) {
+                        power = power * 10 + (c - '0');
+                    }
+                }
+                fast = anyExponentDigit;
+                exponent += negativeExponent ? -power : power;
+            }
+            if (!isSeparator(c)) {
+                // Not plain decimal: let parseDouble judge the whole token (NaN, Infinity, hex)
+                fast = false;
+                while (!isSeparator(c)) {
+                    c = next(c);
+                }
+            }
+
+            double value;
+            if (fast && digits <= 15 && exponent >= -22 && exponent <= 22) {
+                // Both operands exact, so the one rounding is the correct one
+                value = exponent < 0 ? mantissa / POWERS[-exponent] : mantissa * POWERS[exponent];
+            } else if (fast && mantissa == 0) {
+                value = 0;
+            } else {
+                if (tokenLength > token.length) {
+                    malformed = true;
+                    return c;
+                }
+                try {
+                    value = Double.parseDouble(new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1));
+                } catch (NumberFormatException e) {
+                    malformed = true;
+                    return c;
+                }
+                negative = false;
+            }
+            if (index < values.length) {
+                values[index] = negative ? -value : value;
+            }
+            return c;
+        }
+
+        private static boolean isSeparator(int c) {
+            return c == ' ' || c == '\t' || c == ',' || c == '\r' || c == '\n' || c == '#' || c < 0;
+        }
+
+        /**
+         * Keep c as part of the token and read the byte after it
+         */
+        private int next(int c) throws IOException {
+            if (tokenLength == token.length && tokenLength < MAX_TOKEN_BYTES) {
+                token = Arrays.copyOf(token, Math.min(2 * tokenLength, MAX_TOKEN_BYTES));
+            }
+            if (tokenLength < token.length) {
+                token[tokenLength] = (byte) c;
+            }
+            tokenLength++;
+            return read();
+        }
+
+        private void skipLine() throws IOException {
+            int c = read();
+            while (c != '\n' && c >= 0) {
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                if (eof) {
+                    return -1;
+                }
+                int n = in.read(buffer, 0, buffer.length);
+                if (n <= 0) {
+                    // A stream may return 0 only for an empty request; treat it as the end too
+                    eof = true;
+                    return -1;
+                }
+                position = 0;
+                limit = n;
+            }
+            return buffer[position++] & 0xFF;
+        }
+    }
+
+    /**
+     * Formats numbers and text as ASCII into a byte buffer, writing it out
+     * when full. Not thread safe.
+     */
+    static final class NumberWriter {
+
+        private static final long[] POWERS = {
+            1L, 10L, 100L, 1000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L
+        };
+        // Below this, x times 10^N is close enough to the decimal printf rounds to get the same digits
+        private static final double LIMIT = 0x1p50;
+
+        private final OutputStream out;
+        private final byte[] buffer;
+        private int position;
+
+        NumberWriter(OutputStream out, int bufferSize) {
+            this.out = out;
+            // Room for any number writeFixed writes in one piece
+            this.buffer = new byte[Math.max(bufferSize, 64)];
+        }
+
+        /**
+         * Write x with the given number of decimals, as {@code %.Nf} would:
+         * the shortest decimal that reads back as x, rounded half up.
+         *
+         * The digits are rounded from x times 10^N in double arithmetic,
+         * whose error is far smaller than the distance to the next
+         * rounding boundary unless x is nearly halfway between two
+         * outputs. Those values, very large ones and more than 15 decimals
+         * go through {@link BigDecimal} instead.
+         */
+        NumberWriter writeFixed(double x, int decimals) throws IOException {
+            if (Double.isNaN(x)) {
+                return write("NaN");
+            }
+            if (Double.isInfinite(x)) {
+                return write(x > 0 ? "Infinity" : "-Infinity");
+            }
+            double magnitude = Math.abs(x);
+            double scaled = decimals < POWERS.length ? magnitude * POWERS[decimals] : LIMIT;
+            ensure(48);
+            // printf keeps the sign of anything negative that rounds to zero, -0.0 included
+            if (Double.doubleToRawLongBits(x) < 0) {
+                buffer[position++] = '-';
+            }
+            if (scaled >= LIMIT || Math.abs(scaled - Math.floor(scaled) - 0.5) <= scaled * 0x1p-50) {
+                return write(BigDecimal.valueOf(magnitude).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
+            }
+            long digits = Math.round(scaled);
+            long power = POWERS[decimals];
+            writeLong(digits / power);
+            if (decimals > 0) {
+                buffer[position++] = '.';
+                long fraction = digits % power;
+                int end = position + decimals;
+                for (int i = end - 1; i >= position; i--) {
+                    buffer[i] = (byte) ('0' + fraction % 10);
+                    fraction /= 10;
+                }
+                position = end;
+            }
+            return this;
+        }
+
+        NumberWriter write(char c) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte) c;
+            return this;
+        }
+
+        /**
+         * Write ASCII text
+         */
+        NumberWriter write(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                write(text.charAt(i));
+            }
+            return this;
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
+        }
+
+        // Non-negative, fewer than 20 digits
+        private void writeLong(long value) {
+            int length = 1;
+            for (long v = value / 10; v != 0; v /= 10) {
+                length++;
+            }
+            int end = position + length;
+            for (int i = end - 1; i >= position; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position = end;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.length - position < bytes) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+    }
+
+    private final BatchKernel kernel;
+    private final double gravity;
+    private final int decimals;
+    private final NumberWriter out;
+
+    // The launches read so far in this block, and their results
+    private final double[] velocity = new double[BLOCK];
+    private final double[] angleDegrees = new double[BLOCK];
+    private final double[] angleRadians = new double[BLOCK];
+    private final double[] timeOfFlight = new double[BLOCK];
+    private final double[] maxHeight = new double[BLOCK];
+    private final double[] range = new double[BLOCK];
+    private int size;
+
+    private long launches;
+    private long rejected;
+
+    LaunchBatch(BatchKernel kernel, double gravity, int decimals, NumberWriter out) {
+        this.kernel = kernel;
+        this.gravity = gravity;
+        this.decimals = decimals;
+        this.out = out;
+    }
+
+    /**
+     * Read, compute and write every launch in the stream. Bad lines are
+     * reported on standard error as name:line and skipped.
+     *
+     * @return false if reading the stream failed, after reporting it
+     * @throws IOException if writing the results failed
+     */
+    boolean process(InputStream in, String name, int bufferSize) throws IOException {
+        LineReader reader = new LineReader(in, bufferSize);
+        double[] values = new double[2];
+        while (true) {
+            int count;
+            try {
+                count = reader.readLine(values);
+            } catch (IOException e) {
+                System.err.println("Error reading " + name + " after line " + reader.lineNumber() + ": "
+                        + e.getMessage());
+                return false;
+            }
+            if (count == LineReader.END) {
+                return true;
+            }
+            if (count == 0) {
+                continue;
+            }
+            String problem = null;
+            if (count == LineReader.MALFORMED) {
+                problem = "\"" + reader.badToken() + "\" is not a number";
+            } else if (count != 2) {
+                problem = "expected VELOCITY ANGLE, found " + count + " value" + (count == 1 ? "" : "s");
+            } else if (!(values[0] >= 0) || Double.isInfinite(values[0])) {
+                problem = "velocity must be a non-negative number";
+            } else if (!(values[1] >= 0 && values[1] <= 90)) {
+                problem = "angle must be between 0 and 90 degrees";
+            }
+            if (problem != null) {
+                rejected++;
+                System.err.println("Error: " + name + ":" + reader.lineNumber() + ": " + problem);
+                continue;
+            }
+            velocity[size] = values[0];
+            angleDegrees[size] = values[1];
+            angleRadians[size] = Math.toRadians(values[1]);
+            if (++size == BLOCK) {
+                flushBlock();
+            }
+        }
+    }
+
+    /**
+     * {@link #process(InputStream, String, int)} for a file
+     */
+    boolean process(String file, int bufferSize) throws IOException {
+        InputStream in;
+        try {
+            in = Files.newInputStream(Paths.get(file));
+        } catch (IOException e) {
+            System.err.println("Error reading " + file + ": " + e);
+            return false;
+        }
+        try {
+            return process(in, file, bufferSize);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Compute and write any launches still held, and flush the output
+     */
+    void finish() throws IOException {
+        flushBlock();
+        out.flush();
+    }
+
+    long getLaunches() {
+        return launches;
+    }
+
+    long getRejected() {
+        return rejected;
+    }
+
+    private void flushBlock() throws IOException {
+        kernel.compute(velocity, angleRadians, gravity, timeOfFlight, maxHeight, range, size);
+        for (int i = 0; i < size; i++) {
+            out.writeFixed(velocity[i], decimals).write(',')
+                    .writeFixed(angleDegrees[i], decimals).write(',')
+                    .writeFixed(timeOfFlight[i], decimals).write(',')
+                    .writeFixed(maxHeight[i], decimals).write(',')
+                    .writeFixed(range[i], decimals).write('\n');
+        }
+        launches += size;
+        size = 0;
+    }
+
+    /**
+     * Command line: --batch [FILE ...] [--out FILE] [--gravity G]
+     * [--decimals N] [--buffer BYTES]
+     *
+     * Reads the files in order, or standard input if there are none or a
+     * file is "-", and writes CSV to FILE or standard output.
+     *
+     * @return 0 if every line was a launch, 1 if some were rejected or
+     *         the input or output failed, 2 for bad arguments
+     */
+    static int run(String[] args) {
+        String usage = "Usage: ProjectileMotionSimulator --batch [FILE ...] [--out FILE] [--gravity G] "
+                + "[--decimals N] [--buffer BYTES]\n"
+                + "  each input line is VELOCITY ANGLE (degrees); FILE - or no FILE reads standard input";
+        String output = null;
+        double gravity = ProjectileMath.EARTH_GRAVITY;
+        int decimals = 6;
+        int bufferSize = 1 << 20;
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        output = args[++i];
+                        break;
+                    case "--gravity":
+                        gravity = Double.parseDouble(args[++i]);
+                        break;
+                    case "--decimals":
+                        decimals = Integer.parseInt(args[++i]);
+                        break;
+                    case "--buffer":
+                        bufferSize = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(usage);
+            return 2;
+        }
+        if (!(gravity > 0) || decimals < 0 || decimals > 30 || bufferSize < 1) {
+            System.err.println("Error: gravity must be positive, decimals between 0 and 30 "
+                    + "and the buffer at least one byte");
+            return 2;
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("-");
+        }
+
+        long start = System.nanoTime();
+        LaunchBatch batch;
+        try (OutputStream stream = output == null ? null : Files.newOutputStream(Paths.get(output))) {
+            NumberWriter out = new NumberWriter(stream == null ? System.out : stream, bufferSize);
+            batch = new LaunchBatch(BatchKernel.best(), gravity, decimals, out);
+            out.write("velocity,angle,time_of_flight,max_height,range\n");
+            for (String input : inputs) {
+                boolean read = input.equals("-")
+                        ? batch.process(System.in, "stdin", bufferSize)
+                        : batch.process(input, bufferSize);
+                if (!read) {
+                    // Still write what was read, so the output matches the lines reported
+                    batch.finish();
+                    return 1;
+                }
+            }
+            batch.finish();
+        } catch (IOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            return 1;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Computed %d launches, rejected %d lines in %.2f s (%.1f million lines/min, %s kernel)%n",
+                batch.getLaunches(), batch.getRejected(), seconds,
+                (batch.getLaunches() + batch.getRejected()) / seconds * 60 / 1e6, BatchKernel.best().name());
+        return batch.getRejected() == 0 ? 0 : 1;
+    }
+}
@@ -0,0 +1,498 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+
+/**
+ * Propagates measurement error in the launch inputs to the outcomes: many
+ * launches are flown with velocity, angle, drag and wind drawn from their
+ * distributions, and the range, maximum height and time of flight are
+ * summarised as {@link StreamingStatistics}.
+ *
+ * The samples are split in half recursively into fork-join tasks, and
+ * each split also splits the {@link SplittableRandom}, so every task
+ * draws from its own independent stream without sharing or locking. The
+ * tree of tasks depends only on the sample count, so a seed gives the
+ * same answer on any number of threads. Each leaf fills its own
+ * accumulators, which are merged on the way back up; memory grows with
+ * the number of bins, not samples.
+ *
+ * The histogram bounds are fixed before the run from a short pilot run,
+ * so that all accumulators share the same bins and can be merged.
+ */
+public final class MonteCarlo {
+
+    /**
+     * A random input: a fixed value, a normal or a uniform distribution.
+     */
+    public static final class Distribution {
+
+        private enum Kind {
+            FIXED, NORMAL, UNIFORM
+        }
+
+        private final Kind kind;
+        private final double a;
+        private final double b;
+
+        private Distribution(Kind kind, double a, double b) {
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+        }
+
+        public static Distribution fixed(double value) {
+            return new Distribution(Kind.FIXED, value, value);
+        }
+
+        public static Distribution normal(double mean, double standardDeviation) {
+            if (!(standardDeviation >= 0)) {
+                throw new IllegalArgumentException("Standard deviation cannot be negative");
+            }
+            return new Distribution(Kind.NORMAL, mean, standardDeviation);
+        }
+
+        public static Distribution uniform(double min, double max) {
+            if (!(max >= min)) {
+                throw new IllegalArgumentException("Uniform distribution needs min <= max");
+            }
+            return new Distribution(Kind.UNIFORM, min, max);
+        }
+
+        /**
+         * Parse "value", "normal:mean:sd" or "uniform:min:max".
+         */
+        static Distribution parse(String text) {
+            String[] parts = text.split(":");
+            try {
+                if (parts.length == 1) {
+                    return fixed(Double.parseDouble(parts[0]));
+                }
+                if (parts.length == 3 && parts[0].equals("normal")) {
+                    return normal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                }
+                if (parts.length == 3 && parts[0].equals("uniform")) {
+                    return uniform(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Expected value, normal:mean:sd or uniform:min:max, got \""
+                    + text + "\"");
+        }
+
+        boolean isFixed() {
+            return kind == Kind.FIXED || a == b;
+        }
+
+        double sample(Sampler sampler) {
+            switch (kind) {
+                case NORMAL:
+                    return a + b * sampler.nextGaussian();
+                case UNIFORM:
+                    return a + (b - a) * sampler.random.nextDouble();
+                default:
+                    return a;
+            }
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case NORMAL:
+                    return "normal(" + a + ", " + b + ")";
+                case UNIFORM:
+                    return "uniform(" + a + ", " + b + ")";
+                default:
+                    return Double.toString(a);
+            }
+        }
+    }
+
+    /**
+     * A task's random stream, with the spare normal value the polar method makes.
+     */
+    private static final class Sampler {
+
+        final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare;
+
+        Sampler(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * Marsaglia's polar method; SplittableRandom has no nextGaussian before Java 17
+         */
+        double nextGaussian() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u;
+            double v;
+            double s;
+            do {
+                u = 2 * random.nextDouble() - 1;
+                v = 2 * random.nextDouble() - 1;
+                s = u * u + v * v;
+            } while (s >= 1 || s == 0);
+            double scale = Math.sqrt(-2 * Math.log(s) / s);
+            spare = v * scale;
+            hasSpare = true;
+            return u * scale;
+        }
+    }
+
+    /**
+     * Statistics of the three outcomes over all samples.
+     */
+    public static final class Outcome {
+
+        public final StreamingStatistics range;
+        public final StreamingStatistics maxHeight;
+        public final StreamingStatistics timeOfFlight;
+
+        Outcome(StreamingStatistics range, StreamingStatistics maxHeight, StreamingStatistics timeOfFlight) {
+            this.range = range;
+            this.maxHeight = maxHeight;
+            this.timeOfFlight = timeOfFlight;
+        }
+
+        Outcome emptyCopy() {
+            return new Outcome(range.emptyCopy(), maxHeight.emptyCopy(), timeOfFlight.emptyCopy());
+        }
+
+        void merge(Outcome other) {
+            range.merge(other.range);
+            maxHeight.merge(other.maxHeight);
+            timeOfFlight.merge(other.timeOfFlight);
+        }
+    }
+
+    // Samples per leaf task: large enough to hide the cost of a task and its histograms
+    private static final int CLOSED_FORM_GRAIN = 1 << 16;
+    private static final int INTEGRATED_GRAIN = 1 << 9;
+    private static final int PILOT_SAMPLES = 10_000;
+
+    private final Distribution velocity;
+    private final Distribution angle;
+    private final Distribution drag;
+    private final Distribution wind;
+    private final FlightModel model;
+    private final Supplier<TrajectoryIntegrator> integrators;
+    private final int binCount;
+
+    /**
+     * @param angle launch angle in degrees
+     * @param model gravity and launch height; its drag and wind are replaced by the distributions
+     * @param integrators creates the integrator for each task, or null for the closed forms,
+     *        which need no drag and no launch height
+     * @param binCount histogram bins per outcome
+     */
+    public MonteCarlo(Distribution velocity, Distribution angle, Distribution drag, Distribution wind,
+            FlightModel model, Supplier<TrajectoryIntegrator> integrators, int binCount) {
+        if (integrators == null && !(drag.isFixed() && drag.a == 0 && model.launchHeight == 0)) {
+            throw new IllegalArgumentException("Drag and launch height need an integrator");
+        }
+        if (binCount < 1) {
+            throw new IllegalArgumentException("A histogram needs at least one bin");
+        }
+        this.velocity = velocity;
+        this.angle = angle;
+        this.drag = drag;
+        this.wind = wind;
+        this.model = model;
+        this.integrators = integrators;
+        this.binCount = binCount;
+    }
+
+    /**
+     * Fly the samples on the pool and summarise them.
+     *
+     * @param seed the same seed gives the same statistics on any pool
+     */
+    public Outcome run(long samples, long seed, ForkJoinPool pool) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("Need at least one sample");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        Outcome empty = pilot(random.split(), (int) Math.min(samples, PILOT_SAMPLES));
+        int grain = integrators == null ? CLOSED_FORM_GRAIN : INTEGRATED_GRAIN;
+        return pool.invoke(new SampleTask(empty, random, 0, samples, grain));
+    }
+
+    /**
+     * Fly a few samples to find the spread of each outcome, and return
+     * empty accumulators whose bins cover it with room to spare.
+     */
+    private Outcome pilot(SplittableRandom random, int samples) {
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        Flight flight = new Flight(new Sampler(random));
+        for (int i = 0; i < samples; i++) {
+            flight.next();
+            double[] values = {flight.range, flight.maxHeight, flight.timeOfFlight};
+            for (int k = 0; k < values.length; k++) {
+                min[k] = Math.min(min[k], values[k]);
+                max[k] = Math.max(max[k], values[k]);
+            }
+        }
+        StreamingStatistics[] statistics = new StreamingStatistics[3];
+        for (int k = 0; k < statistics.length; k++) {
+            // Half the pilot's spread again on each side; the full run reaches further into the tails
+            double margin = Math.max((max[k] - min[k]) / 2, Math.max(Math.abs(max[k]) * 1e-9, 1e-9));
+            statistics[k] = new StreamingStatistics(min[k] - margin, max[k] + margin, binCount);
+        }
+        return new Outcome(statistics[0], statistics[1], statistics[2]);
+    }
+
+    /**
+     * Draws and flies one launch at a time, reusing its integrator.
+     */
+    private final class Flight {
+
+        private final Sampler sampler;
+        private final TrajectoryIntegrator integrator;
+        private final TrajectoryIntegrator.Result result = new TrajectoryIntegrator.Result();
+        double range;
+        double maxHeight;
+        double timeOfFlight;
+
+        Flight(Sampler sampler) {
+            this.sampler = sampler;
+            this.integrator = integrators == null ? null : integrators.get();
+        }
+
+        void next() {
+            // Draws outside what is physical are clipped to its edge
+            double v = Math.max(0, velocity.sample(sampler));
+            double radians = Math.toRadians(Math.max(0, Math.min(90, angle.sample(sampler))));
+            double k = Math.max(0, drag.sample(sampler));
+            double w = wind.sample(sampler);
+            if (integrator == null) {
+                range = ProjectileMath.range(v, radians, model.gravity);
+                maxHeight = ProjectileMath.maxHeight(v, radians, model.gravity);
+                timeOfFlight = ProjectileMath.timeOfFlight(v, radians, model.gravity);
+                return;
+            }
+            integrator.integrate(new FlightModel(model.gravity, k, w, model.launchHeight), v, radians, result);
+            range = result.range;
+            maxHeight = result.maxHeight;
+            timeOfFlight = result.timeOfFlight;
+        }
+    }
+
+    /**
+     * Flies a range of samples, splitting it and its random stream in half
+     * down to the grain.
+     */
+    private final class SampleTask extends RecursiveTask<Outcome> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Outcome empty;
+        private final SplittableRandom random;
+        private final long from;
+        private final long to;
+        private final int grain;
+
+        SampleTask(Outcome empty, SplittableRandom random, long from, long to, int grain) {
+            this.empty = empty;
+            this.random = random;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Outcome compute() {
+            if (to - from > grain) {
+                long middle = (from + to) >>> 1;
+                SampleTask right = new SampleTask(empty, random.split(), middle, to, grain);
+                right.fork();
+                Outcome outcome = new SampleTask(empty, random, from, middle, grain).compute();
+                outcome.merge(right.join());
+                return outcome;
+            }
+            Outcome outcome = empty.emptyCopy();
+            Flight flight = new Flight(new Sampler(random));
+            for (long i = from; i < to; i++) {
+                flight.next();
+                outcome.range.add(flight.range);
+                outcome.maxHeight.add(flight.maxHeight);
+                outcome.timeOfFlight.add(flight.timeOfFlight);
+            }
+            return outcome;
+        }
+    }
+
+    /**
+     * Command line: --montecarlo VELOCITY ANGLE [--drag K] [--wind W] [--samples N] [--seed S]
+     * [--bins N] [--gravity G] [--height H] [--method rk4|dopri] [--dt S] [--tol E] [--threads N]
+     * [--histogram FILE]
+     *
+     * VELOCITY, ANGLE, K and W are each a value, normal:mean:sd or
+     * uniform:min:max. Prints a summary table; --histogram also writes
+     * the bins of each outcome as CSV.
+     */
+    static int run(String[] args) {
+        String usage = "Usage: ProjectileMotionSimulator --montecarlo VELOCITY ANGLE [--drag K] [--wind W] "
+                + "[--samples N] [--seed S] [--bins N]\n"
+                + "         [--gravity G] [--height H] [--method rk4|dopri] [--dt S] [--tol E] [--threads N] "
+                + "[--histogram FILE]\n"
+                + "  VELOCITY, ANGLE, K and W are each a value, normal:mean:sd or uniform:min:max,\n"
+                + "  e.g. --montecarlo normal:50:0.5 normal:45:0.2 --drag uniform:0.004:0.006";
+        String dragText = "0";
+        String windText = "0";
+        long samples = 1_000_000;
+        long seed = 42;
+        int bins = 1000;
+        double gravity = ProjectileMath.EARTH_GRAVITY;
+        double height = 0;
+        String method = null;
+        double dt = 0;
+        double tolerance = 1e-9;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String histogram = null;
+        List<String> inputs = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--drag":
+                        dragText = args[++i];
+                        break;
+                    case "--wind":
+                        windText = args[++i];
+                        break;
+                    case "--samples":
+                        samples = (long) Double.parseDouble(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--bins":
+                        bins = Integer.parseInt(args[++i]);
+                        break;
+                    case "--gravity":
+                        gravity = Double.parseDouble(args[++i]);
+                        break;
+                    case "--height":
+                        height = Double.parseDouble(args[++i]);
+                        break;
+                    case "--method":
+                        method = args[++i];
+                        break;
+                    case "--dt":
+                        dt = Double.parseDouble(args[++i]);
+                        break;
+                    case "--tol":
+                        tolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--histogram":
+                        histogram = args[++i];
+                        break;
+                    default:
+                        inputs.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(usage);
+            return 2;
+        }
+        if (inputs.size() != 2) {
+            System.err.println(usage);
+            return 2;
+        }
+
+        ForkJoinPool pool = null;
+        try {
+            Distribution velocity = Distribution.parse(inputs.get(0));
+            Distribution angle = Distribution.parse(inputs.get(1));
+            Distribution drag = Distribution.parse(dragText);
+            Distribution wind = Distribution.parse(windText);
+            boolean vacuum = drag.isFixed() && drag.a == 0 && height == 0;
+            FlightModel model = new FlightModel(gravity, 0, 0, height);
+            Supplier<TrajectoryIntegrator> integrators;
+            if (method == null || method.equals("closed")) {
+                if (!vacuum && method != null) {
+                    throw new IllegalArgumentException("The closed forms ignore drag and launch height; "
+                            + "use --method rk4 or dopri");
+                }
+                integrators = vacuum ? null : ParameterSweep.integrators("dopri", model, dt, tolerance);
+            } else {
+                integrators = ParameterSweep.integrators(method, model, dt, tolerance);
+            }
+            MonteCarlo monteCarlo = new MonteCarlo(velocity, angle, drag, wind, model, integrators, bins);
+
+            pool = new ForkJoinPool(Math.max(1, threads));
+            long start = System.nanoTime();
+            Outcome outcome = monteCarlo.run(samples, seed, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("velocity %s m/s, angle %s degrees, drag %s 1/m, wind %s m/s, %d samples%n",
+                    velocity, angle, drag, wind, samples);
+            System.out.printf("%-16s %12s %12s %12s %12s %12s %12s %12s %12s%n",
+                    "", "mean", "std dev", "min", "p5", "p50", "p95", "p99", "max");
+            print("Range (m)", outcome.range);
+            print("Max height (m)", outcome.maxHeight);
+            print("Flight time (s)", outcome.timeOfFlight);
+            if (histogram != null) {
+                writeHistogram(outcome, histogram);
+            }
+            System.err.printf("Flew %d samples in %.2f s (%.0f samples/s, %d threads)%n",
+                    samples, seconds, samples / seconds, pool.getParallelism());
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Error writing histogram: " + e.getMessage());
+            return 1;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void print(String label, StreamingStatistics statistics) {
+        System.out.printf("%-16s %12.4f %12.4f %12.4f %12.4f %12.4f %12.4f %12.4f %12.4f%n", label,
+                statistics.getMean(), statistics.getStandardDeviation(), statistics.getMin(),
+                statistics.percentile(5), statistics.percentile(50), statistics.percentile(95),
+                statistics.percentile(99), statistics.getMax());
+    }
+
+    private static void writeHistogram(Outcome outcome, String path) throws IOException {
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))) {
+            out.write("outcome,bin_start,bin_end,count\n");
+            writeBins(out, "range", outcome.range);
+            writeBins(out, "max_height", outcome.maxHeight);
+            writeBins(out, "time_of_flight", outcome.timeOfFlight);
+        }
+    }
+
+    private static void writeBins(Writer out, String name, StreamingStatistics statistics) throws IOException {
+        double width = statistics.getBinWidth();
+        out.write(name + ",-Infinity," + statistics.getBinStart(0) + "," + statistics.getUnderflow() + "\n");
+        for (int i = 0; i < statistics.getBinCount(); i++) {
+            double start = statistics.getBinStart(i);
+            out.write(name + "," + start + "," + (start + width) + "," + statistics.getBin(i) + "\n");
+        }
+        out.write(name + "," + (statistics.getBinStart(0) + width * statistics.getBinCount()) + ",Infinity,"
+                + statistics.getOverflow() + "\n");
+    }
+}
@@ -0,0 +1,541 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+
+/**
+ * Evaluates the closed-form results over a velocity × angle × gravity grid.
+ *
+ * The grid is walked in blocks of consecutive points. Each block holds its
+ * inputs and results as parallel primitive arrays (structure of arrays),
+ * so the inner loop is a straight pass over doubles with no allocation.
+ * A window of blocks is computed in parallel on a fork-join pool and then
+ * handed to the {@link Sink} in grid order. The blocks are reused for the
+ * next window, so memory is bounded by the window, not the grid.
+ *
+ * Grid order is gravity slowest, then angle, then velocity fastest. The
+ * sine terms depend only on the angle and are computed once per angle.
+ *
+ * With a {@link FlightModel} and integrator, each point is flown with
+ * {@link TrajectoryIntegrator} instead, one integrator per block. Given a
+ * sample interval, each block also carries the sampled trajectories of
+ * its points.
+ */
+public final class ParameterSweep {
+
+    /**
+     * Evenly spaced values from first to last inclusive, in either direction.
+     */
+    public static final class Axis {
+
+        final double first;
+        final double last;
+        final int steps;
+
+        public Axis(double first, double last, int steps) {
+            if (steps < 1) {
+                throw new IllegalArgumentException("An axis needs at least one step");
+            }
+            this.first = first;
+            this.last = last;
+            this.steps = steps;
+        }
+
+        /**
+         * A single value
+         */
+        public Axis(double value) {
+            this(value, value, 1);
+        }
+
+        double value(int index) {
+            return steps == 1 ? first : first + (last - first) * index / (steps - 1);
+        }
+
+        double min() {
+            return Math.min(first, last);
+        }
+
+        double max() {
+            return Math.max(first, last);
+        }
+
+        /**
+         * Parse "value" or "first:last:steps".
+         */
+        static Axis parse(String text) {
+            String[] parts = text.split(":");
+            try {
+                if (parts.length == 1) {
+                    return new Axis(Double.parseDouble(parts[0]));
+                }
+                if (parts.length == 3) {
+                    return new Axis(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                            Integer.parseInt(parts[2]));
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException("Expected value or first:last:steps, got \"" + text + "\"");
+        }
+    }
+
+    /**
+     * One run of consecutive grid points. The arrays are only valid
+     * during {@link Sink#accept}; copy anything needed later. The samples
+     * are null unless the sweep samples trajectories.
+     */
+    public static final class Block {
+
+        public final double[] velocity;
+        public final double[] angleDegrees;
+        public final double[] gravity;
+        public final double[] timeOfFlight;
+        public final double[] maxHeight;
+        public final double[] range;
+        public final TrajectorySamples samples;
+        // Grid index of the first point
+        public long first;
+        public int size;
+
+        Block(int capacity, boolean sampled) {
+            velocity = new double[capacity];
+            angleDegrees = new double[capacity];
+            gravity = new double[capacity];
+            timeOfFlight = new double[capacity];
+            maxHeight = new double[capacity];
+            range = new double[capacity];
+            samples = sampled ? new TrajectorySamples() : null;
+        }
+    }
+
+    /**
+     * Receives computed blocks in grid order, one at a time.
+     */
+    public interface Sink {
+        void accept(Block block) throws IOException;
+    }
+
+    private final Axis velocities;
+    private final Axis angles;
+    private final Axis gravities;
+    private final int blockSize;
+    private final ForkJoinPool pool;
+
+    // Per gravity step, and the integrators to fly them with; null for the closed forms
+    private final FlightModel[] models;
+    private final Supplier<TrajectoryIntegrator> integrators;
+    private final double sampleInterval;
+
+    // Per-angle terms, so the inner loop needs no trigonometry
+    private final double[] angleValues;
+    private final double[] sinAngle;
+    private final double[] sinDoubleAngle;
+
+    /**
+     * @param angles launch angles in degrees
+     * @param blockSize grid points per block
+     */
+    public ParameterSweep(Axis velocities, Axis angles, Axis gravities, int blockSize, ForkJoinPool pool) {
+        this(velocities, angles, gravities, null, null, 0, blockSize, pool);
+    }
+
+    /**
+     * @param angles launch angles in degrees
+     * @param model drag, wind and launch height; its gravity is replaced by the gravity axis
+     * @param integrators creates the integrator for each block, or null for the closed forms
+     * @param sampleInterval seconds between trajectory samples, or 0 for none
+     * @param blockSize grid points per block
+     */
+    public ParameterSweep(Axis velocities, Axis angles, Axis gravities, FlightModel model,
+            Supplier<TrajectoryIntegrator> integrators, double sampleInterval, int blockSize, ForkJoinPool pool) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        if (sampleInterval < 0 || sampleInterval > 0 && integrators == null) {
+            throw new IllegalArgumentException("Sampling needs a positive interval and an integrator");
+        }
+        this.sampleInterval = sampleInterval;
+        this.velocities = velocities;
+        this.angles = angles;
+        this.gravities = gravities;
+        this.blockSize = blockSize;
+        this.pool = pool;
+        this.integrators = integrators;
+        if (integrators == null) {
+            models = null;
+        } else {
+            models = new FlightModel[gravities.steps];
+            for (int i = 0; i < gravities.steps; i++) {
+                models[i] = model.withGravity(gravities.value(i));
+            }
+        }
+        angleValues = new double[angles.steps];
+        sinAngle = new double[angles.steps];
+        sinDoubleAngle = new double[angles.steps];
+        for (int i = 0; i < angles.steps; i++) {
+            double radians = Math.toRadians(angles.value(i));
+            angleValues[i] = angles.value(i);
+            sinAngle[i] = Math.sin(radians);
+            sinDoubleAngle[i] = Math.sin(2 * radians);
+        }
+    }
+
+    public long size() {
+        return (long) velocities.steps * angles.steps * gravities.steps;
+    }
+
+    /**
+     * Compute the whole grid, passing each block to the sink in order.
+     *
+     * @return the number of grid points computed
+     */
+    public long run(Sink sink) throws IOException {
+        long total = size();
+        // Two blocks per worker keeps every core busy without holding much of the grid
+        Block[] window = new Block[Math.max(1, pool.getParallelism() * 2)];
+        for (int i = 0; i < window.length; i++) {
+            window[i] = new Block(blockSize, sampleInterval > 0);
+        }
+        long next = 0;
+        while (next < total) {
+            int used = 0;
+            while (used < window.length && next < total) {
+                Block block = window[used++];
+                block.first = next;
+                block.size = (int) Math.min(blockSize, total - next);
+                next += block.size;
+            }
+            pool.invoke(new ComputeTask(window, 0, used));
+            for (int i = 0; i < used; i++) {
+                sink.accept(window[i]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Fill a block's inputs from the grid and evaluate the formulas.
+     */
+    void compute(Block block) {
+        if (integrators != null) {
+            integrate(block);
+            return;
+        }
+        int nv = velocities.steps;
+        int na = angles.steps;
+        long index = block.first;
+        int v = (int) (index % nv);
+        int a = (int) (index / nv % na);
+        int g = (int) (index / nv / na);
+        double gravity = gravities.value(g);
+        for (int i = 0; i < block.size; i++) {
+            double velocity = velocities.value(v);
+            // Same expressions as ProjectileMath, with sin(θ) and sin(2θ) looked up
+            double velocityY = velocity * sinAngle[a];
+            block.velocity[i] = velocity;
+            block.angleDegrees[i] = angleValues[a];
+            block.gravity[i] = gravity;
+            block.timeOfFlight[i] = (2 * velocityY) / gravity;
+            block.maxHeight[i] = (velocityY * velocityY) / (2 * gravity);
+            block.range[i] = (velocity * velocity * sinDoubleAngle[a]) / gravity;
+            if (++v == nv) {
+                v = 0;
+                if (++a == na) {
+                    a = 0;
+                    gravity = gravities.value(++g);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill a block's inputs from the grid and fly each point.
+     */
+    private void integrate(Block block) {
+        TrajectoryIntegrator integrator = integrators.get();
+        TrajectoryIntegrator.Result result = new TrajectoryIntegrator.Result();
+        TrajectorySamples samples = block.samples;
+        if (samples != null) {
+            samples.clear();
+        }
+        int nv = velocities.steps;
+        int na = angles.steps;
+        long index = block.first;
+        int v = (int) (index % nv);
+        int a = (int) (index / nv % na);
+        int g = (int) (index / nv / na);
+        for (int i = 0; i < block.size; i++) {
+            double velocity = velocities.value(v);
+            integrator.integrate(models[g], velocity, Math.toRadians(angleValues[a]), result,
+                    sampleInterval, samples);
+            if (samples != null) {
+                samples.endTrajectory();
+            }
+            block.velocity[i] = velocity;
+            block.angleDegrees[i] = angleValues[a];
+            block.gravity[i] = models[g].gravity;
+            block.timeOfFlight[i] = result.timeOfFlight;
+            block.maxHeight[i] = result.maxHeight;
+            block.range[i] = result.range;
+            if (++v == nv) {
+                v = 0;
+                if (++a == na) {
+                    a = 0;
+                    g++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes a range of blocks, splitting it in half until one block is left.
+     */
+    private final class ComputeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Block[] blocks;
+        private final int from;
+        private final int to;
+
+        ComputeTask(Block[] blocks, int from, int to) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                ParameterSweep.this.compute(blocks[from]);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ComputeTask(blocks, from, middle), new ComputeTask(blocks, middle, to));
+        }
+    }
+
+    /**
+     * Writes blocks as CSV rows.
+     */
+    static final class CsvSink implements Sink {
+
+        private final Writer out;
+
+        CsvSink(Writer out) throws IOException {
+            this.out = out;
+            out.write("velocity,angle,gravity,time_of_flight,max_height,range\n");
+        }
+
+        @Override
+        public void accept(Block block) throws IOException {
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 0; i < block.size; i++) {
+                line.setLength(0);
+                line.append(block.velocity[i]).append(',')
+                        .append(block.angleDegrees[i]).append(',')
+                        .append(block.gravity[i]).append(',')
+                        .append(block.timeOfFlight[i]).append(',')
+                        .append(block.maxHeight[i]).append(',')
+                        .append(block.range[i]).append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    /**
+     * Command line: --sweep|--trajectories VELOCITY ANGLE [GRAVITY] [--out FILE] [--block N]
+     * [--threads N] [--drag K] [--wind W] [--height H] [--method closed|rk4|dopri] [--dt S] [--tol E]
+     * [--interval S] [--format csv|binary]
+     *
+     * Each axis is a single value or first:last:steps. --sweep writes one
+     * CSV row of results per point; --trajectories writes each point's
+     * sampled trajectory, as CSV or in the {@link TrajectoryFile} format.
+     * Output goes to FILE, or to standard output for CSV. Drag or a launch
+     * height selects the Dormand-Prince integrator unless another method
+     * is given.
+     */
+    static int run(String[] args) {
+        boolean sampling = args[0].equals("--trajectories");
+        String usage = "Usage: ProjectileMotionSimulator --sweep VELOCITY ANGLE [GRAVITY] [--out FILE] "
+                + "[--block N] [--threads N]\n"
+                + "         [--drag K] [--wind W] [--height H] [--method closed|rk4|dopri] [--dt S] [--tol E]\n"
+                + "       ProjectileMotionSimulator --trajectories VELOCITY ANGLE [GRAVITY] [--interval S] "
+                + "[--format csv|binary] [options as above]\n"
+                + "  each axis is a value or first:last:steps, e.g. --sweep 10:100:1000 0:90:901";
+        String out = null;
+        int block = sampling ? 256 : 4096;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double drag = 0;
+        double wind = 0;
+        double height = 0;
+        String method = null;
+        double dt = 0;
+        double tolerance = 1e-9;
+        double interval = 0.1;
+        String format = null;
+        List<String> axes = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        out = args[++i];
+                        break;
+                    case "--block":
+                        block = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--drag":
+                        drag = Double.parseDouble(args[++i]);
+                        break;
+                    case "--wind":
+                        wind = Double.parseDouble(args[++i]);
+                        break;
+                    case "--height":
+                        height = Double.parseDouble(args[++i]);
+                        break;
+                    case "--method":
+                        method = args[++i];
+                        break;
+                    case "--dt":
+                        dt = Double.parseDouble(args[++i]);
+                        break;
+                    case "--tol":
+                        tolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "--interval":
+                        interval = Double.parseDouble(args[++i]);
+                        break;
+                    case "--format":
+                        format = args[++i];
+                        break;
+                    default:
+                        axes.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(usage);
+            return 2;
+        }
+        if (axes.size() < 2 || axes.size() > 3) {
+            System.err.println(usage);
+            return 2;
+        }
+
+        ForkJoinPool pool = null;
+        try {
+            Axis velocity = Axis.parse(axes.get(0));
+            Axis angle = Axis.parse(axes.get(1));
+            Axis gravity = axes.size() == 3 ? Axis.parse(axes.get(2)) : new Axis(ProjectileMath.EARTH_GRAVITY);
+            if (velocity.min() < 0) {
+                throw new IllegalArgumentException("Velocity cannot be negative");
+            }
+            if (angle.min() < 0 || angle.max() > 90) {
+                throw new IllegalArgumentException("Angle must be between 0 and 90 degrees");
+            }
+            if (gravity.min() <= 0) {
+                throw new IllegalArgumentException("Gravity must be positive");
+            }
+            FlightModel model = new FlightModel(gravity.first, drag, wind, height);
+            if (sampling && method == null) {
+                // Trajectories are always integrated; in a vacuum Dormand-Prince is exact
+                method = "dopri";
+            }
+            Supplier<TrajectoryIntegrator> integrators = integrators(method, model, dt, tolerance);
+            if (sampling && integrators == null) {
+                throw new IllegalArgumentException("Sampling trajectories needs --method rk4 or dopri");
+            }
+            if (format == null) {
+                // Only trajectories have a binary format
+                format = sampling && out != null && !out.endsWith(".csv") ? "binary" : "csv";
+            }
+            if (!format.equals("csv") && !(sampling && format.equals("binary"))) {
+                throw new IllegalArgumentException("Unknown format \"" + format + "\"");
+            }
+            if (format.equals("binary") && out == null) {
+                throw new IllegalArgumentException("Binary output needs --out FILE");
+            }
+            pool = new ForkJoinPool(Math.max(1, threads));
+            ParameterSweep sweep = new ParameterSweep(velocity, angle, gravity, model, integrators,
+                    sampling ? interval : 0, block, pool);
+
+            long start = System.nanoTime();
+            long points;
+            long samples = 0;
+            if (format.equals("binary")) {
+                try (TrajectoryFile.BinarySink sink = new TrajectoryFile.BinarySink(Paths.get(out))) {
+                    points = sweep.run(sink);
+                    samples = sink.getPoints();
+                }
+            } else {
+                try (Writer writer = new BufferedWriter(out == null
+                        ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                        : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8), 1 << 16)) {
+                    if (sampling) {
+                        TrajectoryFile.CsvSink sink = new TrajectoryFile.CsvSink(writer);
+                        points = sweep.run(sink);
+                        samples = sink.getPoints();
+                    } else {
+                        points = sweep.run(new CsvSink(writer));
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (sampling) {
+                System.err.printf("Wrote %d trajectories, %d samples in %.2f s (%.0f samples/s, %d threads)%n",
+                        points, samples, seconds, samples / seconds, pool.getParallelism());
+            } else {
+                System.err.printf("Swept %d points in %.2f s (%.0f points/s, %d threads)%n",
+                        points, seconds, points / seconds, pool.getParallelism());
+            }
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            return 1;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * The integrators a --method option asks for, or null for the closed forms
+     */
+    static Supplier<TrajectoryIntegrator> integrators(String method, FlightModel model, double dt,
+            double tolerance) {
+        if (method == null) {
+            method = model.isVacuum() ? "closed" : "dopri";
+        }
+        switch (method) {
+            case "closed":
+                if (!model.isVacuum()) {
+                    throw new IllegalArgumentException("The closed forms ignore drag and launch height; "
+                            + "use --method rk4 or dopri");
+                }
+                return null;
+            case "rk4":
+                double step = dt > 0 ? dt : 1e-3;
+                return () -> new TrajectoryIntegrator(TrajectoryIntegrator.Method.RK4, step, 0);
+            case "dopri":
+                return () -> new TrajectoryIntegrator(TrajectoryIntegrator.Method.DORMAND_PRINCE, dt, tolerance);
+            default:
+                throw new IllegalArgumentException("Unknown method \"" + method + "\"");
+        }
+    }
+}
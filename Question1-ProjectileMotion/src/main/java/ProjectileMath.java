@@ -0,0 +1,46 @@
+/**
+ * Closed-form projectile motion in a vacuum over level ground.
+ *
+ * Angles are in radians and gravity is a parameter, so the same formulas
+ * serve the interactive simulator and the batch engines. The batch
+ * kernels evaluate the same expressions in the same order, so their
+ * results match these methods bit for bit.
+ */
+public final class ProjectileMath {
+
+    // Standard gravitational acceleration at the Earth's surface (m/s²)
+    public static final double EARTH_GRAVITY = 9.81;
+
+    private ProjectileMath() {
+    }
+
+    /**
+     * Time of flight: T = (2 * v₀ * sin(θ)) / g
+     */
+    public static double timeOfFlight(double velocity, double angleRadians, double gravity) {
+        double velocityY = velocity * Math.sin(angleRadians);
+        return (2 * velocityY) / gravity;
+    }
+
+    /**
+     * Maximum height: H = (v₀² * sin²(θ)) / (2 * g)
+     */
+    public static double maxHeight(double velocity, double angleRadians, double gravity) {
+        double velocityY = velocity * Math.sin(angleRadians);
+        return (velocityY * velocityY) / (2 * gravity);
+    }
+
+    /**
+     * Horizontal range: R = (v₀² * sin(2θ)) / g
+     */
+    public static double range(double velocity, double angleRadians, double gravity) {
+        return (velocity * velocity * Math.sin(2 * angleRadians)) / gravity;
+    }
+
+    /**
+     * Range as a percentage of the maximum possible, v₀² / g, reached at 45 degrees
+     */
+    public static double angleEfficiency(double velocity, double range, double gravity) {
+        return (range / ((velocity * velocity) / gravity)) * 100;
+    }
+}
@@ -1,23 +1,52 @@
+import java.io.PrintStream;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 
 public class ProjectileMotionSimulator {
     
     // Gravitational acceleration constant (m/s²)
-    private static final double GRAVITY = 9.81;
+    private static final double GRAVITY = ProjectileMath.EARTH_GRAVITY;
     
     public static void main(String[] args) {
+        // Batch modes take their parameters from the command line
+        if (args.length > 0 && (args[0].equals("--sweep") || args[0].equals("--trajectories"))) {
+            System.exit(ParameterSweep.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--dump")) {
+            System.exit(TrajectoryFile.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--solve")) {
+            System.exit(TargetSolver.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--montecarlo")) {
+            System.exit(MonteCarlo.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--kernel-check")) {
+            System.exit(BatchKernel.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(LaunchBatch.run(args));
+        }
+        if (args.length > 0 && args[0].equals("--table")) {
+            System.exit(AngleTable.run(args));
+        }
+        
         Scanner scanner = new Scanner(System.in);
         
         System.out.println("===========================================");
         System.out.println("   PROJECTILE MOTION SIMULATOR");
         System.out.println("===========================================\n");
         
+        // The value being read, for the error message if it is not a number
+        String reading = "initial velocity";
         try {
             // Get user input
             System.out.print("Enter initial velocity (m/s): ");
             double velocity = scanner.nextDouble();
             
+            reading = "launch angle";
             System.out.print("Enter launch angle (degrees): ");
             double angleDegrees = scanner.nextDouble();
             
@@ -32,51 +61,81 @@ public class ProjectileMotionSimulator {
                 return;
             }
             
-            // Convert angle to radians
-            double angleRadians = Math.toRadians(angleDegrees);
-            
-            // Calculate velocity components
-            double velocityX = velocity * Math.cos(angleRadians);
-            double velocityY = velocity * Math.sin(angleRadians);
-            
-            // Calculate time of flight
-            // Formula: T = (2 * v₀ * sin(θ)) / g
-            double timeOfFlight = (2 * velocityY) / GRAVITY;
-            
-            // Calculate maximum height
-            // Formula: H = (v₀² * sin²(θ)) / (2 * g)
-            double maxHeight = (velocityY * velocityY) / (2 * GRAVITY);
-            
-            // Calculate horizontal range
-            // Formula: R = (v₀² * sin(2θ)) / g
-            double range = (velocity * velocity * Math.sin(2 * angleRadians)) / GRAVITY;
+            printResults(System.out, velocity, angleDegrees);
             
-            // Display results
-            System.out.println("\n===========================================");
-            System.out.println("   SIMULATION RESULTS");
-            System.out.println("===========================================");
-            System.out.printf("\nInitial Velocity:     %.2f m/s\n", velocity);
-            System.out.printf("Launch Angle:         %.2f degrees\n", angleDegrees);
-            System.out.printf("Horizontal Velocity:  %.2f m/s\n", velocityX);
-            System.out.printf("Vertical Velocity:    %.2f m/s\n", velocityY);
-            System.out.println("\n-------------------------------------------");
-            System.out.printf("Time of Flight:       %.2f seconds\n", timeOfFlight);
-            System.out.printf("Maximum Height:       %.2f meters\n", maxHeight);
-            System.out.printf("Horizontal Range:     %.2f meters\n", range);
-            System.out.println("===========================================\n");
-            
-            // Additional trajectory information
-            System.out.println("TRAJECTORY INFORMATION:");
-            System.out.printf("The projectile will reach maximum height at t = %.2f seconds\n", 
-                            timeOfFlight / 2);
-            System.out.printf("Optimal angle for maximum range: 45 degrees\n");
-            System.out.printf("Your angle efficiency: %.1f%%\n", 
-                            (range / ((velocity * velocity) / GRAVITY)) * 100);
-            
-        } catch (Exception e) {
-            System.out.println("\nError: Invalid input! Please enter numeric values.");
+        } catch (InputMismatchException e) {
+            System.out.println("\nError: Invalid input! The " + reading + " \"" + scanner.next()
+                    + "\" is not a number. Please enter numeric values.");
+        } catch (NoSuchElementException e) {
+            System.out.println("\nError: Input ended before the " + reading + " was entered.");
         } finally {
             scanner.close();
         }
     }
+    
+    /**
+     * Compute one launch and print the full report for it.
+     */
+    static void printResults(PrintStream out, double velocity, double angleDegrees) {
+        // Convert angle to radians
+        double angleRadians = Math.toRadians(angleDegrees);
+        
+        // Calculate velocity components
+        double velocityX = velocity * Math.cos(angleRadians);
+        double velocityY = velocity * Math.sin(angleRadians);
+        
+        // Calculate time of flight
+        // Formula: T = (2 * v₀ * sin(θ)) / g
+        double timeOfFlight = ProjectileMath.timeOfFlight(velocity, angleRadians, GRAVITY);
+        
+        // Calculate maximum height
+        // Formula: H = (v₀² * sin²(θ)) / (2 * g)
+        double maxHeight = ProjectileMath.maxHeight(velocity, angleRadians, GRAVITY);
+        
+        // Calculate horizontal range
+        // Formula: R = (v₀² * sin(2θ)) / g
+        double range = ProjectileMath.range(velocity, angleRadians, GRAVITY);
+        
+        // Display results
+        out.println("\n===========================================");
+        out.println("   SIMULATION RESULTS");
+        out.println("===========================================");
+        out.printf("\nInitial Velocity:     %.2f m/s\n", velocity);
+        out.printf("Launch Angle:         %.2f degrees\n", angleDegrees);
+        out.printf("Horizontal Velocity:  %.2f m/s\n", velocityX);
+        out.printf("Vertical Velocity:    %.2f m/s\n", velocityY);
+        out.println("\n-------------------------------------------");
+        out.printf("Time of Flight:       %.2f seconds\n", timeOfFlight);
+        out.printf("Maximum Height:       %.2f meters\n", maxHeight);
+        out.printf("Horizontal Range:     %.2f meters\n", range);
+        out.println("===========================================\n");
+        
+        // Additional trajectory information
+        out.println("TRAJECTORY INFORMATION:");
+        out.printf("The projectile will reach maximum height at t = %.2f seconds\n", 
+                        timeOfFlight / 2);
+        // Ask the inverse solver how else this range could be reached. An
+        // overflowing range (velocities near 1e154 and up) has no target to
+        // solve for, and near that the solver's own squares overflow; keep
+        // the general hint then.
+        TargetSolver.Solution least = new TargetSolver.Solution();
+        TargetSolver.Solution both = new TargetSolver.Solution();
+        boolean solved = false;
+        if (Double.isFinite(range) && range > 0) {
+            TargetSolver solver = new TargetSolver(FlightModel.VACUUM, null);
+            solver.solve(range, 0, 0, least);
+            solver.solve(range, 0, velocity, both);
+            solved = least.isReachable() && Double.isFinite(least.velocity) && both.isReachable();
+        }
+        if (solved) {
+            out.printf("Optimal angle for this range: %.2f degrees, needing only %.2f m/s\n",
+                            least.lowAngle, least.velocity);
+            out.printf("Angles reaching this range at %.2f m/s: %.2f and %.2f degrees\n",
+                            velocity, both.lowAngle, both.highAngle);
+        } else {
+            out.printf("Optimal angle for maximum range: 45 degrees\n");
+        }
+        out.printf("Your angle efficiency: %.1f%%\n", 
+                        ProjectileMath.angleEfficiency(velocity, range, GRAVITY));
+    }
 }
\ No newline at end of file
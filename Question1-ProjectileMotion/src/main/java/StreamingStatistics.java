@@ -0,0 +1,182 @@
+/**
+ * Summary statistics of a stream of values in constant memory: count,
+ * mean, standard deviation, extremes and a fixed-bin histogram from which
+ * percentiles are estimated.
+ *
+ * The mean and variance are kept with Welford's update, and two
+ * accumulators over the same bins can be merged (Chan et al.), so each
+ * worker can fill its own and the results combined afterwards. Memory is
+ * one long per bin, however many values are added.
+ *
+ * Values outside the histogram's bounds are counted as underflow or
+ * overflow; percentiles that fall among them are interpolated towards
+ * the exact minimum or maximum. Not thread-safe.
+ */
+public final class StreamingStatistics {
+
+    private final double lower;
+    private final double upper;
+    private final double binWidth;
+    private final long[] bins;
+    private long underflow;
+    private long overflow;
+
+    private long count;
+    private double mean;
+    // Sum of squared differences from the mean
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param lower inclusive lower bound of the first bin
+     * @param upper exclusive upper bound of the last bin
+     * @param binCount number of equal-width bins
+     */
+    public StreamingStatistics(double lower, double upper, int binCount) {
+        if (!(upper > lower) || Double.isInfinite(upper - lower)) {
+            throw new IllegalArgumentException("Histogram bounds must be finite with upper > lower");
+        }
+        if (binCount < 1) {
+            throw new IllegalArgumentException("A histogram needs at least one bin");
+        }
+        this.lower = lower;
+        this.upper = upper;
+        this.binWidth = (upper - lower) / binCount;
+        this.bins = new long[binCount];
+    }
+
+    /**
+     * An empty accumulator with the same bins, to fill and merge back
+     */
+    public StreamingStatistics emptyCopy() {
+        return new StreamingStatistics(lower, upper, bins.length);
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        if (value < lower) {
+            underflow++;
+        } else if (value >= upper) {
+            overflow++;
+        } else {
+            // Rounding can put a value just under upper past the last bin
+            bins[Math.min((int) ((value - lower) / binWidth), bins.length - 1)]++;
+        }
+    }
+
+    /**
+     * Add another accumulator's values to this one.
+     *
+     * @throws IllegalArgumentException if the bins differ
+     */
+    public void merge(StreamingStatistics other) {
+        if (other.lower != lower || other.upper != upper || other.bins.length != bins.length) {
+            throw new IllegalArgumentException("Cannot merge histograms with different bins");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        underflow += other.underflow;
+        overflow += other.overflow;
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] += other.bins[i];
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Sample standard deviation
+     */
+    public double getStandardDeviation() {
+        return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1));
+    }
+
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Estimate a percentile by linear interpolation within its bin, so it
+     * is accurate to about one bin width.
+     *
+     * @param percent between 0 and 100
+     */
+    public double percentile(double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double rank = percent / 100 * count;
+        if (rank <= underflow) {
+            return interpolate(min, Math.min(lower, max), rank, underflow);
+        }
+        rank -= underflow;
+        for (int i = 0; i < bins.length; i++) {
+            if (rank <= bins[i]) {
+                double start = lower + i * binWidth;
+                // Clamp to the values seen, which matters for sparse tails
+                return Math.max(min, Math.min(max, interpolate(start, start + binWidth, rank, bins[i])));
+            }
+            rank -= bins[i];
+        }
+        return interpolate(Math.max(upper, min), max, rank, overflow);
+    }
+
+    private static double interpolate(double from, double to, double rank, long count) {
+        return count == 0 ? from : from + (to - from) * (rank / count);
+    }
+
+    public int getBinCount() {
+        return bins.length;
+    }
+
+    public double getBinStart(int bin) {
+        return lower + bin * binWidth;
+    }
+
+    public double getBinWidth() {
+        return binWidth;
+    }
+
+    public long getBin(int bin) {
+        return bins[bin];
+    }
+
+    public long getUnderflow() {
+        return underflow;
+    }
+
+    public long getOverflow() {
+        return overflow;
+    }
+}
@@ -0,0 +1,546 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+
+/**
+ * The inverse problem: the launch angles that put a projectile through a
+ * target at a given velocity, or the least velocity that reaches it.
+ *
+ * Without drag the answers are closed-form. A target x metres away and dy
+ * metres above the launch point is hit at velocity v with
+ * tan(θ) = (v² ± √(v⁴ - g(g·x² + 2·dy·v²))) / (g·x), and the least velocity
+ * that reaches it is v² = g(dy + √(x² + dy²)). This holds for any launch
+ * height, and wind has no effect without drag.
+ *
+ * With drag, {@link TrajectoryIntegrator#heightAt} gives the height at
+ * which the projectile passes the target's distance, as a function of the
+ * angle. It rises to a single peak and falls away on both sides, so once
+ * an angle that clears the target is found, the low angle is bracketed
+ * below it and the high angle above it, and each is closed in on with the
+ * Illinois variant of regula falsi. The least velocity is found the same
+ * way, on the peak clearance as a function of velocity.
+ *
+ * A solver is not thread-safe; {@link #solveAll} solves a batch of
+ * targets in parallel with one solver per task.
+ */
+public final class TargetSolver {
+
+    /**
+     * Answer for one target. Reused between calls.
+     */
+    public static final class Solution {
+
+        // Launch angles in degrees, equal at the least velocity; NaN when out of reach
+        public double lowAngle;
+        public double highAngle;
+        // The velocity given, or the least velocity found; NaN when out of reach
+        public double velocity;
+
+        public boolean isReachable() {
+            return !Double.isNaN(lowAngle);
+        }
+    }
+
+    /**
+     * Targets and their answers as parallel arrays, for {@link #solveAll}.
+     */
+    public static final class Batch {
+
+        public final double[] distance;
+        public final double[] height;
+        // Launch velocity per target, or 0 to find the least velocity
+        public final double[] velocity;
+        public final double[] lowAngle;
+        public final double[] highAngle;
+        public final double[] solvedVelocity;
+
+        public Batch(int size) {
+            distance = new double[size];
+            height = new double[size];
+            velocity = new double[size];
+            lowAngle = new double[size];
+            highAngle = new double[size];
+            solvedVelocity = new double[size];
+        }
+
+        public int size() {
+            return distance.length;
+        }
+    }
+
+    private static final double HALF_PI = Math.PI / 2;
+    // Coarse scan for the peak: angles every 180 / SCAN_STEPS degrees strictly between ±90
+    private static final int SCAN_STEPS = 18;
+    private static final double GOLDEN = (Math.sqrt(5) - 1) / 2;
+    // Angle resolution of the peak search; the clearance there is flat to second order
+    private static final double PEAK_TOLERANCE = 1e-7;
+    private static final double ANGLE_TOLERANCE = 1e-12;
+    private static final double VELOCITY_TOLERANCE = 1e-10;
+    private static final int ROOT_ITERATIONS = 100;
+    // Bracket search for the least velocity, in doublings or halvings of the vacuum answer
+    private static final int VELOCITY_EXPANSIONS = 20;
+    // Targets per task; an integrated target costs some 10,000 times a closed-form one
+    private static final int CLOSED_FORM_GRAIN = 4096;
+    private static final int INTEGRATED_GRAIN = 4;
+
+    private final FlightModel model;
+    private final TrajectoryIntegrator integrator;
+
+    // Clearance at the angle last returned by peakAngle
+    private double peakClearance;
+
+    /**
+     * @param integrator flies the trajectories when the model has drag;
+     *        may be null without drag, where the closed forms are used
+     */
+    public TargetSolver(FlightModel model, TrajectoryIntegrator integrator) {
+        if (model.drag > 0 && integrator == null) {
+            throw new IllegalArgumentException("Solving with drag needs an integrator");
+        }
+        this.model = model;
+        this.integrator = integrator;
+    }
+
+    /**
+     * Solve for one target on or above the ground.
+     *
+     * @param distance horizontal distance from the launch point in m, positive
+     * @param height target height above the ground in m
+     * @param velocity launch velocity in m/s to find the angles for, or 0
+     *        to find the least velocity and its angle
+     * @param out where the answer is written
+     */
+    public void solve(double distance, double height, double velocity, Solution out) {
+        if (!(distance > 0) || distance == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Target distance must be positive");
+        }
+        if (!(height >= 0) || height == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Target height cannot be negative");
+        }
+        if (!(velocity >= 0) || velocity == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("Velocity cannot be negative");
+        }
+        if (model.drag == 0) {
+            if (velocity > 0) {
+                closedFormAngles(distance, height - model.launchHeight, velocity, out);
+            } else {
+                closedFormMinimum(distance, height - model.launchHeight, out);
+            }
+        } else if (velocity > 0) {
+            integratedAngles(distance, height, velocity, out);
+        } else {
+            integratedMinimum(distance, height, out);
+        }
+    }
+
+    /**
+     * Solve every target of a batch, in parallel on the pool.
+     *
+     * @param integrators creates the integrator for each task; may be null without drag
+     */
+    public static void solveAll(FlightModel model, Supplier<TrajectoryIntegrator> integrators, Batch batch,
+            ForkJoinPool pool) {
+        if (model.drag > 0 && integrators == null) {
+            throw new IllegalArgumentException("Solving with drag needs an integrator");
+        }
+        int grain = model.drag == 0 ? CLOSED_FORM_GRAIN : INTEGRATED_GRAIN;
+        pool.invoke(new SolveTask(model, integrators, batch, 0, batch.size(), grain));
+    }
+
+    private void closedFormAngles(double x, double dy, double v, Solution out) {
+        double g = model.gravity;
+        double v2 = v * v;
+        double c = g * x * x + 2 * dy * v2;
+        double discriminant = v2 * v2 - g * c;
+        if (discriminant < 0 && discriminant > -1e-12 * v2 * v2) {
+            // A target at exactly the maximum reach can come out a rounding error beyond it
+            discriminant = 0;
+        }
+        out.velocity = v;
+        if (discriminant < 0) {
+            out.lowAngle = Double.NaN;
+            out.highAngle = Double.NaN;
+            return;
+        }
+        double far = v2 + Math.sqrt(discriminant);
+        out.highAngle = Math.toDegrees(Math.atan(far / (g * x)));
+        // (v² - √D)/(g·x) rewritten as c/(x·(v² + √D)), which does not cancel for low angles
+        out.lowAngle = Math.toDegrees(Math.atan(c / (x * far)));
+    }
+
+    private void closedFormMinimum(double x, double dy, Solution out) {
+        double rise = dy + Math.sqrt(x * x + dy * dy);
+        out.velocity = Math.sqrt(model.gravity * rise);
+        // The best angle halves the angle between the target and the vertical
+        out.lowAngle = Math.toDegrees(Math.atan(rise / x));
+        out.highAngle = out.lowAngle;
+    }
+
+    private void integratedAngles(double x, double height, double v, Solution out) {
+        out.velocity = v;
+        double peak = peakAngle(x, height, v, true);
+        if (peakClearance < 0) {
+            out.lowAngle = Double.NaN;
+            out.highAngle = Double.NaN;
+            return;
+        }
+        double clearance = peakClearance;
+        DoubleUnaryOperator f = angle -> clearance(x, height, v, angle);
+        // Launched straight down or up the projectile only passes the target if the wind carries it there
+        double down = f.applyAsDouble(-HALF_PI);
+        double up = f.applyAsDouble(HALF_PI);
+        out.lowAngle = down >= 0 ? -90 : Math.toDegrees(root(f, -HALF_PI, down, peak, clearance, ANGLE_TOLERANCE));
+        out.highAngle = up >= 0 ? 90 : Math.toDegrees(root(f, peak, clearance, HALF_PI, up, ANGLE_TOLERANCE));
+    }
+
+    private void integratedMinimum(double x, double height, Solution out) {
+        // Start from the vacuum answer: drag raises it, though a tailwind can lower it
+        double dy = height - model.launchHeight;
+        double guess = Math.sqrt(model.gravity * (dy + Math.sqrt(x * x + dy * dy)));
+        DoubleUnaryOperator g = v -> {
+            peakAngle(x, height, v, false);
+            return peakClearance;
+        };
+        double lo = guess;
+        double hi = guess;
+        double gLo = g.applyAsDouble(guess);
+        double gHi = gLo;
+        for (int i = 0; gHi < 0; i++) {
+            if (i == VELOCITY_EXPANSIONS) {
+                out.lowAngle = Double.NaN;
+                out.highAngle = Double.NaN;
+                out.velocity = Double.NaN;
+                return;
+            }
+            lo = hi;
+            gLo = gHi;
+            hi *= 2;
+            gHi = g.applyAsDouble(hi);
+        }
+        for (int i = 0; gLo >= 0 && i < VELOCITY_EXPANSIONS; i++) {
+            hi = lo;
+            gHi = gLo;
+            lo /= 2;
+            gLo = g.applyAsDouble(lo);
+        }
+        double v = gLo >= 0 ? lo : root(g, lo, gLo, hi, gHi, VELOCITY_TOLERANCE * hi);
+        out.velocity = v;
+        out.lowAngle = Math.toDegrees(peakAngle(x, height, v, false));
+        out.highAngle = out.lowAngle;
+    }
+
+    /**
+     * How far above the target the projectile passes its distance, negative when below
+     */
+    private double clearance(double x, double height, double v, double angle) {
+        return integrator.heightAt(model, v, angle, x, height) - height;
+    }
+
+    /**
+     * The angle at which the projectile passes highest over the target,
+     * or, with firstClear, the first angle found that clears it. Leaves
+     * the clearance at that angle in peakClearance.
+     */
+    private double peakAngle(double x, double height, double v, boolean firstClear) {
+        double best = 0;
+        double bestClearance = Double.NEGATIVE_INFINITY;
+        if (firstClear) {
+            // The vacuum's best angle usually clears any reachable target outright
+            double dy = height - model.launchHeight;
+            best = Math.atan((dy + Math.sqrt(x * x + dy * dy)) / x);
+            bestClearance = clearance(x, height, v, best);
+            if (bestClearance >= 0) {
+                peakClearance = bestClearance;
+                return best;
+            }
+        }
+        int bestStep = 0;
+        for (int i = 1; i < SCAN_STEPS; i++) {
+            double angle = -HALF_PI + Math.PI * i / SCAN_STEPS;
+            double clearance = clearance(x, height, v, angle);
+            if (clearance > bestClearance) {
+                best = angle;
+                bestClearance = clearance;
+                bestStep = i;
+                if (firstClear && clearance >= 0) {
+                    peakClearance = clearance;
+                    return angle;
+                }
+            }
+        }
+
+        // Golden-section search between the scanned neighbours of the best angle
+        double lo = bestStep == 0 ? best - Math.PI / SCAN_STEPS : -HALF_PI + Math.PI * (bestStep - 1) / SCAN_STEPS;
+        double hi = bestStep == 0 ? best + Math.PI / SCAN_STEPS : -HALF_PI + Math.PI * (bestStep + 1) / SCAN_STEPS;
+        double c = hi - GOLDEN * (hi - lo);
+        double d = lo + GOLDEN * (hi - lo);
+        double fc = clearance(x, height, v, c);
+        double fd = clearance(x, height, v, d);
+        while (hi - lo > PEAK_TOLERANCE) {
+            if (fc > fd) {
+                hi = d;
+                d = c;
+                fd = fc;
+                c = hi - GOLDEN * (hi - lo);
+                fc = clearance(x, height, v, c);
+            } else {
+                lo = c;
+                c = d;
+                fc = fd;
+                d = lo + GOLDEN * (hi - lo);
+                fd = clearance(x, height, v, d);
+            }
+            double better = Math.max(fc, fd);
+            if (better > bestClearance) {
+                best = fc > fd ? c : d;
+                bestClearance = better;
+                if (firstClear && better >= 0) {
+                    break;
+                }
+            }
+        }
+        peakClearance = bestClearance;
+        return best;
+    }
+
+    /**
+     * A root of f between a and b, where f(a) and f(b) differ in sign,
+     * found with the Illinois variant of regula falsi. Returns the end of
+     * the final bracket where f is positive, so the answer clears the
+     * target rather than falling just short of it.
+     */
+    private static double root(DoubleUnaryOperator f, double a, double fa, double b, double fb, double tolerance) {
+        if (fa == 0) {
+            return a;
+        }
+        if (fb == 0) {
+            return b;
+        }
+        int side = 0;
+        for (int i = 0; i < ROOT_ITERATIONS && Math.abs(b - a) > tolerance; i++) {
+            double c = (a * fb - b * fa) / (fb - fa);
+            if (!(c > Math.min(a, b) && c < Math.max(a, b))) {
+                c = (a + b) / 2;
+            }
+            double fc = f.applyAsDouble(c);
+            if (fc == 0) {
+                return c;
+            }
+            if ((fc > 0) == (fb > 0)) {
+                b = c;
+                fb = fc;
+                if (side == -1) {
+                    fa /= 2;
+                }
+                side = -1;
+            } else {
+                a = c;
+                fa = fc;
+                if (side == 1) {
+                    fb /= 2;
+                }
+                side = 1;
+            }
+        }
+        return fa > 0 ? a : b;
+    }
+
+    /**
+     * Solves a range of a batch, splitting it in half down to the grain.
+     */
+    private static final class SolveTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FlightModel model;
+        private final Supplier<TrajectoryIntegrator> integrators;
+        private final Batch batch;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        SolveTask(FlightModel model, Supplier<TrajectoryIntegrator> integrators, Batch batch, int from, int to,
+                int grain) {
+            this.model = model;
+            this.integrators = integrators;
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grain) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SolveTask(model, integrators, batch, from, middle, grain),
+                        new SolveTask(model, integrators, batch, middle, to, grain));
+                return;
+            }
+            TargetSolver solver = new TargetSolver(model, integrators == null ? null : integrators.get());
+            Solution solution = new Solution();
+            for (int i = from; i < to; i++) {
+                solver.solve(batch.distance[i], batch.height[i], batch.velocity[i], solution);
+                batch.lowAngle[i] = solution.lowAngle;
+                batch.highAngle[i] = solution.highAngle;
+                batch.solvedVelocity[i] = solution.velocity;
+            }
+        }
+    }
+
+    /**
+     * Command line: --solve DISTANCE HEIGHT [VELOCITY] [--out FILE] [--threads N] [--gravity G]
+     * [--drag K] [--wind W] [--height H] [--method rk4|dopri] [--dt S] [--tol E]
+     *
+     * Each of DISTANCE, HEIGHT and VELOCITY is a single value or
+     * first:last:steps, and every combination is solved as one batch.
+     * Without VELOCITY, or where it is 0, the least velocity is found.
+     * Results go to FILE, or to standard output, as CSV.
+     */
+    static int run(String[] args) {
+        String usage = "Usage: ProjectileMotionSimulator --solve DISTANCE HEIGHT [VELOCITY] [--out FILE] "
+                + "[--threads N] [--gravity G]\n"
+                + "         [--drag K] [--wind W] [--height H] [--method rk4|dopri] [--dt S] [--tol E]\n"
+                + "  each is a value or first:last:steps; without VELOCITY the least velocity is found";
+        String out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double gravity = ProjectileMath.EARTH_GRAVITY;
+        double drag = 0;
+        double wind = 0;
+        double launchHeight = 0;
+        String method = null;
+        double dt = 0;
+        double tolerance = 1e-9;
+        List<String> axes = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        out = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--gravity":
+                        gravity = Double.parseDouble(args[++i]);
+                        break;
+                    case "--drag":
+                        drag = Double.parseDouble(args[++i]);
+                        break;
+                    case "--wind":
+                        wind = Double.parseDouble(args[++i]);
+                        break;
+                    case "--height":
+                        launchHeight = Double.parseDouble(args[++i]);
+                        break;
+                    case "--method":
+                        method = args[++i];
+                        break;
+                    case "--dt":
+                        dt = Double.parseDouble(args[++i]);
+                        break;
+                    case "--tol":
+                        tolerance = Double.parseDouble(args[++i]);
+                        break;
+                    default:
+                        axes.add(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(usage);
+            return 2;
+        }
+        if (axes.size() < 2 || axes.size() > 3) {
+            System.err.println(usage);
+            return 2;
+        }
+
+        ForkJoinPool pool = null;
+        try {
+            ParameterSweep.Axis distance = ParameterSweep.Axis.parse(axes.get(0));
+            ParameterSweep.Axis height = ParameterSweep.Axis.parse(axes.get(1));
+            ParameterSweep.Axis velocity = axes.size() == 3 ? ParameterSweep.Axis.parse(axes.get(2))
+                    : new ParameterSweep.Axis(0);
+            if (!(distance.min() > 0)) {
+                throw new IllegalArgumentException("Target distance must be positive");
+            }
+            if (height.min() < 0) {
+                throw new IllegalArgumentException("Target height cannot be negative");
+            }
+            if (velocity.min() < 0) {
+                throw new IllegalArgumentException("Velocity cannot be negative");
+            }
+            long size = (long) distance.steps * height.steps * velocity.steps;
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many targets for one batch: " + size);
+            }
+            FlightModel model = new FlightModel(gravity, drag, wind, launchHeight);
+            // Without drag the closed forms are exact, whatever the launch height
+            Supplier<TrajectoryIntegrator> integrators = drag == 0 ? null
+                    : ParameterSweep.integrators(method == null ? "dopri" : method, model, dt, tolerance);
+
+            // Distance slowest, velocity fastest, as in the sweep
+            Batch batch = new Batch((int) size);
+            int index = 0;
+            for (int d = 0; d < distance.steps; d++) {
+                for (int h = 0; h < height.steps; h++) {
+                    for (int v = 0; v < velocity.steps; v++) {
+                        batch.distance[index] = distance.value(d);
+                        batch.height[index] = height.value(h);
+                        batch.velocity[index] = velocity.value(v);
+                        index++;
+                    }
+                }
+            }
+
+            pool = new ForkJoinPool(Math.max(1, threads));
+            long start = System.nanoTime();
+            solveAll(model, integrators, batch, pool);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            int reachable = 0;
+            try (Writer writer = new BufferedWriter(out == null
+                    ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                    : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8), 1 << 16)) {
+                writer.write("distance,height,velocity,low_angle,high_angle\n");
+                StringBuilder line = new StringBuilder(128);
+                for (int i = 0; i < batch.size(); i++) {
+                    line.setLength(0);
+                    line.append(batch.distance[i]).append(',')
+                            .append(batch.height[i]).append(',')
+                            .append(batch.solvedVelocity[i]).append(',')
+                            .append(batch.lowAngle[i]).append(',')
+                            .append(batch.highAngle[i]).append('\n');
+                    writer.append(line);
+                    if (!Double.isNaN(batch.lowAngle[i])) {
+                        reachable++;
+                    }
+                }
+            }
+            System.err.printf("Solved %d targets (%d reachable) in %.2f s (%.0f targets/s, %d threads)%n",
+                    batch.size(), reachable, seconds, batch.size() / seconds, pool.getParallelism());
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            return 1;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Compact binary file of sampled trajectories, written through a
+ * {@link FileChannel} and read back through memory-mapped buffers.
+ *
+ * All values are little-endian. The file starts with a 16-byte header:
+ * the magic "TRAJ", the format version, the number of columns (5) and a
+ * reserved int. Each trajectory follows as one record:
+ * <pre>
+ * long   grid index
+ * double velocity (m/s), angle (degrees), gravity (m/s²)
+ * int    point count n
+ * int    reserved, keeps the columns 8-byte aligned
+ * double t[n], x[n], y[n], vx[n], vy[n]
+ * </pre>
+ * Each column is stored contiguously, so a reader can view it as a
+ * {@link DoubleBuffer} straight over the mapped file without parsing or
+ * copying anything.
+ */
+public final class TrajectoryFile {
+
+    public enum Column {
+        T, X, Y, VX, VY
+    }
+
+    static final int MAGIC = 0x4A415254;  // "TRAJ" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 40;
+
+    private TrajectoryFile() {
+    }
+
+    /**
+     * Writes the trajectories of each block as records. Pass it to
+     * {@link ParameterSweep#run} for a sweep with a sample interval.
+     */
+    public static final class BinarySink implements ParameterSweep.Sink, Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long trajectories;
+        private long points;
+
+        public BinarySink(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(Column.values().length).putInt(0);
+        }
+
+        @Override
+        public void accept(ParameterSweep.Block block) throws IOException {
+            TrajectorySamples samples = block.samples;
+            for (int i = 0; i < samples.trajectories(); i++) {
+                int start = samples.start(i);
+                int end = samples.end(i);
+                if (buffer.remaining() < RECORD_HEADER_BYTES) {
+                    flush();
+                }
+                buffer.putLong(block.first + i)
+                        .putDouble(block.velocity[i])
+                        .putDouble(block.angleDegrees[i])
+                        .putDouble(block.gravity[i])
+                        .putInt(end - start)
+                        .putInt(0);
+                putColumn(samples.t, start, end);
+                putColumn(samples.x, start, end);
+                putColumn(samples.y, start, end);
+                putColumn(samples.vx, start, end);
+                putColumn(samples.vy, start, end);
+                trajectories++;
+                points += end - start;
+            }
+        }
+
+        public long getTrajectories() {
+            return trajectories;
+        }
+
+        public long getPoints() {
+            return points;
+        }
+
+        private void putColumn(double[] column, int start, int end) throws IOException {
+            int i = start;
+            while (i < end) {
+                int n = Math.min(end - i, buffer.remaining() / Double.BYTES);
+                if (n == 0) {
+                    flush();
+                    continue;
+                }
+                for (int last = i + n; i < last; i++) {
+                    buffer.putDouble(column[i]);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a file record by record. Each record's columns are views over
+     * the mapped file, valid until the next call to {@link #next()}.
+     */
+    public static final class Reader implements Closeable {
+
+        // Mapped a window at a time, so files larger than 2 GB can be read
+        private static final long WINDOW_BYTES = 256L << 20;
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long position = HEADER_BYTES;
+
+        private long index;
+        private double velocity;
+        private double angle;
+        private double gravity;
+        private int count;
+        private final DoubleBuffer[] columns = new DoubleBuffer[Column.values().length];
+
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                fileSize = channel.size();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // Read the whole header
+                }
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                    throw new IOException("Not a trajectory file: " + path);
+                }
+                int version = header.getInt();
+                if (version != VERSION || header.getInt() != Column.values().length) {
+                    throw new IOException("Unsupported trajectory file version " + version + ": " + path);
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Move to the next record.
+         *
+         * @return false at the end of the file
+         * @throws IOException if the file ends inside a record
+         */
+        public boolean next() throws IOException {
+            if (position == fileSize) {
+                return false;
+            }
+            ByteBuffer record = map(position, RECORD_HEADER_BYTES);
+            index = record.getLong();
+            velocity = record.getDouble();
+            angle = record.getDouble();
+            gravity = record.getDouble();
+            count = record.getInt();
+            if (count < 0) {
+                throw new IOException("Corrupt record at byte " + position);
+            }
+            long columnBytes = (long) count * Double.BYTES;
+            ByteBuffer data = map(position + RECORD_HEADER_BYTES, columnBytes * columns.length);
+            for (int c = 0; c < columns.length; c++) {
+                data.limit((int) (data.position() + columnBytes));
+                columns[c] = data.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                data.position(data.limit());
+            }
+            position += RECORD_HEADER_BYTES + columnBytes * columns.length;
+            return true;
+        }
+
+        public long index() {
+            return index;
+        }
+
+        public double velocity() {
+            return velocity;
+        }
+
+        public double angle() {
+            return angle;
+        }
+
+        public double gravity() {
+            return gravity;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public DoubleBuffer column(Column column) {
+            return columns[column.ordinal()].duplicate();
+        }
+
+        /**
+         * A little-endian view of length bytes at a file offset, remapping
+         * the window when the range falls outside it.
+         */
+        private ByteBuffer map(long offset, long length) throws IOException {
+            if (offset + length > fileSize) {
+                throw new IOException("Truncated trajectory file at byte " + offset);
+            }
+            if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+                long size = Math.max(length, Math.min(WINDOW_BYTES, fileSize - offset));
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("Record too large to map at byte " + offset);
+                }
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                windowStart = offset;
+            }
+            ByteBuffer view = window.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            view.position((int) (offset - windowStart));
+            view.limit((int) (offset - windowStart + length));
+            return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the trajectories of each block as CSV, one row per point.
+     */
+    static final class CsvSink implements ParameterSweep.Sink {
+
+        private final Writer out;
+        private long points;
+
+        CsvSink(Writer out) throws IOException {
+            this.out = out;
+            out.write("index,velocity,angle,gravity,t,x,y,vx,vy\n");
+        }
+
+        @Override
+        public void accept(ParameterSweep.Block block) throws IOException {
+            TrajectorySamples samples = block.samples;
+            StringBuilder line = new StringBuilder(160);
+            for (int i = 0; i < samples.trajectories(); i++) {
+                for (int p = samples.start(i); p < samples.end(i); p++) {
+                    line.setLength(0);
+                    line.append(block.first + i).append(',')
+                            .append(block.velocity[i]).append(',')
+                            .append(block.angleDegrees[i]).append(',')
+                            .append(block.gravity[i]).append(',')
+                            .append(samples.t(p)).append(',')
+                            .append(samples.x(p)).append(',')
+                            .append(samples.y(p)).append(',')
+                            .append(samples.vx(p)).append(',')
+                            .append(samples.vy(p)).append('\n');
+                    out.append(line);
+                }
+                points += samples.end(i) - samples.start(i);
+            }
+        }
+
+        long getPoints() {
+            return points;
+        }
+    }
+
+    /**
+     * Command line: --dump FILE [--out CSV]. Converts a binary trajectory
+     * file to CSV.
+     */
+    static int run(String[] args) {
+        if (args.length != 2 && !(args.length == 4 && args[2].equals("--out"))) {
+            System.err.println("Usage: ProjectileMotionSimulator --dump FILE [--out CSV]");
+            return 2;
+        }
+        long start = System.nanoTime();
+        long points = 0;
+        try (Reader reader = new Reader(Paths.get(args[1]));
+                Writer out = new BufferedWriter(args.length == 4
+                        ? Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.UTF_8)
+                        : new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            out.write("index,velocity,angle,gravity,t,x,y,vx,vy\n");
+            StringBuilder line = new StringBuilder(160);
+            while (reader.next()) {
+                DoubleBuffer t = reader.column(Column.T);
+                DoubleBuffer x = reader.column(Column.X);
+                DoubleBuffer y = reader.column(Column.Y);
+                DoubleBuffer vx = reader.column(Column.VX);
+                DoubleBuffer vy = reader.column(Column.VY);
+                for (int p = 0; p < reader.size(); p++) {
+                    line.setLength(0);
+                    line.append(reader.index()).append(',')
+                            .append(reader.velocity()).append(',')
+                            .append(reader.angle()).append(',')
+                            .append(reader.gravity()).append(',')
+                            .append(t.get(p)).append(',')
+                            .append(x.get(p)).append(',')
+                            .append(y.get(p)).append(',')
+                            .append(vx.get(p)).append(',')
+                            .append(vy.get(p)).append('\n');
+                    out.append(line);
+                }
+                points += reader.size();
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        System.err.printf("Dumped %d points in %.2f s%n", points, (System.nanoTime() - start) / 1e9);
+        return 0;
+    }
+}
@@ -0,0 +1,502 @@
+/**
+ * Time-stepping solver for a projectile under gravity, quadratic drag and
+ * wind, launched from a height over level ground.
+ *
+ * Two methods are available: classic fourth-order Runge-Kutta with a
+ * fixed step, and the adaptive Dormand-Prince 5(4) pair, which picks its
+ * own steps to stay within a tolerance. Within each step the position is
+ * interpolated with a quintic Hermite polynomial, matching position,
+ * velocity and acceleration at both ends, to find the apex, where the
+ * vertical velocity crosses zero, and the impact, where the height
+ * crosses zero. Neither depends on the step size being small.
+ *
+ * The state is held in primitive fields and locals, so integrating a
+ * trajectory allocates nothing. A {@link SampleSink} can be given to
+ * receive the trajectory at a fixed time interval, interpolated the same
+ * way, and {@link #heightAt} finds where the trajectory passes a given
+ * distance, for aiming at a target. An instance is not thread-safe; use one
+ * per thread and reuse it, together with its {@link Result}.
+ */
+public final class TrajectoryIntegrator {
+
+    public enum Method {
+        RK4, DORMAND_PRINCE
+    }
+
+    /**
+     * Receives a trajectory's sampled points in time order, ending with
+     * the impact point.
+     */
+    public interface SampleSink {
+        void sample(double t, double x, double y, double vx, double vy);
+    }
+
+    /**
+     * Outcome of one trajectory. Reused between calls.
+     */
+    public static final class Result {
+
+        public double timeOfFlight;
+        public double range;
+        public double maxHeight;
+        public double apexTime;
+        public double impactVelocityX;
+        public double impactVelocityY;
+        // Accepted steps
+        public int steps;
+    }
+
+    // Guards against settings that would never reach the ground
+    private static final int MAX_STEPS = 10_000_000;
+    private static final double MIN_STEP = 1e-12;
+    // Root search limit; each iteration at least narrows the bracket
+    private static final int ROOT_ITERATIONS = 52;
+
+    // Dormand-Prince 5(4) tableau
+    private static final double A21 = 1.0 / 5;
+    private static final double A31 = 3.0 / 40, A32 = 9.0 / 40;
+    private static final double A41 = 44.0 / 45, A42 = -56.0 / 15, A43 = 32.0 / 9;
+    private static final double A51 = 19372.0 / 6561, A52 = -25360.0 / 2187, A53 = 64448.0 / 6561,
+            A54 = -212.0 / 729;
+    private static final double A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247,
+            A64 = 49.0 / 176, A65 = -5103.0 / 18656;
+    private static final double B1 = 35.0 / 384, B3 = 500.0 / 1113, B4 = 125.0 / 192,
+            B5 = -2187.0 / 6784, B6 = 11.0 / 84;
+    // Fifth-order minus fourth-order weights, for the error estimate
+    private static final double E1 = 71.0 / 57600, E3 = -71.0 / 16695, E4 = 71.0 / 1920,
+            E5 = -17253.0 / 339200, E6 = 22.0 / 525, E7 = -1.0 / 40;
+
+    private final Method method;
+    private final double step;
+    private final double tolerance;
+
+    // Model of the trajectory being integrated
+    private double gravity;
+    private double drag;
+    private double wind;
+
+    // State at the start of the current step
+    private double t;
+    private double x;
+    private double y;
+    private double vx;
+    private double vy;
+    private double ax;
+    private double ay;
+
+    // State at the end of the current step
+    private double nextT;
+    private double nextX;
+    private double nextY;
+    private double nextVx;
+    private double nextVy;
+    private double nextAx;
+    private double nextAy;
+
+    /**
+     * @param step the fixed step for RK4, or the first step tried by
+     *        Dormand-Prince, in seconds; 0 lets Dormand-Prince choose
+     * @param tolerance Dormand-Prince error tolerance per step, used as
+     *        both the absolute and the relative tolerance; ignored by RK4
+     */
+    public TrajectoryIntegrator(Method method, double step, double tolerance) {
+        if (method == Method.RK4 && !(step > 0)) {
+            throw new IllegalArgumentException("RK4 needs a positive step");
+        }
+        if (method == Method.DORMAND_PRINCE && !(tolerance > 0)) {
+            throw new IllegalArgumentException("Dormand-Prince needs a positive tolerance");
+        }
+        this.method = method;
+        this.step = step;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Fly one projectile until it lands.
+     *
+     * @param angleRadians launch angle above the horizontal
+     * @param out where the outcome is written
+     */
+    public void integrate(FlightModel model, double velocity, double angleRadians, Result out) {
+        integrate(model, velocity, angleRadians, out, 0, null);
+    }
+
+    /**
+     * Fly one projectile until it lands, passing its position and
+     * velocity to the sink at t = 0, interval, 2·interval, ... and at impact.
+     *
+     * @param interval time between samples, in seconds
+     * @param sink receives the samples, or null for none
+     */
+    public void integrate(FlightModel model, double velocity, double angleRadians, Result out,
+            double interval, SampleSink sink) {
+        if (sink != null && !(interval > 0)) {
+            throw new IllegalArgumentException("Sample interval must be positive");
+        }
+        launch(model, velocity, angleRadians);
+
+        out.steps = 0;
+        out.maxHeight = y;
+        out.apexTime = 0;
+        if (y <= 0 && vy <= 0) {
+            land(out, 0, 0);
+            if (sink != null) {
+                sink.sample(0, x, y, vx, vy);
+            }
+            return;
+        }
+        // Sample times are counted, not accumulated, so they do not drift
+        long samples = 0;
+        // Launched level or downwards, the apex is the launch point
+        boolean apexFound = vy <= 0;
+        double h = firstStep(velocity);
+
+        while (true) {
+            if (out.steps == MAX_STEPS) {
+                throw new IllegalStateException("Projectile did not land within " + MAX_STEPS + " steps");
+            }
+            h = advance(h);
+            out.steps++;
+            double dt = nextT - t;
+            if (!apexFound && nextVy <= 0) {
+                double s = crossing(true, y, nextY, vy, nextVy, ay, nextAy, dt);
+                out.apexTime = t + s * dt;
+                out.maxHeight = Math.max(out.maxHeight, position(s, y, nextY, vy, nextVy, ay, nextAy, dt));
+                apexFound = true;
+            }
+            boolean landed = nextY <= 0;
+            if (landed) {
+                land(out, crossing(false, y, nextY, vy, nextVy, ay, nextAy, dt), dt);
+            }
+            if (sink != null) {
+                double end = landed ? out.timeOfFlight : nextT;
+                for (double ts = samples * interval; ts < end; ts = ++samples * interval) {
+                    double s = (ts - t) / dt;
+                    sink.sample(ts, position(s, x, nextX, vx, nextVx, ax, nextAx, dt),
+                            position(s, y, nextY, vy, nextVy, ay, nextAy, dt),
+                            velocity(s, x, nextX, vx, nextVx, ax, nextAx, dt),
+                            velocity(s, y, nextY, vy, nextVy, ay, nextAy, dt));
+                }
+                if (landed) {
+                    sink.sample(out.timeOfFlight, out.range, 0, out.impactVelocityX, out.impactVelocityY);
+                }
+            }
+            if (landed) {
+                return;
+            }
+            endStep();
+        }
+    }
+
+    /**
+     * Height at which a projectile passes a horizontal distance from the
+     * launch point, flying on through the ground if need be. Once it is
+     * descending below floor it cannot climb back, so the flight stops
+     * there and the height is extrapolated along its velocity instead:
+     * still below floor, and lower the further it falls short. A
+     * projectile blown back before it gets there gives negative infinity.
+     *
+     * @param distance horizontal distance in m, positive
+     */
+    public double heightAt(FlightModel model, double velocity, double angleRadians, double distance,
+            double floor) {
+        launch(model, velocity, angleRadians);
+        double h = firstStep(velocity);
+        for (int steps = 0; ; steps++) {
+            if (vy <= 0 && y < floor) {
+                return vx > 0 ? y + vy / vx * (distance - x) : Double.NEGATIVE_INFINITY;
+            }
+            if (steps == MAX_STEPS) {
+                throw new IllegalStateException("Projectile did not pass " + distance + " m within "
+                        + MAX_STEPS + " steps");
+            }
+            h = advance(h);
+            if (nextX >= distance) {
+                // The distance is crossed by the remaining distance going from positive to zero
+                double dt = nextT - t;
+                double s = crossing(false, distance - x, distance - nextX, -vx, -nextVx, -ax, -nextAx, dt);
+                return position(s, y, nextY, vy, nextVy, ay, nextAy, dt);
+            }
+            endStep();
+        }
+    }
+
+    /**
+     * Set up the model and the state at launch.
+     */
+    private void launch(FlightModel model, double velocity, double angleRadians) {
+        gravity = model.gravity;
+        drag = model.drag;
+        wind = model.wind;
+        t = 0;
+        x = 0;
+        y = model.launchHeight;
+        vx = velocity * Math.cos(angleRadians);
+        vy = velocity * Math.sin(angleRadians);
+        double f = dragFactor(vx, vy);
+        ax = -f * (vx - wind);
+        ay = -gravity - f * vy;
+    }
+
+    private double firstStep(double velocity) {
+        return method == Method.RK4 ? step
+                : step > 0 ? step : 0.01 * Math.max(velocity, 1) / gravity;
+    }
+
+    /**
+     * Take one step from the current state into the next-state fields.
+     *
+     * @return the step size to try next
+     */
+    private double advance(double h) {
+        if (method == Method.RK4) {
+            rk4Step(h);
+            return h;
+        }
+        return adaptiveStep(h);
+    }
+
+    /**
+     * Make the end of the step the current state.
+     */
+    private void endStep() {
+        t = nextT;
+        x = nextX;
+        y = nextY;
+        vx = nextVx;
+        vy = nextVy;
+        ax = nextAx;
+        ay = nextAy;
+    }
+
+    /**
+     * Record the impact at fraction s of the current step.
+     */
+    private void land(Result out, double s, double dt) {
+        if (dt == 0) {
+            out.timeOfFlight = t;
+            out.range = x;
+            out.impactVelocityX = vx;
+            out.impactVelocityY = vy;
+            return;
+        }
+        out.timeOfFlight = t + s * dt;
+        out.range = position(s, x, nextX, vx, nextVx, ax, nextAx, dt);
+        out.impactVelocityX = velocity(s, x, nextX, vx, nextVx, ax, nextAx, dt);
+        out.impactVelocityY = velocity(s, y, nextY, vy, nextVy, ay, nextAy, dt);
+    }
+
+    /**
+     * k·|v - w|, the drag deceleration per unit of air speed
+     */
+    private double dragFactor(double velocityX, double velocityY) {
+        if (drag == 0) {
+            return 0;
+        }
+        double airX = velocityX - wind;
+        return drag * Math.sqrt(airX * airX + velocityY * velocityY);
+    }
+
+    /**
+     * One classic Runge-Kutta step. The acceleration depends only on the
+     * velocity, so the position stages are the velocity stages.
+     */
+    private void rk4Step(double h) {
+        double half = h / 2;
+
+        double v2x = vx + half * ax;
+        double v2y = vy + half * ay;
+        double f2 = dragFactor(v2x, v2y);
+        double a2x = -f2 * (v2x - wind);
+        double a2y = -gravity - f2 * v2y;
+
+        double v3x = vx + half * a2x;
+        double v3y = vy + half * a2y;
+        double f3 = dragFactor(v3x, v3y);
+        double a3x = -f3 * (v3x - wind);
+        double a3y = -gravity - f3 * v3y;
+
+        double v4x = vx + h * a3x;
+        double v4y = vy + h * a3y;
+        double f4 = dragFactor(v4x, v4y);
+        double a4x = -f4 * (v4x - wind);
+        double a4y = -gravity - f4 * v4y;
+
+        double sixth = h / 6;
+        nextT = t + h;
+        nextX = x + sixth * (vx + 2 * v2x + 2 * v3x + v4x);
+        nextY = y + sixth * (vy + 2 * v2y + 2 * v3y + v4y);
+        nextVx = vx + sixth * (ax + 2 * a2x + 2 * a3x + a4x);
+        nextVy = vy + sixth * (ay + 2 * a2y + 2 * a3y + a4y);
+        double f = dragFactor(nextVx, nextVy);
+        nextAx = -f * (nextVx - wind);
+        nextAy = -gravity - f * nextVy;
+    }
+
+    /**
+     * Take one Dormand-Prince step, shrinking it until the error estimate
+     * is within tolerance.
+     *
+     * @return the step size to try next
+     */
+    private double adaptiveStep(double h) {
+        while (true) {
+            if (h < MIN_STEP) {
+                throw new IllegalStateException("Step size underflow at t = " + t);
+            }
+
+            double v2x = vx + h * (A21 * ax);
+            double v2y = vy + h * (A21 * ay);
+            double f = dragFactor(v2x, v2y);
+            double a2x = -f * (v2x - wind);
+            double a2y = -gravity - f * v2y;
+
+            double v3x = vx + h * (A31 * ax + A32 * a2x);
+            double v3y = vy + h * (A31 * ay + A32 * a2y);
+            f = dragFactor(v3x, v3y);
+            double a3x = -f * (v3x - wind);
+            double a3y = -gravity - f * v3y;
+
+            double v4x = vx + h * (A41 * ax + A42 * a2x + A43 * a3x);
+            double v4y = vy + h * (A41 * ay + A42 * a2y + A43 * a3y);
+            f = dragFactor(v4x, v4y);
+            double a4x = -f * (v4x - wind);
+            double a4y = -gravity - f * v4y;
+
+            double v5x = vx + h * (A51 * ax + A52 * a2x + A53 * a3x + A54 * a4x);
+            double v5y = vy + h * (A51 * ay + A52 * a2y + A53 * a3y + A54 * a4y);
+            f = dragFactor(v5x, v5y);
+            double a5x = -f * (v5x - wind);
+            double a5y = -gravity - f * v5y;
+
+            double v6x = vx + h * (A61 * ax + A62 * a2x + A63 * a3x + A64 * a4x + A65 * a5x);
+            double v6y = vy + h * (A61 * ay + A62 * a2y + A63 * a3y + A64 * a4y + A65 * a5y);
+            f = dragFactor(v6x, v6y);
+            double a6x = -f * (v6x - wind);
+            double a6y = -gravity - f * v6y;
+
+            // The seventh stage is the new state, whose acceleration starts the next step
+            double v7x = vx + h * (B1 * ax + B3 * a3x + B4 * a4x + B5 * a5x + B6 * a6x);
+            double v7y = vy + h * (B1 * ay + B3 * a3y + B4 * a4y + B5 * a5y + B6 * a6y);
+            f = dragFactor(v7x, v7y);
+            double a7x = -f * (v7x - wind);
+            double a7y = -gravity - f * v7y;
+
+            double newX = x + h * (B1 * vx + B3 * v3x + B4 * v4x + B5 * v5x + B6 * v6x);
+            double newY = y + h * (B1 * vy + B3 * v3y + B4 * v4y + B5 * v5y + B6 * v6y);
+
+            double errX = h * (E1 * vx + E3 * v3x + E4 * v4x + E5 * v5x + E6 * v6x + E7 * v7x);
+            double errY = h * (E1 * vy + E3 * v3y + E4 * v4y + E5 * v5y + E6 * v6y + E7 * v7y);
+            double errVx = h * (E1 * ax + E3 * a3x + E4 * a4x + E5 * a5x + E6 * a6x + E7 * a7x);
+            double errVy = h * (E1 * ay + E3 * a3y + E4 * a4y + E5 * a5y + E6 * a6y + E7 * a7y);
+            double error = Math.sqrt((scaled(errX, x, newX) + scaled(errY, y, newY)
+                    + scaled(errVx, vx, v7x) + scaled(errVy, vy, v7y)) / 4);
+
+            // Standard controller: aim for 0.9 of the tolerance, change the step at most 5x
+            double factor = error == 0 ? 5 : Math.min(5, Math.max(0.2, 0.9 * Math.pow(error, -0.2)));
+            if (error <= 1) {
+                nextT = t + h;
+                nextX = newX;
+                nextY = newY;
+                nextVx = v7x;
+                nextVy = v7y;
+                nextAx = a7x;
+                nextAy = a7y;
+                return h * factor;
+            }
+            h *= factor;
+        }
+    }
+
+    /**
+     * Squared error relative to the tolerance for one component
+     */
+    private double scaled(double error, double before, double after) {
+        double ratio = error / (tolerance + tolerance * Math.max(Math.abs(before), Math.abs(after)));
+        return ratio * ratio;
+    }
+
+    /**
+     * Quintic Hermite interpolation of a position at fraction s of a step
+     * of length dt, from the position p, velocity v and acceleration a at
+     * each end.
+     */
+    static double position(double s, double p0, double p1, double v0, double v1, double a0, double a1,
+            double dt) {
+        double s2 = s * s;
+        double s3 = s2 * s;
+        double s4 = s3 * s;
+        double s5 = s4 * s;
+        return (1 - 10 * s3 + 15 * s4 - 6 * s5) * p0
+                + (s - 6 * s3 + 8 * s4 - 3 * s5) * dt * v0
+                + (0.5 * s2 - 1.5 * s3 + 1.5 * s4 - 0.5 * s5) * dt * dt * a0
+                + (0.5 * s3 - s4 + 0.5 * s5) * dt * dt * a1
+                + (-4 * s3 + 7 * s4 - 3 * s5) * dt * v1
+                + (10 * s3 - 15 * s4 + 6 * s5) * p1;
+    }
+
+    /**
+     * Time derivative of {@link #position}, the interpolated velocity
+     */
+    static double velocity(double s, double p0, double p1, double v0, double v1, double a0, double a1,
+            double dt) {
+        double s2 = s * s;
+        double s3 = s2 * s;
+        double s4 = s3 * s;
+        return (-30 * s2 + 60 * s3 - 30 * s4) * (p0 - p1) / dt
+                + (1 - 18 * s2 + 32 * s3 - 15 * s4) * v0
+                + (s - 4.5 * s2 + 6 * s3 - 2.5 * s4) * dt * a0
+                + (1.5 * s2 - 4 * s3 + 2.5 * s4) * dt * a1
+                + (-12 * s2 + 28 * s3 - 15 * s4) * v1;
+    }
+
+    /**
+     * Fraction of the step where the interpolated position, or velocity,
+     * goes from positive to zero or below. The value must be positive at
+     * the start of the step, or zero with a positive slope, and at most
+     * zero at its end.
+     */
+    static double crossing(boolean ofVelocity, double p0, double p1, double v0, double v1, double a0, double a1,
+            double dt) {
+        // Illinois variant of regula falsi: superlinear on smooth curves, never leaves the bracket
+        double lo = 0;
+        double hi = 1;
+        double fLo = ofVelocity ? v0 : p0;
+        double fHi = ofVelocity ? v1 : p1;
+        if (fLo <= 0) {
+            // Starts on the ground going up: move off the endpoint
+            lo = 0x1p-40;
+            fLo = ofVelocity ? velocity(lo, p0, p1, v0, v1, a0, a1, dt) : position(lo, p0, p1, v0, v1, a0, a1, dt);
+        }
+        if (fHi == 0) {
+            return 1;
+        }
+        int side = 0;
+        for (int i = 0; i < ROOT_ITERATIONS && hi - lo > 0x1p-52; i++) {
+            double mid = (lo * fHi - hi * fLo) / (fHi - fLo);
+            if (!(mid > lo && mid < hi)) {
+                mid = (lo + hi) / 2;
+            }
+            double value = ofVelocity ? velocity(mid, p0, p1, v0, v1, a0, a1, dt)
+                    : position(mid, p0, p1, v0, v1, a0, a1, dt);
+            if (value > 0) {
+                lo = mid;
+                fLo = value;
+                if (side == -1) {
+                    fHi /= 2;
+                }
+                side = -1;
+            } else if (value < 0) {
+                hi = mid;
+                fHi = value;
+                if (side == 1) {
+                    fLo /= 2;
+                }
+                side = 1;
+            } else {
+                return mid;
+            }
+        }
+        return (lo + hi) / 2;
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.Arrays;
+
+
+/**
+ * Sampled points of a run of trajectories, as parallel columns.
+ *
+ * Points of trajectory i are at indexes start(i) to end(i) - 1. The
+ * columns grow as needed and keep their capacity when cleared, so a
+ * buffer reused for block after block stops allocating once it has seen
+ * the longest block.
+ */
+public final class TrajectorySamples implements TrajectoryIntegrator.SampleSink {
+
+    double[] t = new double[1024];
+    double[] x = new double[1024];
+    double[] y = new double[1024];
+    double[] vx = new double[1024];
+    double[] vy = new double[1024];
+    private int size;
+
+    // ends[i] is one past the last point of trajectory i
+    private int[] ends = new int[64];
+    private int trajectories;
+
+    @Override
+    public void sample(double time, double positionX, double positionY, double velocityX, double velocityY) {
+        if (size == t.length) {
+            int capacity = size * 2;
+            t = Arrays.copyOf(t, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            vx = Arrays.copyOf(vx, capacity);
+            vy = Arrays.copyOf(vy, capacity);
+        }
+        t[size] = time;
+        x[size] = positionX;
+        y[size] = positionY;
+        vx[size] = velocityX;
+        vy[size] = velocityY;
+        size++;
+    }
+
+    /**
+     * Close the current trajectory; later samples start the next one.
+     */
+    public void endTrajectory() {
+        if (trajectories == ends.length) {
+            ends = Arrays.copyOf(ends, trajectories * 2);
+        }
+        ends[trajectories++] = size;
+    }
+
+    public void clear() {
+        size = 0;
+        trajectories = 0;
+    }
+
+    public int trajectories() {
+        return trajectories;
+    }
+
+    public int start(int trajectory) {
+        return trajectory == 0 ? 0 : ends[trajectory - 1];
+    }
+
+    public int end(int trajectory) {
+        return ends[trajectory];
+    }
+
+    public double t(int point) {
+        return t[point];
+    }
+
+    public double x(int point) {
+        return x[point];
+    }
+
+    public double y(int point) {
+        return y[point];
+    }
+
+    public double vx(int point) {
+        return vx[point];
+    }
+
+    public double vy(int point) {
+        return vy[point];
+    }
+}
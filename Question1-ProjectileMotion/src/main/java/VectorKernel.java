@@ -0,0 +1,55 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * {@link BatchKernel} on the JDK Vector API: each step works on as many
+ * launches as the CPU's widest vector register holds (8 with AVX-512, 4
+ * with AVX2). Needs Java 16 or later, compiled and run with
+ * {@code --add-modules jdk.incubator.vector}; {@link BatchKernel#best()}
+ * loads it only then, so the rest of the program still builds on Java 8.
+ *
+ * The arithmetic matches the scalar kernel operation for operation, so
+ * results differ only where the vector sine does: it is accurate to
+ * within one ulp, while {@link Math#sin} may round differently. The last
+ * partial vector is done with the scalar expressions.
+ */
+public final class VectorKernel implements BatchKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    public VectorKernel() {
+        // Fail here, where BatchKernel can fall back, if the JVM cannot run the API at all
+        DoubleVector.zero(SPECIES).lanewise(VectorOperators.SIN);
+    }
+
+    @Override
+    public void compute(double[] velocity, double[] angleRadians, double gravity, double[] timeOfFlight,
+            double[] maxHeight, double[] range, int length) {
+        DoubleVector g = DoubleVector.broadcast(SPECIES, gravity);
+        DoubleVector twoG = DoubleVector.broadcast(SPECIES, 2 * gravity);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, velocity, i);
+            DoubleVector angle = DoubleVector.fromArray(SPECIES, angleRadians, i);
+            DoubleVector velocityY = v.mul(angle.lanewise(VectorOperators.SIN));
+            velocityY.add(velocityY).div(g).intoArray(timeOfFlight, i);
+            velocityY.mul(velocityY).div(twoG).intoArray(maxHeight, i);
+            v.mul(v).mul(angle.add(angle).lanewise(VectorOperators.SIN)).div(g).intoArray(range, i);
+        }
+        for (; i < length; i++) {
+            double v = velocity[i];
+            double velocityY = v * Math.sin(angleRadians[i]);
+            timeOfFlight[i] = (2 * velocityY) / gravity;
+            maxHeight[i] = (velocityY * velocityY) / (2 * gravity);
+            range[i] = (v * v * Math.sin(2 * angleRadians[i])) / gravity;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector/" + SPECIES.length() + "x64";
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/**
+ * Table lookups against the closed-form vacuum time of flight, height and
+ * range, within the interpolation error bounds the table states.
+ */
+public class AngleTableTest {
+
+    private static final double G = ProjectileMath.EARTH_GRAVITY;
+    private static final int STEPS = 900;
+    // Rounding on top of the interpolation bound, as a fraction of the peak
+    private static final double ROUNDING = 1e-14;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesTheClosedFormWithinTheBound() {
+        AngleTable table = AngleTable.onHeap(STEPS, G);
+        Random random = new Random(42);
+        for (AngleTable.Interpolation interpolation : AngleTable.Interpolation.values()) {
+            AngleTable interpolated = table.withInterpolation(interpolation);
+            double[] bound = AngleTable.bound(interpolation, STEPS);
+            for (int i = 0; i < 10_000; i++) {
+                double velocity = 1 + random.nextDouble() * 99;
+                double degrees = random.nextDouble() * 90;
+                assertClose(interpolation, velocity, degrees, interpolated, bound);
+            }
+        }
+    }
+
+    @Test
+    public void measuredErrorIsWithinTheBound() {
+        AngleTable table = AngleTable.onHeap(STEPS, G);
+        for (AngleTable.Interpolation interpolation : AngleTable.Interpolation.values()) {
+            double[] measured = table.measureError(interpolation, 16);
+            double[] bound = AngleTable.bound(interpolation, STEPS);
+            for (int c = 0; c < measured.length; c++) {
+                assertTrue(interpolation + " column " + c, measured[c] <= bound[c] + ROUNDING);
+            }
+        }
+    }
+
+    @Test
+    public void tabledAnglesAreExact() {
+        AngleTable table = AngleTable.onHeap(STEPS, G);
+        for (AngleTable.Interpolation interpolation : AngleTable.Interpolation.values()) {
+            AngleTable interpolated = table.withInterpolation(interpolation);
+            for (int step = 0; step <= STEPS; step++) {
+                assertClose(interpolation, 30, step * table.getStepDegrees(), interpolated,
+                        new double[3]);
+            }
+        }
+    }
+
+    @Test
+    public void computeMatchesSingleLaunches() {
+        AngleTable table = AngleTable.offHeap(STEPS, G);
+        int length = 1000;
+        double[] velocity = new double[length];
+        double[] degrees = new double[length];
+        Random random = new Random(7);
+        for (int i = 0; i < length; i++) {
+            velocity[i] = random.nextDouble() * 100;
+            degrees[i] = random.nextDouble() * 90;
+        }
+        degrees[0] = 0;
+        degrees[1] = 90;
+        for (AngleTable.Interpolation interpolation : AngleTable.Interpolation.values()) {
+            AngleTable interpolated = table.withInterpolation(interpolation);
+            double[] time = new double[length];
+            double[] height = new double[length];
+            double[] range = new double[length];
+            interpolated.compute(velocity, degrees, time, height, range, length);
+            for (int i = 0; i < length; i++) {
+                assertEquals(interpolated.timeOfFlight(velocity[i], degrees[i]), time[i], 0);
+                assertEquals(interpolated.maxHeight(velocity[i], degrees[i]), height[i], 0);
+                assertEquals(interpolated.range(velocity[i], degrees[i]), range[i], 0);
+            }
+        }
+    }
+
+    @Test
+    public void mappedFileMatchesTheTableItWasCreatedFrom() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("angles.bin");
+        AngleTable created = AngleTable.create(file, STEPS, G);
+        AngleTable mapped = AngleTable.map(file);
+        assertEquals(STEPS, mapped.getSteps());
+        assertEquals(G, mapped.getGravity(), 0);
+        for (AngleTable.Interpolation interpolation : AngleTable.Interpolation.values()) {
+            AngleTable a = created.withInterpolation(interpolation);
+            AngleTable b = mapped.withInterpolation(interpolation);
+            for (double degrees = 0; degrees <= 90; degrees += 0.37) {
+                assertEquals(a.range(25, degrees), b.range(25, degrees), 0);
+                assertEquals(a.timeOfFlight(25, degrees), b.timeOfFlight(25, degrees), 0);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnglesAboveNinetyDegrees() {
+        AngleTable.onHeap(STEPS, G).range(10, 90.5);
+    }
+
+    /**
+     * Check a launch against ProjectileMath, allowing the bound as a
+     * fraction of each result's peak, 2v/g, v²/2g and v²/g
+     */
+    private static void assertClose(AngleTable.Interpolation interpolation, double velocity, double degrees,
+            AngleTable table, double[] bound) {
+        double radians = Math.toRadians(degrees);
+        double v2 = velocity * velocity;
+        String message = interpolation + " at " + velocity + " m/s, " + degrees + " degrees";
+        assertEquals("time of flight " + message, ProjectileMath.timeOfFlight(velocity, radians, G),
+                table.timeOfFlight(velocity, degrees), (bound[0] + ROUNDING) * 2 * velocity / G);
+        assertEquals("height " + message, ProjectileMath.maxHeight(velocity, radians, G),
+                table.maxHeight(velocity, degrees), (bound[1] + ROUNDING) * v2 / (2 * G));
+        assertEquals("range " + message, ProjectileMath.range(velocity, radians, G),
+                table.range(velocity, degrees), (bound[2] + ROUNDING) * v2 / G);
+    }
+}
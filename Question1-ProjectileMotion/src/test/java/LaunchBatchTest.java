@@ -0,0 +1,160 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * Checks the batch mode's own number formatting and parsing against
+ * {@code String.format("%.Nf")} and {@link Double#parseDouble}.
+ */
+public class LaunchBatchTest {
+
+    @Test
+    public void writesHalfwayCasesLikeFormat() throws IOException {
+        // 1.005 and 0.045 are stored just below the halfway point, 0.125 and 2.5 exactly on it
+        assertFixed(1.005, 2);
+        assertFixed(0.125, 2);
+        assertFixed(0.045, 2);
+        assertFixed(0.5, 0);
+        assertFixed(1.5, 0);
+        assertFixed(2.5, 0);
+        assertFixed(1234.5675, 3);
+        assertFixed(0.0000005, 6);
+    }
+
+    @Test
+    public void keepsTheSignOfNegativeZeroAndNegativesThatRoundToZero() throws IOException {
+        assertFixed(-0.0, 2);
+        assertFixed(0.0, 2);
+        assertFixed(-0.001, 2);
+        assertFixed(-0.004999, 2);
+        assertFixed(-0.005, 2);
+        assertFixed(-0.4, 0);
+        assertFixed(-Double.MIN_VALUE, 3);
+    }
+
+    @Test
+    public void writesLargeValuesLikeFormat() throws IOException {
+        for (double x : new double[]{0x1p50, 0x1p50 + 0.5, 0x1p52 + 1, 0x1p53, 0x1p53 + 2, 0x1p60, 1e17, 1e20,
+            123456789012345678e3, 1e300, Double.MAX_VALUE}) {
+            assertFixed(x, 0);
+            assertFixed(x, 3);
+            assertFixed(-x, 2);
+        }
+    }
+
+    @Test
+    public void writesNonFiniteValuesLikeFormat() throws IOException {
+        assertFixed(Double.NaN, 2);
+        assertFixed(Double.POSITIVE_INFINITY, 2);
+        assertFixed(Double.NEGATIVE_INFINITY, 0);
+    }
+
+    @Test
+    public void writesRandomValuesLikeFormat() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int decimals = random.nextInt(8);
+            double x;
+            if (i % 2 == 0) {
+                x = random.nextDouble() * Math.pow(10, random.nextInt(16) - 4);
+            } else {
+                // Near a rounding boundary, where the double arithmetic is least reliable
+                double step = Math.pow(10, -decimals);
+                x = (random.nextInt(1_000_000) + 0.5) * step;
+            }
+            assertFixed(random.nextBoolean() ? -x : x, decimals);
+        }
+    }
+
+    @Test
+    public void readsPlainAndExponentNumbersLikeParseDouble() throws IOException {
+        for (String token : new String[]{"0", "-0", "+7", "1.5", ".5", "5.", "-2.5E-3", "1e10", "1E+22", "1e23",
+            "9007199254740993", "3.14159265358979323846", "0.1", "123456789012345678901234567890",
+            "1e-320", "4.9e-324", "1e-400", "1.7976931348623157e308", "1e400", "0.000000000000000000000001",
+            "000000000000000000000000000123.25"}) {
+            assertParsed(token);
+        }
+    }
+
+    @Test
+    public void readsNonFiniteNumbersLikeParseDouble() throws IOException {
+        for (String token : new String[]{"NaN", "Infinity", "-Infinity", "+Infinity", "0x1p3", "1.5d", "2f"}) {
+            assertParsed(token);
+        }
+    }
+
+    @Test
+    public void readsTokensLongerThan128BytesLikeParseDouble() throws IOException {
+        StringBuilder zeros = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            zeros.append('0');
+        }
+        assertParsed("0." + zeros + "1");
+        assertParsed("1." + zeros + "1");
+        assertParsed("1" + zeros);
+        assertParsed("1" + zeros + "e-150");
+        assertParsed("-" + zeros + "2.5");
+
+        StringBuilder huge = new StringBuilder("1");
+        while (huge.length() <= 64 * 1024) {
+            huge.append(zeros);
+        }
+        LaunchBatch.LineReader reader = reader(huge + " 1\n2 3\n");
+        assertEquals(LaunchBatch.LineReader.MALFORMED, reader.readLine(new double[2]));
+        assertEquals(2, reader.readLine(new double[2]));
+    }
+
+    @Test
+    public void rejectsWhatParseDoubleRejects() throws IOException {
+        for (String token : new String[]{"abc", "1.2.3", "--1", "1e", "e5", "-", ".", "1x"}) {
+            LaunchBatch.LineReader reader = reader(token + " 1\n2 3\n");
+            assertEquals(token, LaunchBatch.LineReader.MALFORMED, reader.readLine(new double[2]));
+            assertEquals(token, 2, reader.readLine(new double[2]));
+        }
+    }
+
+    @Test
+    public void splitsLinesOnSpacesTabsAndCommas() throws IOException {
+        LaunchBatch.LineReader reader = reader("# comment\n\n10,45\r\n 20\t30 # note\n1 2 3");
+        double[] values = new double[2];
+        assertEquals(0, reader.readLine(values));
+        assertEquals(0, reader.readLine(values));
+        assertEquals(2, reader.readLine(values));
+        assertEquals(10.0, values[0], 0);
+        assertEquals(45.0, values[1], 0);
+        assertEquals(2, reader.readLine(values));
+        assertEquals(20.0, values[0], 0);
+        assertEquals(30.0, values[1], 0);
+        assertEquals(3, reader.readLine(values));
+        assertEquals(5, reader.lineNumber());
+        assertEquals(LaunchBatch.LineReader.END, reader.readLine(values));
+    }
+
+    private static void assertFixed(double x, int decimals) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        LaunchBatch.NumberWriter writer = new LaunchBatch.NumberWriter(bytes, 64);
+        writer.writeFixed(x, decimals).flush();
+        String expected = String.format(Locale.ROOT, "%." + decimals + "f", x);
+        assertEquals(x + " to " + decimals + " decimals", expected, bytes.toString("US-ASCII"));
+    }
+
+    private static void assertParsed(String token) throws IOException {
+        double[] values = new double[1];
+        // A small buffer, so tokens also straddle refills
+        LaunchBatch.LineReader reader = reader(token + "\n");
+        assertEquals(token, 1, reader.readLine(values));
+        assertEquals(token, Double.doubleToLongBits(Double.parseDouble(token)), Double.doubleToLongBits(values[0]));
+    }
+
+    private static LaunchBatch.LineReader reader(String text) {
+        return new LaunchBatch.LineReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)), 7);
+    }
+}
@@ -0,0 +1,138 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+
+/**
+ * Solved launches must hit their targets: checked against the closed-form
+ * vacuum range and time of flight, and by flying the solutions with drag.
+ */
+public class TargetSolverTest {
+
+    private static final double G = ProjectileMath.EARTH_GRAVITY;
+
+    @Test
+    public void groundTargetsAreHitAtTheClosedFormRange() {
+        TargetSolver solver = new TargetSolver(FlightModel.VACUUM, null);
+        TargetSolver.Solution solution = new TargetSolver.Solution();
+        TrajectoryIntegrator integrator = new TrajectoryIntegrator(TrajectoryIntegrator.Method.DORMAND_PRINCE, 0,
+                1e-10);
+        TrajectoryIntegrator.Result flight = new TrajectoryIntegrator.Result();
+        for (double distance : new double[]{1, 50, 200, 1000}) {
+            double velocity = 1.2 * Math.sqrt(G * distance);
+            solver.solve(distance, 0, velocity, solution);
+            assertTrue(solution.isReachable());
+            // The two angles that reach a level target are symmetric about 45 degrees
+            assertEquals(90, solution.lowAngle + solution.highAngle, 1e-9);
+            for (double degrees : new double[]{solution.lowAngle, solution.highAngle}) {
+                double radians = Math.toRadians(degrees);
+                assertRelative("range at " + degrees, distance, ProjectileMath.range(velocity, radians, G), 1e-12);
+                integrator.integrate(FlightModel.VACUUM, velocity, radians, flight);
+                assertRelative("flown range at " + degrees, distance, flight.range, 1e-8);
+                assertRelative("time of flight at " + degrees, ProjectileMath.timeOfFlight(velocity, radians, G),
+                        flight.timeOfFlight, 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void raisedTargetsArePassedThroughInAVacuum() {
+        FlightModel model = new FlightModel(G, 0, 0, 2);
+        TargetSolver solver = new TargetSolver(model, null);
+        TargetSolver.Solution solution = new TargetSolver.Solution();
+        for (double[] target : new double[][]{{30, 10}, {120, 0}, {80, 40}, {5, 1}}) {
+            double distance = target[0];
+            double height = target[1];
+            solver.solve(distance, height, 45, solution);
+            assertTrue(solution.isReachable());
+            assertTrue(solution.lowAngle < solution.highAngle);
+            for (double degrees : new double[]{solution.lowAngle, solution.highAngle}) {
+                assertEquals("height at " + degrees, height, vacuumHeight(model, 45, degrees, distance), 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void leastVelocityMatchesTheClosedForm() {
+        TargetSolver solver = new TargetSolver(FlightModel.VACUUM, null);
+        TargetSolver.Solution solution = new TargetSolver.Solution();
+        solver.solve(100, 0, 0, solution);
+        // On level ground the least velocity reaches v²/g at 45 degrees
+        assertRelative("velocity", Math.sqrt(G * 100), solution.velocity, 1e-12);
+        assertEquals(45, solution.lowAngle, 1e-9);
+        assertRelative("range", 100, ProjectileMath.range(solution.velocity, Math.toRadians(45), G), 1e-12);
+
+        solver.solve(60, 25, 0, solution);
+        assertEquals(25, vacuumHeight(FlightModel.VACUUM, solution.velocity, solution.lowAngle, 60), 1e-8);
+        // Any slower and the target is out of reach
+        solver.solve(60, 25, solution.velocity * (1 - 1e-6), solution);
+        assertFalse(solution.isReachable());
+    }
+
+    @Test
+    public void targetsBeyondTheMaximumRangeAreUnreachable() {
+        TargetSolver.Solution solution = new TargetSolver.Solution();
+        new TargetSolver(FlightModel.VACUUM, null).solve(1000, 0, 0.99 * Math.sqrt(G * 1000), solution);
+        assertFalse(solution.isReachable());
+        assertTrue(Double.isNaN(solution.highAngle));
+    }
+
+    @Test
+    public void solutionsWithDragHitTheTarget() {
+        FlightModel model = new FlightModel(G, 0.004, 2, 1.5);
+        TrajectoryIntegrator integrator = new TrajectoryIntegrator(TrajectoryIntegrator.Method.DORMAND_PRINCE, 0,
+                1e-10);
+        TargetSolver solver = new TargetSolver(model, integrator);
+        TargetSolver.Solution solution = new TargetSolver.Solution();
+        for (double[] target : new double[][]{{40, 0}, {60, 8}, {25, 3}}) {
+            solver.solve(target[0], target[1], 40, solution);
+            assertTrue(solution.isReachable());
+            for (double degrees : new double[]{solution.lowAngle, solution.highAngle}) {
+                double height = integrator.heightAt(model, 40, Math.toRadians(degrees), target[0], target[1]);
+                assertEquals("height at " + degrees, target[1], height, 1e-6);
+            }
+            // Drag costs range, so both angles move towards the vacuum's best angle
+            TargetSolver.Solution vacuum = new TargetSolver.Solution();
+            new TargetSolver(new FlightModel(G, 0, 0, 1.5), null).solve(target[0], target[1], 40, vacuum);
+            assertTrue(solution.lowAngle > vacuum.lowAngle);
+            assertTrue(solution.highAngle < vacuum.highAngle);
+        }
+    }
+
+    @Test
+    public void solveAllMatchesSolvingOneAtATime() {
+        TargetSolver.Batch batch = new TargetSolver.Batch(10_000);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.distance[i] = 10 + i % 500;
+            batch.height[i] = i % 7;
+            batch.velocity[i] = i % 3 == 0 ? 0 : 30 + i % 40;
+        }
+        TargetSolver.solveAll(FlightModel.VACUUM, null, batch, ForkJoinPool.commonPool());
+        TargetSolver solver = new TargetSolver(FlightModel.VACUUM, null);
+        TargetSolver.Solution solution = new TargetSolver.Solution();
+        for (int i = 0; i < batch.size(); i++) {
+            solver.solve(batch.distance[i], batch.height[i], batch.velocity[i], solution);
+            assertEquals(solution.lowAngle, batch.lowAngle[i], 0);
+            assertEquals(solution.highAngle, batch.highAngle[i], 0);
+            assertEquals(solution.velocity, batch.solvedVelocity[i], 0);
+        }
+    }
+
+    /**
+     * Height of a vacuum trajectory at a distance, from the launch height
+     */
+    private static double vacuumHeight(FlightModel model, double velocity, double degrees, double distance) {
+        double radians = Math.toRadians(degrees);
+        double cos = Math.cos(radians);
+        return model.getLaunchHeight() + distance * Math.tan(radians)
+                - model.getGravity() * distance * distance / (2 * velocity * velocity * cos * cos);
+    }
+
+    private static void assertRelative(String message, double expected, double actual, double tolerance) {
+        assertEquals(message, expected, actual, tolerance * Math.abs(expected));
+    }
+}
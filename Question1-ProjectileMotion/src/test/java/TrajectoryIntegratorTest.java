@@ -0,0 +1,115 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+/**
+ * Both integration methods against the closed-form vacuum trajectory,
+ * which a fourth or fifth order method should reproduce to rounding error.
+ */
+public class TrajectoryIntegratorTest {
+
+    private static final double[] VELOCITIES = {1, 20, 50, 300};
+    private static final double[] ANGLES = {5, 30, 45, 60, 85};
+
+    @Test
+    public void rk4MatchesTheVacuumClosedForm() {
+        assertMatchesVacuum(new TrajectoryIntegrator(TrajectoryIntegrator.Method.RK4, 0.01, 0), 1e-9);
+    }
+
+    @Test
+    public void dormandPrinceMatchesTheVacuumClosedForm() {
+        assertMatchesVacuum(new TrajectoryIntegrator(TrajectoryIntegrator.Method.DORMAND_PRINCE, 0, 1e-10), 1e-8);
+    }
+
+    @Test
+    public void landsWhereTheClosedFormSaysFromALaunchHeight() {
+        double g = ProjectileMath.EARTH_GRAVITY;
+        FlightModel model = new FlightModel(g, 0, 0, 25);
+        TrajectoryIntegrator.Result result = new TrajectoryIntegrator.Result();
+        for (TrajectoryIntegrator integrator : integrators()) {
+            for (double degrees : new double[]{-20, 0, 30, 60}) {
+                double radians = Math.toRadians(degrees);
+                double vx = 30 * Math.cos(radians);
+                double vy = 30 * Math.sin(radians);
+                // Positive root of 25 + vy·t - g·t²/2 = 0
+                double time = (vy + Math.sqrt(vy * vy + 2 * g * 25)) / g;
+                integrator.integrate(model, 30, radians, result);
+                assertRelative("time of flight at " + degrees, time, result.timeOfFlight, 1e-8);
+                assertRelative("range at " + degrees, vx * time, result.range, 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void passesDistancesAtTheClosedFormHeight() {
+        double g = ProjectileMath.EARTH_GRAVITY;
+        for (TrajectoryIntegrator integrator : integrators()) {
+            for (double degrees : ANGLES) {
+                double radians = Math.toRadians(degrees);
+                double range = ProjectileMath.range(50, radians, g);
+                for (double distance : new double[]{0.25 * range, 0.5 * range, 0.9 * range}) {
+                    double cos = Math.cos(radians);
+                    double height = distance * Math.tan(radians) - g * distance * distance / (2 * 2500 * cos * cos);
+                    double found = integrator.heightAt(FlightModel.VACUUM, 50, radians, distance, 0);
+                    assertEquals("height at " + distance + " m for " + degrees, height, found,
+                            1e-8 * ProjectileMath.maxHeight(50, radians, g));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bothMethodsAgreeWithDrag() {
+        FlightModel model = new FlightModel(ProjectileMath.EARTH_GRAVITY, 0.005, -3, 0);
+        TrajectoryIntegrator.Result rk4 = new TrajectoryIntegrator.Result();
+        TrajectoryIntegrator.Result dormandPrince = new TrajectoryIntegrator.Result();
+        for (double degrees : ANGLES) {
+            double radians = Math.toRadians(degrees);
+            new TrajectoryIntegrator(TrajectoryIntegrator.Method.RK4, 0.001, 0).integrate(model, 40, radians, rk4);
+            new TrajectoryIntegrator(TrajectoryIntegrator.Method.DORMAND_PRINCE, 0, 1e-11)
+                    .integrate(model, 40, radians, dormandPrince);
+            assertRelative("time of flight at " + degrees, rk4.timeOfFlight, dormandPrince.timeOfFlight, 1e-8);
+            assertRelative("range at " + degrees, rk4.range, dormandPrince.range, 1e-8);
+            assertRelative("height at " + degrees, rk4.maxHeight, dormandPrince.maxHeight, 1e-8);
+            // Drag and a headwind only ever shorten the flight
+            assertTrue(rk4.range < ProjectileMath.range(40, radians, ProjectileMath.EARTH_GRAVITY));
+        }
+    }
+
+    private static void assertMatchesVacuum(TrajectoryIntegrator integrator, double tolerance) {
+        double g = ProjectileMath.EARTH_GRAVITY;
+        TrajectoryIntegrator.Result result = new TrajectoryIntegrator.Result();
+        for (double velocity : VELOCITIES) {
+            for (double degrees : ANGLES) {
+                double radians = Math.toRadians(degrees);
+                String launch = velocity + " m/s at " + degrees + " degrees: ";
+                integrator.integrate(FlightModel.VACUUM, velocity, radians, result);
+                double time = ProjectileMath.timeOfFlight(velocity, radians, g);
+                assertRelative(launch + "time of flight", time, result.timeOfFlight, tolerance);
+                assertRelative(launch + "range", ProjectileMath.range(velocity, radians, g), result.range,
+                        tolerance);
+                assertRelative(launch + "max height", ProjectileMath.maxHeight(velocity, radians, g),
+                        result.maxHeight, tolerance);
+                assertRelative(launch + "apex time", time / 2, result.apexTime, tolerance);
+                // Lands as fast as it was launched, mirrored
+                assertRelative(launch + "impact vx", velocity * Math.cos(radians), result.impactVelocityX,
+                        tolerance);
+                assertRelative(launch + "impact vy", -velocity * Math.sin(radians), result.impactVelocityY,
+                        tolerance);
+            }
+        }
+    }
+
+    private static TrajectoryIntegrator[] integrators() {
+        return new TrajectoryIntegrator[]{
+            new TrajectoryIntegrator(TrajectoryIntegrator.Method.RK4, 0.01, 0),
+            new TrajectoryIntegrator(TrajectoryIntegrator.Method.DORMAND_PRINCE, 0, 1e-10)
+        };
+    }
+
+    private static void assertRelative(String message, double expected, double actual, double tolerance) {
+        assertEquals(message, expected, actual, tolerance * Math.abs(expected));
+    }
+}
@@ -0,0 +1,221 @@
+package salsa.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+
+/**
+ * Insert, lookup, update and delete throughput and latency through the
+ * application's own repository and {@code ConnectionPool}, against a
+ * temporary copy of the registration database or a new HSQLDB database.
+ *
+ * The application classes live in the default package and cannot be
+ * imported here, so they are loaded by name and called through method
+ * handles typed with Object in place of their classes.
+ *
+ * Set {@code -Dsalsa.db=<file.accdb>} to benchmark another database file.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrudBenchmark {
+
+    private static final String DEFAULT_DB
+            = "../Question2-SALSARegistration/src/main/resources/database/VUE_Exhibition.accdb";
+
+    // Pool settings as the application's defaults
+    private static final int POOL_MIN_SIZE = 1;
+    private static final int POOL_MAX_SIZE = 4;
+    private static final long POOL_IDLE_TIMEOUT_MS = 300_000;
+    private static final long POOL_BORROW_TIMEOUT_MS = 10_000;
+
+    private static final Class<?> PARTICIPANT = load("Participant");
+    private static final Class<?> REPOSITORY = load("ParticipantRepository");
+
+    // new Participant(7 x String) as Object
+    private static final MethodHandle NEW_PARTICIPANT = participantConstructor();
+    // ParticipantRepository methods, with the repository and participants as Object
+    private static final MethodHandle INSERT = repositoryMethod("insert", int.class, PARTICIPANT);
+    private static final MethodHandle INSERT_ALL = repositoryMethod("insertAll", void.class, List.class);
+    private static final MethodHandle FIND = repositoryMethod("find", PARTICIPANT, String.class);
+    private static final MethodHandle UPDATE = repositoryMethod("update", int.class, PARTICIPANT);
+    private static final MethodHandle DELETE = repositoryMethod("delete", int.class, String.class);
+
+    @Param({"access", "hsqldb"})
+    public String backend;
+
+    /** Participants in the database before measuring. */
+    @Param({"1000"})
+    public int rows;
+
+    private Path databaseCopy;
+    private Object repository;
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Throwable {
+        Class<?> type;
+        File file;
+        if ("access".equals(backend)) {
+            type = load("AccessParticipantRepository");
+            databaseCopy = Files.createTempFile("salsa-bench", ".accdb");
+            Files.copy(Paths.get(System.getProperty("salsa.db", DEFAULT_DB)), databaseCopy,
+                    StandardCopyOption.REPLACE_EXISTING);
+            file = databaseCopy.toFile();
+        } else {
+            type = load("HsqldbParticipantRepository");
+            databaseCopy = Files.createTempDirectory("salsa-bench");
+            file = databaseCopy.resolve("salsa").toFile();
+        }
+        repository = type.getConstructor(File.class, int.class, int.class, long.class, long.class)
+                .newInstance(file, POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS);
+        REPOSITORY.getMethod("createSchema").invoke(repository);
+
+        Object pool = type.getMethod("getConnectionPool").invoke(repository);
+        try (Connection conn = (Connection) pool.getClass().getMethod("getConnection").invoke(pool);
+                Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM Participants");
+        }
+        List<Object> seed = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            seed.add(participant(seedId(i), "Participant " + i));
+        }
+        INSERT_ALL.invokeExact(repository, seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDatabase() throws Exception {
+        if (repository != null) {
+            REPOSITORY.getMethod("close").invoke(repository);
+            repository = null;
+        }
+        try (Stream<Path> files = Files.walk(databaseCopy)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int insert() throws Throwable {
+        return (int) INSERT.invokeExact(repository, participant("INS" + nextId.incrementAndGet(), "Inserted"));
+    }
+
+    @Benchmark
+    public Object lookupById() throws Throwable {
+        return (Object) FIND.invokeExact(repository, seedId(ThreadLocalRandom.current().nextInt(rows)));
+    }
+
+    @Benchmark
+    public int update() throws Throwable {
+        Object participant = participant(seedId(ThreadLocalRandom.current().nextInt(rows)),
+                "Updated " + nextId.incrementAndGet());
+        return (int) UPDATE.invokeExact(repository, participant);
+    }
+
+    /**
+     * Deletes a row inserted just before each call. Per-invocation setup
+     * is acceptable here because every call takes well over a millisecond.
+     */
+    @Benchmark
+    public int delete(DeleteTarget target) throws Throwable {
+        return (int) DELETE.invokeExact(repository, target.id);
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+
+        String id;
+
+        @Setup(Level.Invocation)
+        public void insertRow(CrudBenchmark benchmark) throws Throwable {
+            id = "DEL" + benchmark.nextId.incrementAndGet();
+            if ((int) INSERT.invokeExact(benchmark.repository, participant(id, "To Delete")) != 1) {
+                throw new IllegalStateException("Could not insert " + id);
+            }
+        }
+    }
+
+    /**
+     * A participant with the given ID and name and fixed other fields
+     */
+    static Object participant(String id, String name) throws Throwable {
+        return participant(id, name, "0712345678", "participant@example.com");
+    }
+
+    static Object participant(String id, String name, String contact, String email) throws Throwable {
+        return (Object) NEW_PARTICIPANT.invokeExact(id, name, "Computer Science", "Partner", contact, email, "");
+    }
+
+    private static String seedId(int i) {
+        return String.format("BENCH%06d", i);
+    }
+
+    static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle participantConstructor() {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().findConstructor(PARTICIPANT,
+                    MethodType.methodType(void.class, String.class, String.class, String.class, String.class,
+                            String.class, String.class, String.class));
+            return handle.asType(handle.type().changeReturnType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle repositoryMethod(String name, Class<?> returnType, Class<?> parameter) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().findVirtual(REPOSITORY, name,
+                    MethodType.methodType(returnType, parameter));
+            MethodType erased = handle.type().changeParameterType(0, Object.class);
+            if (parameter == PARTICIPANT) {
+                erased = erased.changeParameterType(1, Object.class);
+            }
+            if (returnType == PARTICIPANT) {
+                erased = erased.changeReturnType(Object.class);
+            }
+            return handle.asType(erased);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
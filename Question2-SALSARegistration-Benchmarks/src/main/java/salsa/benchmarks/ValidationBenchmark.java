@@ -0,0 +1,115 @@
+package salsa.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+
+/**
+ * Cost of {@code ParticipantValidator.validate} on a whole participant,
+ * of its email and contact number patterns on their own, and of
+ * {@code String.matches} with the same contact regex, which compiles it
+ * on every call as the registration form originally did.
+ *
+ * The validator and its patterns are read from the application classes,
+ * which live in the default package, by name.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+    private static final Class<?> VALIDATOR = CrudBenchmark.load("ParticipantValidator");
+    private static final Pattern EMAIL_PATTERN = pattern("EMAIL_PATTERN");
+    private static final Pattern CONTACT_PATTERN = pattern("CONTACT_PATTERN");
+    private static final String CONTACT_REGEX = CONTACT_PATTERN.pattern();
+
+    // ParticipantValidator.validate as (Object participant) String
+    private static final MethodHandle VALIDATE = validateHandle();
+
+    @Param({"valid", "invalid"})
+    public String input;
+
+    // Non-final so the JIT cannot treat the inputs as constants
+    private String email;
+    private String contact;
+    private Object participant;
+
+    @Setup
+    public void chooseInput() throws Throwable {
+        if ("valid".equals(input)) {
+            email = "jane.doe+salsa@students.vu.ac.ug";
+            contact = "0712345678";
+        } else {
+            email = "jane.doe@students";
+            contact = "07123-45678";
+        }
+        participant = CrudBenchmark.participant("REG100", "Jane Doe", contact, email);
+    }
+
+    @Benchmark
+    public String validate() throws Throwable {
+        return (String) VALIDATE.invokeExact(participant);
+    }
+
+    @Benchmark
+    public boolean emailPattern() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean contactStringMatches() {
+        return contact.matches(CONTACT_REGEX);
+    }
+
+    @Benchmark
+    public boolean contactPrecompiled() {
+        return CONTACT_PATTERN.matcher(contact).matches();
+    }
+
+    /**
+     * Both checks as the form originally ran them.
+     */
+    @Benchmark
+    public boolean validateLegacy() {
+        return EMAIL_PATTERN.matcher(email.trim()).matches() && contact.trim().matches(CONTACT_REGEX);
+    }
+
+    private static Pattern pattern(String name) {
+        try {
+            Field field = VALIDATOR.getDeclaredField(name);
+            field.setAccessible(true);
+            return (Pattern) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle validateHandle() {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().findStatic(VALIDATOR, "validate",
+                    MethodType.methodType(String.class, CrudBenchmark.load("Participant")));
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+
+import java.io.File;
+import java.sql.SQLException;
+
+
+/**
+ * Participants stored in the Microsoft Access file through UCanAccess.
+ *
+ * UCanAccess mirrors the whole .accdb file in memory and rewrites it on
+ * every commit, so this backend suits small events; see
+ * {@link HsqldbParticipantRepository} for larger ones.
+ */
+public class AccessParticipantRepository extends JdbcParticipantRepository {
+
+    public AccessParticipantRepository(File databaseFile, int minConnections, int maxConnections,
+            long idleTimeoutMillis, long borrowTimeoutMillis) throws SQLException {
+        super(new ConnectionPool("jdbc:ucanaccess://" + databaseFile.getAbsolutePath(),
+                minConnections, maxConnections, idleTimeoutMillis, borrowTimeoutMillis));
+    }
+
+    @Override
+    protected String createTableSql() {
+        return "CREATE TABLE Participants ("
+                + "RegistrationID TEXT PRIMARY KEY, "
+                + "Name TEXT NOT NULL, "
+                + "Department TEXT, "
+                + "Partner TEXT, "
+                + "Contact TEXT, "
+                + "Email TEXT, "
+                + "ImagePath TEXT)";
+    }
+}
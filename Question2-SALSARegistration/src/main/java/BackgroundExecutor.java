@@ -0,0 +1,116 @@
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+
+/**
+ * Runs slow work (JDBC calls, image decoding) off the Swing Event Dispatch
+ * Thread and hands the result back to the EDT.
+ *
+ * The pool and its queue are bounded, so a burst of clicks is refused with
+ * a {@link java.util.concurrent.RejectedExecutionException} instead of
+ * piling up work behind a slow database.
+ */
+public class BackgroundExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public BackgroundExecutor(String name, int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run {@code task} in the background. Exactly one of the callbacks is
+     * then invoked on the EDT, unless the returned future was cancelled
+     * first, in which case neither is.
+     */
+    public <T> Future<T> submit(Callable<T> task, Consumer<? super T> onSuccess,
+            Consumer<? super Exception> onFailure) {
+        Job<T> job = new Job<>(task, onSuccess, onFailure);
+        executor.execute(job);
+        return job;
+    }
+
+    /**
+     * Stop accepting work and wait briefly for running tasks to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Job<T> extends FutureTask<T> {
+
+        private final Consumer<? super T> onSuccess;
+        private final Consumer<? super Exception> onFailure;
+
+        Job(Callable<T> task, Consumer<? super T> onSuccess,
+                Consumer<? super Exception> onFailure) {
+            super(task);
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            // Free the queue slot of a job that never started
+            executor.remove(this);
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                // A newer request may have cancelled this one while it was queued for the EDT
+                if (isCancelled()) {
+                    return;
+                }
+                T result;
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        onFailure.accept((Exception) cause);
+                    } else {
+                        onFailure.accept(new RuntimeException(cause));
+                    }
+                    return;
+                } catch (InterruptedException | CancellationException e) {
+                    return;
+                }
+                onSuccess.accept(result);
+            });
+        }
+    }
+}
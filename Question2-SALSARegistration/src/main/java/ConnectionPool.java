@@ -0,0 +1,366 @@
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Small JDBC connection pool for the registration database.
+ *
+ * UCanAccess loads the whole .accdb file into an in-memory HSQLDB mirror
+ * whenever the first connection to it is opened, so keeping a few
+ * connections alive turns every later lookup into a cheap in-memory query.
+ * Connections handed out by {@link #getConnection()} return to the pool
+ * when closed, so callers keep using try-with-resources as before.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+
+    // Most recently returned connection first, so surplus ones go idle and get evicted
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+
+    // Statistics
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Create a pool and open {@code minSize} connections up front.
+     *
+     * @param url JDBC URL of the database
+     * @param minSize connections kept open even when idle
+     * @param maxSize upper bound on open connections
+     * @param idleTimeoutMillis idle time after which connections above
+     *        {@code minSize} are closed
+     * @param borrowTimeoutMillis how long {@link #getConnection()} waits for
+     *        a free connection before failing
+     */
+    public ConnectionPool(String url, int minSize, int maxSize,
+            long idleTimeoutMillis, long borrowTimeoutMillis) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        for (int i = 0; i < minSize; i++) {
+            idle.offerLast(new PooledConnection(openPhysical()));
+        }
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection. Closing the returned connection hands it back
+     * to the pool instead of closing the underlying database connection.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled.physical)) {
+                    break;
+                }
+                validationFailures.incrementAndGet();
+                closePhysical(pooled.physical);
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(openPhysical());
+            }
+
+            long waited = System.nanoTime() - start;
+            borrowCount.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            active.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a leased connection. Broken connections, and any returned
+     * after the pool has been closed, are closed instead of reused.
+     */
+    private void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            boolean reusable = !closed && resetState(pooled.physical);
+            if (reusable) {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                closePhysical(pooled.physical);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Roll back anything a caller left uncommitted so the next borrower
+     * starts in auto-commit mode.
+     */
+    private boolean resetState(Connection conn) {
+        try {
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Discarding pooled connection: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isUsable(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Close connections above the minimum size that have been idle for
+     * longer than the idle timeout.
+     */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        int keep = minSize;
+        Iterator<PooledConnection> it = idle.iterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (keep > 0) {
+                keep--;
+                continue;
+            }
+            if (pooled.lastUsed < cutoff && idle.remove(pooled)) {
+                closePhysical(pooled.physical);
+            }
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        created.incrementAndGet();
+        return conn;
+    }
+
+    private void closePhysical(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        } finally {
+            destroyed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Close all idle connections and stop handing out new ones. Connections
+     * still on loan are closed when their borrowers return them.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        evictor.shutdownNow();
+
+        List<PooledConnection> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        for (PooledConnection pooled : drained) {
+            closePhysical(pooled.physical);
+        }
+        System.out.println("Connection pool closed: " + getStats());
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Snapshot of the pool counters.
+     */
+    public Stats getStats() {
+        return new Stats(active.get(), idle.size(), maxSize, borrowCount.get(),
+                totalWaitNanos.get(), maxWaitNanos.get(), created.get(),
+                destroyed.get(), validationFailures.get(), timeouts.get());
+    }
+
+    /**
+     * Immutable view of pool statistics.
+     */
+    public static final class Stats {
+
+        public final int active;
+        public final int idle;
+        public final int maxSize;
+        public final long borrowCount;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+        public final long created;
+        public final long destroyed;
+        public final long validationFailures;
+        public final long timeouts;
+
+        Stats(int active, int idle, int maxSize, long borrowCount, long totalWaitNanos,
+                long maxWaitNanos, long created, long destroyed,
+                long validationFailures, long timeouts) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.timeouts = timeouts;
+        }
+
+        public double averageWaitMillis() {
+            return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d, idle=%d, max=%d, borrows=%d, avgWait=%.3f ms, "
+                    + "maxWait=%.3f ms, created=%d, destroyed=%d, validationFailures=%d, timeouts=%d",
+                    active, idle, maxSize, borrowCount, averageWaitMillis(),
+                    maxWaitNanos / 1_000_000.0, created, destroyed, validationFailures, timeouts);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool. Each loan gets its own proxy
+     * so a stale reference cannot use the connection after closing it.
+     */
+    private final class PooledConnection {
+
+        final Connection physical;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean returned = false;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            release(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return returned || pooled.physical.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+
+            synchronized (this) {
+                if (returned) {
+                    throw new SQLException("Connection has been returned to the pool");
+                }
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Streaming reader for RFC 4180 style CSV: comma separated, fields
+ * optionally wrapped in double quotes, with doubled quotes and line breaks
+ * allowed inside quoted fields. Only one record is held in memory at a time.
+ * A byte order mark at the start of the input, as Excel writes in front of
+ * UTF-8 CSV, is skipped.
+ */
+public class CsvReader implements AutoCloseable {
+
+    private final Reader in;
+    private final StringBuilder field = new StringBuilder();
+    private int peeked = -2;
+    private long lineNumber = 1;
+    private long recordLine = 1;
+    private boolean started;
+
+    /**
+     * @param in source of the CSV text; should be buffered
+     */
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the fields of the record, or null at end of input
+     */
+    public String[] readRecord() throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = lineNumber;
+
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean fieldStart = true;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+                c = read();
+                continue;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                return fields.toArray(new String[0]);
+            } else {
+                field.append((char) c);
+            }
+            fieldStart = false;
+            c = read();
+        }
+    }
+
+    /**
+     * Line on which the last record returned by {@link #readRecord()} started.
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+        } else {
+            c = in.read();
+        }
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,56 @@
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * Writes CSV records in the format read by {@link CsvReader}.
+ */
+public class CsvWriter implements AutoCloseable {
+
+    private final Writer out;
+
+    /**
+     * @param out destination of the CSV text; should be buffered
+     */
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeRecord(String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(escape(fields[i]));
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * Quote a field if it contains a comma, quote or line break.
+     */
+    public static String escape(String field) {
+        if (field == null) {
+            return "";
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            char c = field.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!needsQuotes) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,51 @@
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+
+/**
+ * A registration was refused because its Registration ID or email is
+ * already taken. {@link #getReason()} tells the two apart.
+ */
+public class DuplicateParticipantException extends SQLIntegrityConstraintViolationException {
+
+    private static final long serialVersionUID = 1L;
+
+    // SQLState for a unique constraint violation
+    static final String SQL_STATE = "23505";
+
+    /**
+     * Error codes reported to users and API clients.
+     */
+    public enum Reason {
+        DUPLICATE_ID("Registration ID already exists!"),
+        DUPLICATE_EMAIL("Email address is already registered!");
+
+        private final String message;
+
+        Reason(String message) {
+            this.message = message;
+        }
+
+        /**
+         * Message for the registration form or an API error response
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final Reason reason;
+
+    public DuplicateParticipantException(Reason reason, String value) {
+        this(reason, value, null);
+    }
+
+    public DuplicateParticipantException(Reason reason, String value, Throwable cause) {
+        super(reason.getMessage() + " (" + value + ")", SQL_STATE, cause);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,81 @@
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+
+/**
+ * Participants stored in an embedded HSQLDB database in file mode.
+ *
+ * The table is a CACHED table, so rows live on disk and only a bounded
+ * cache of them is kept in memory, and each commit appends to a redo log
+ * instead of rewriting the whole file. MVCC lets searches run while a
+ * write is in progress. Registration IDs are VARCHAR_IGNORECASE, so
+ * like the Access key "r001" and "R001" are the same participant.
+ */
+public class HsqldbParticipantRepository extends JdbcParticipantRepository {
+
+    /**
+     * @param databasePath path and base name of the database files,
+     *        for example {@code database/salsa} for {@code database/salsa.script}
+     */
+    public HsqldbParticipantRepository(File databasePath, int minConnections, int maxConnections,
+            long idleTimeoutMillis, long borrowTimeoutMillis) throws SQLException {
+        super(new ConnectionPool("jdbc:hsqldb:file:" + databasePath.getAbsolutePath()
+                + ";hsqldb.tx=mvcc;shutdown=true",
+                minConnections, maxConnections, idleTimeoutMillis, borrowTimeoutMillis));
+    }
+
+    @Override
+    protected String createTableSql() {
+        // Access TEXT columns hold 255 characters; keep the same limit so data migrates both ways
+        return "CREATE CACHED TABLE Participants ("
+                + "RegistrationID VARCHAR_IGNORECASE(255) PRIMARY KEY, "
+                + "Name VARCHAR(255) NOT NULL, "
+                + "Department VARCHAR(255), "
+                + "Partner VARCHAR(255), "
+                + "Contact VARCHAR(255), "
+                + "Email VARCHAR(255), "
+                + "ImagePath VARCHAR(255))";
+    }
+
+    /**
+     * Tables created before IDs ignored case compare them exactly; convert
+     * the key column and rebuild the primary key on it, which fails if two
+     * IDs differ only in case.
+     */
+    @Override
+    protected void upgradeSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            String constraint;
+            try (ResultSet rs = stmt.executeQuery("SELECT c.COLLATION_NAME, k.CONSTRAINT_NAME "
+                    + "FROM INFORMATION_SCHEMA.COLUMNS c JOIN INFORMATION_SCHEMA.TABLE_CONSTRAINTS k "
+                    + "ON k.TABLE_SCHEMA = c.TABLE_SCHEMA AND k.TABLE_NAME = c.TABLE_NAME "
+                    + "AND k.CONSTRAINT_TYPE = 'PRIMARY KEY' "
+                    + "WHERE c.TABLE_SCHEMA = 'PUBLIC' AND c.TABLE_NAME = 'PARTICIPANTS' "
+                    + "AND c.COLUMN_NAME = 'REGISTRATIONID'")) {
+                // VARCHAR_IGNORECASE columns use the upper-case collation
+                if (!rs.next() || "SQL_TEXT_UCC".equals(rs.getString(1))) {
+                    return;
+                }
+                constraint = rs.getString(2);
+            }
+            // The existing key index keeps its old comparison, so it is dropped and recreated
+            stmt.execute("ALTER TABLE Participants ALTER COLUMN RegistrationID "
+                    + "SET DATA TYPE VARCHAR_IGNORECASE(255)");
+            stmt.execute("ALTER TABLE Participants DROP CONSTRAINT " + constraint);
+            stmt.execute("ALTER TABLE Participants ADD PRIMARY KEY (RegistrationID)");
+            System.out.println("Registration IDs now ignore case");
+        }
+    }
+
+    @Override
+    protected boolean tableExists(Connection conn) throws SQLException {
+        // HSQLDB stores unquoted names in upper case
+        try (ResultSet tables = conn.getMetaData().getTables(null, "PUBLIC", "PARTICIPANTS", null)) {
+            return tables.next();
+        }
+    }
+}
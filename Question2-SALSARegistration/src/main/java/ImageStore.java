@@ -0,0 +1,347 @@
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Content-addressed store for participant photos.
+ *
+ * A photo is ingested once, when its participant is registered or
+ * updated: it is decoded, scaled down to fit {@code maxSize} pixels on
+ * its longer side and re-encoded as a JPEG, and the result is saved under
+ * the SHA-256 of its bytes as {@code <dir>/<ab>/<abcd...>.jpg}. The
+ * ImagePath column then holds {@code sha256:<hex>} instead of wherever the
+ * original happened to be, so photos survive files being moved, the same
+ * photo is stored once however often it is chosen, and every stored
+ * photo is small. Files are never changed once written.
+ *
+ * Older rows keep their absolute paths; {@link #isReference} tells the
+ * two apart, and only references are read from the store.
+ */
+public class ImageStore {
+
+    static final String PREFIX = "sha256:";
+
+    // Stored files at least this large are memory-mapped rather than copied onto the heap
+    private static final int MAP_THRESHOLD_BYTES = 64 * 1024;
+    // Sanity limit for a stored file; a normalized photo is far smaller
+    private static final int MAX_STORED_BYTES = 16 * 1024 * 1024;
+
+    private final Path directory;
+    private final int maxSize;
+    private final float quality;
+
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong mappedReads = new AtomicLong();
+
+    /**
+     * @param directory where photos are stored; created on first ingest
+     * @param maxSize longest side of a stored photo, in pixels
+     * @param quality JPEG quality between 0 and 1
+     */
+    public ImageStore(Path directory, int maxSize, float quality) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.quality = quality;
+    }
+
+    /**
+     * @return whether an ImagePath value names a stored photo rather than
+     *         a file elsewhere on disk
+     */
+    public static boolean isReference(String imagePath) {
+        if (imagePath == null || imagePath.length() != PREFIX.length() + 64 || !imagePath.startsWith(PREFIX)) {
+            return false;
+        }
+        for (int i = PREFIX.length(); i < imagePath.length(); i++) {
+            if (Character.digit(imagePath.charAt(i), 16) < 0 || Character.isUpperCase(imagePath.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The ImagePath value to store for a participant. A photo file is
+     * ingested and replaced by its reference. Blank values and existing
+     * references are returned unchanged, and so is a legacy path whose
+     * file no longer exists, so editing such a participant still works.
+     *
+     * @throws IOException if the file exists but is not a readable image
+     */
+    public String store(String imagePath) throws IOException {
+        if (imagePath == null || imagePath.isEmpty() || isReference(imagePath)) {
+            return imagePath == null ? "" : imagePath;
+        }
+        File source = new File(imagePath);
+        if (!source.isFile()) {
+            return imagePath;
+        }
+        return ingest(source);
+    }
+
+    /**
+     * Normalize a photo and add it to the store.
+     *
+     * @return its reference, {@code sha256:<hex>}
+     */
+    public String ingest(File source) throws IOException {
+        return save(encode(decode(source, source)));
+    }
+
+    /**
+     * Normalize a photo received as bytes, such as an upload, and add it
+     * to the store.
+     *
+     * @return its reference, {@code sha256:<hex>}
+     */
+    public String ingest(byte[] data) throws IOException {
+        return save(encode(decode(new ByteArrayInputStream(data), "uploaded image")));
+    }
+
+    /**
+     * @return whether the value is a reference to a photo in this store
+     */
+    public boolean contains(String reference) {
+        return isReference(reference) && Files.isRegularFile(resolve(reference));
+    }
+
+    private String save(byte[] encoded) throws IOException {
+        String hash = sha256(encoded);
+        Path target = resolveHash(hash);
+        if (Files.isRegularFile(target) && Files.size(target) == encoded.length) {
+            deduplicated.incrementAndGet();
+            return PREFIX + hash;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "image", ".tmp");
+        try {
+            Files.write(temp, encoded);
+            // Another thread storing the same photo writes the same bytes, so either copy may win
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        ingested.incrementAndGet();
+        bytesWritten.addAndGet(encoded.length);
+        return PREFIX + hash;
+    }
+
+    /**
+     * The file holding a stored photo.
+     *
+     * @throws IllegalArgumentException if the value is not a reference
+     */
+    public Path resolve(String reference) {
+        if (!isReference(reference)) {
+            throw new IllegalArgumentException("Not an image store reference: " + reference);
+        }
+        return resolveHash(reference.substring(PREFIX.length()));
+    }
+
+    /**
+     * Read a stored photo through its file channel. Large files are
+     * memory-mapped, smaller ones read into a heap buffer in one call.
+     *
+     * @throws FileNotFoundException if the photo is not in the store
+     */
+    public ByteBuffer read(String reference) throws IOException {
+        Path file = resolve(reference);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_STORED_BYTES) {
+                throw new IOException("Stored image too large: " + file + " (" + size + " bytes)");
+            }
+            reads.incrementAndGet();
+            if (size >= MAP_THRESHOLD_BYTES) {
+                mappedReads.incrementAndGet();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+            buffer.flip();
+            return buffer;
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(reference);
+        }
+    }
+
+    /**
+     * A stored photo as a stream, for ImageIO.
+     */
+    public InputStream open(String reference) throws IOException {
+        return new ByteBufferInputStream(read(reference));
+    }
+
+    public Stats getStats() {
+        return new Stats(ingested.get(), deduplicated.get(), bytesWritten.get(), reads.get(), mappedReads.get());
+    }
+
+    private Path resolveHash(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + ".jpg");
+    }
+
+    /**
+     * Decode an image, letting the decoder skip pixels that would be
+     * scaled away, and fit it within maxSize with its aspect ratio kept.
+     *
+     * @param source a File or InputStream, as ImageIO accepts
+     * @param name what to call the source in error messages
+     */
+    private BufferedImage decode(Object source, Object name) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            if (in == null) {
+                throw new IOException("Cannot read image: " + name);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + name);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the stored resolution for smooth scaling
+                int subsampling = Math.max(width, height) / (2 * maxSize);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                double factor = Math.min(1.0, (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+                int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+                int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+                // Also flattens transparency onto white, which JPEG cannot hold
+                return ThumbnailCache.scale(image, targetWidth, targetHeight);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Reads a buffer without copying it first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Snapshot of the store counters.
+     */
+    public static final class Stats {
+
+        public final long ingested;
+        public final long deduplicated;
+        public final long bytesWritten;
+        public final long reads;
+        public final long mappedReads;
+
+        Stats(long ingested, long deduplicated, long bytesWritten, long reads, long mappedReads) {
+            this.ingested = ingested;
+            this.deduplicated = deduplicated;
+            this.bytesWritten = bytesWritten;
+            this.reads = reads;
+            this.mappedReads = mappedReads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ingested=%d, deduplicated=%d, bytesWritten=%d, reads=%d, mappedReads=%d",
+                    ingested, deduplicated, bytesWritten, reads, mappedReads);
+        }
+    }
+}
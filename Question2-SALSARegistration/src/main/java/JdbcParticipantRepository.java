@@ -0,0 +1,253 @@
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Participant storage in a JDBC database reached through a
+ * {@link ConnectionPool}. Subclasses supply the table definition for their
+ * database.
+ */
+public abstract class JdbcParticipantRepository implements ParticipantRepository {
+
+    // Also used by ParticipantImporter, which batches its own inserts
+    static final String INSERT_SQL = "INSERT INTO Participants (RegistrationID, Name, Department, "
+            + "Partner, Contact, Email, ImagePath) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE Participants SET Name = ?, Department = ?, "
+            + "Partner = ?, Contact = ?, Email = ?, ImagePath = ? "
+            + "WHERE RegistrationID = ?";
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final ConnectionPool connectionPool;
+
+    protected JdbcParticipantRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Pool for tools that run their own SQL against the Participants
+     * table, such as import, export and the table browser.
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * @return statement creating the Participants table
+     */
+    protected abstract String createTableSql();
+
+    /**
+     * Whether the Participants table exists; override for databases that
+     * change the case of unquoted names.
+     */
+    protected boolean tableExists(Connection conn) throws SQLException {
+        try (ResultSet tables = conn.getMetaData().getTables(null, null, "Participants", null)) {
+            return tables.next();
+        }
+    }
+
+    /**
+     * Bring an existing Participants table up to the current definition;
+     * does nothing unless overridden.
+     */
+    protected void upgradeSchema(Connection conn) throws SQLException {
+    }
+
+    @Override
+    public void createSchema() throws SQLException {
+        try (Connection conn = connectionPool.getConnection()) {
+            if (tableExists(conn)) {
+                System.out.println("Table 'Participants' already exists!");
+                upgradeSchema(conn);
+                return;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(createTableSql());
+                System.out.println("Table created successfully!");
+            }
+        }
+    }
+
+    @Override
+    public int insert(Participant participant) throws SQLException {
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            bind(pstmt, participant);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                throw new DuplicateParticipantException(DuplicateParticipantException.Reason.DUPLICATE_ID,
+                        participant.getRegistrationId(), e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void insertAll(List<Participant> participants) throws SQLException {
+        if (participants.isEmpty()) {
+            return;
+        }
+        // One batch in one transaction, so the database is written once
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            conn.setAutoCommit(false);
+            try {
+                for (Participant participant : participants) {
+                    bind(pstmt, participant);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Participant find(String registrationId) throws SQLException {
+        String sql = "SELECT * FROM Participants WHERE RegistrationID = ?";
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, registrationId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? toParticipant(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public Participant findByEmail(String email, String exceptRegistrationId) throws SQLException {
+        // Email is not indexed, so this scans the table; callers only ask when a duplicate is likely
+        String sql = exceptRegistrationId == null
+                ? "SELECT * FROM Participants WHERE LOWER(TRIM(Email)) = ?"
+                : "SELECT * FROM Participants WHERE LOWER(TRIM(Email)) = ? AND RegistrationID <> ?";
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, email);
+            if (exceptRegistrationId != null) {
+                pstmt.setString(2, exceptRegistrationId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? toParticipant(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public int update(Participant participant) throws SQLException {
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(UPDATE_SQL)) {
+            pstmt.setString(1, participant.getName());
+            pstmt.setString(2, participant.getDepartment());
+            pstmt.setString(3, participant.getPartner());
+            pstmt.setString(4, participant.getContact());
+            pstmt.setString(5, participant.getEmail());
+            pstmt.setString(6, participant.getImagePath());
+            pstmt.setString(7, participant.getRegistrationId());
+            return pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public int delete(String registrationId) throws SQLException {
+        String sql = "DELETE FROM Participants WHERE RegistrationID = ?";
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, registrationId);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        try (Connection conn = connectionPool.getConnection(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Participants")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public List<Participant> list(String afterId, int limit) throws SQLException {
+        String sql = afterId == null
+                ? "SELECT * FROM Participants ORDER BY RegistrationID LIMIT ?"
+                : "SELECT * FROM Participants WHERE RegistrationID > ? ORDER BY RegistrationID LIMIT ?";
+        try (Connection conn = connectionPool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterId != null) {
+                pstmt.setString(index++, afterId);
+            }
+            pstmt.setInt(index, limit);
+            List<Participant> participants = new ArrayList<>(Math.min(limit, 1000));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    participants.add(toParticipant(rs));
+                }
+            }
+            return participants;
+        }
+    }
+
+    @Override
+    public void forEach(ParticipantVisitor visitor) throws SQLException {
+        try (Connection conn = connectionPool.getConnection();
+                Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM Participants ORDER BY RegistrationID")) {
+                while (rs.next()) {
+                    visitor.visit(toParticipant(rs));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        connectionPool.close();
+    }
+
+    /**
+     * Whether the database refused a statement for breaking a constraint,
+     * such as a primary key. UCanAccess reports these with the standard
+     * SQLState class 23 but not as SQLIntegrityConstraintViolationException.
+     */
+    static boolean isConstraintViolation(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    /**
+     * Whether the database refused a statement for a duplicate key. HSQLDB
+     * and UCanAccess both report SQLState 23505 for these; a missing
+     * required value, for example, is 23502 and is not a duplicate.
+     */
+    static boolean isUniqueViolation(SQLException e) {
+        return DuplicateParticipantException.SQL_STATE.equals(e.getSQLState());
+    }
+
+    static void bind(PreparedStatement pstmt, Participant participant) throws SQLException {
+        pstmt.setString(1, participant.getRegistrationId());
+        pstmt.setString(2, participant.getName());
+        pstmt.setString(3, participant.getDepartment());
+        pstmt.setString(4, participant.getPartner());
+        pstmt.setString(5, participant.getContact());
+        pstmt.setString(6, participant.getEmail());
+        pstmt.setString(7, participant.getImagePath());
+    }
+
+    static Participant toParticipant(ResultSet rs) throws SQLException {
+        return new Participant(
+                rs.getString("RegistrationID"),
+                rs.getString("Name"),
+                rs.getString("Department"),
+                rs.getString("Partner"),
+                rs.getString("Contact"),
+                rs.getString("Email"),
+                rs.getString("ImagePath"));
+    }
+}
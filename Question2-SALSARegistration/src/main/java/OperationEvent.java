@@ -0,0 +1,56 @@
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * Java Flight Recorder event for one timed operation. Only operations
+ * slower than the threshold (10 ms unless the recording's settings say
+ * otherwise) are written, so it can stay enabled in production:
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=filename=salsa.jfr ...
+ * jfr print --events salsa.Operation salsa.jfr
+ * </pre>
+ *
+ * Only {@link OperationMetrics} touches this class, and only after
+ * checking that the JVM has JFR, so the application still runs where
+ * {@code jdk.jfr} is missing. The helpers take and return Object for the
+ * same reason.
+ */
+@Name("salsa.Operation")
+@Label("SALSA Operation")
+@Category("SALSA")
+@Description("A timed database or image operation")
+@Threshold("10 ms")
+@StackTrace(false)
+class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Error")
+    @Description("Error type, or null if the operation succeeded")
+    String error;
+
+    static Object start() {
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void finish(Object started, String operation, String error) {
+        OperationEvent event = (OperationEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.error = error;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,436 @@
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+
+/**
+ * Latency histograms and error counts for the application's operations.
+ *
+ * Wrap work in {@link #time} or {@link #timed}, or bracket it with
+ * {@link #start} and {@link Sample#stop}, to record how long it took
+ * and, if it failed, the error type. The numbers are published in
+ * three ways:
+ * <ul>
+ * <li>JMX: one {@code salsa:type=Operation,name=<operation>} MXBean per
+ * operation, plus {@code salsa:type=Stats,name=<component>} beans for
+ * the connection pool, caches and queues added with
+ * {@link #registerStats};</li>
+ * <li>a log line per operation every {@code -Dsalsa.metrics.logIntervalMs}
+ * (default 60000, 0 to turn off), as {@code key=value} pairs;</li>
+ * <li>a JFR {@link OperationEvent} for every operation slower than the
+ * event threshold, on JVMs with Flight Recorder.</li>
+ * </ul>
+ */
+public class OperationMetrics implements AutoCloseable {
+
+    public enum Operation {
+        CONNECT, REGISTER, SEARCH, UPDATE, DELETE, LIST, IMAGE_LOAD;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * JMX view of one operation. Latencies are in milliseconds.
+     */
+    public interface OperationMXBean {
+        long getCount();
+
+        long getErrors();
+
+        Map<String, Long> getErrorsByType();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP90Millis();
+
+        double getP99Millis();
+
+        double getMaxMillis();
+    }
+
+    private static final boolean JFR_AVAILABLE = jfrAvailable();
+
+    private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+    private ScheduledExecutorService logger;
+    private boolean closed;
+
+    public OperationMetrics() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Start timing an operation; call {@link Sample#stop} when it ends.
+     */
+    public Sample start(Operation operation) {
+        return new Sample(operation);
+    }
+
+    /**
+     * Run a task and record its latency, and its error type if it throws.
+     */
+    public <T> T time(Operation operation, Callable<T> task) throws Exception {
+        Sample sample = start(operation);
+        Exception error = null;
+        try {
+            return task.call();
+        } catch (Exception e) {
+            error = e;
+            throw e;
+        } finally {
+            sample.stop(error);
+        }
+    }
+
+    /**
+     * The task wrapped so each call is timed, for handing to an executor.
+     */
+    public <T> Callable<T> timed(Operation operation, Callable<T> task) {
+        return () -> time(operation, task);
+    }
+
+    /**
+     * Record an operation timed by the caller.
+     *
+     * @param error what it failed with, or null if it succeeded
+     */
+    public void record(Operation operation, long nanos, Throwable error) {
+        OperationStats stats = operations.get(operation);
+        stats.latency.record(nanos);
+        if (error != null) {
+            stats.errors.computeIfAbsent(errorType(error), type -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return operations.get(operation).latency;
+    }
+
+    /**
+     * Publish the operation MXBeans. Failures are logged, not thrown, since
+     * the application works without JMX.
+     */
+    public synchronized void registerMBeans() {
+        for (Map.Entry<Operation, OperationStats> entry : operations.entrySet()) {
+            register("salsa:type=Operation,name=" + entry.getKey().label(), entry.getValue());
+        }
+    }
+
+    /**
+     * Publish a component's statistics over JMX. Every public field of the
+     * snapshot the supplier returns becomes a read-only attribute, so the
+     * existing Stats classes can be used as they are.
+     */
+    public synchronized void registerStats(String name, Supplier<?> snapshot) {
+        register("salsa:type=Stats,name=" + name, new StatsMBean(snapshot));
+    }
+
+    /**
+     * Log every operation that has been used, every {@code periodMillis}.
+     */
+    public synchronized void startLogging(long periodMillis) {
+        if (periodMillis <= 0 || logger != null || closed) {
+            return;
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-logger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(this::log, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Print one line per operation that has been used.
+     */
+    public void log() {
+        for (Map.Entry<Operation, OperationStats> entry : operations.entrySet()) {
+            OperationStats stats = entry.getValue();
+            if (stats.getCount() > 0) {
+                System.out.println("metrics operation=" + entry.getKey().label() + " " + stats);
+            }
+        }
+    }
+
+    /**
+     * Stop logging, unregister the MBeans and print the final numbers.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (logger != null) {
+            logger.shutdownNow();
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                // Already gone
+            }
+        }
+        registeredNames.clear();
+        log();
+    }
+
+    private void register(String name, Object mbean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            registeredNames.add(objectName);
+        } catch (JMException e) {
+            System.err.println("Could not register MBean " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Duplicate registrations are counted by reason, everything else by
+     * exception class.
+     */
+    static String errorType(Throwable error) {
+        if (error instanceof DuplicateParticipantException) {
+            return ((DuplicateParticipantException) error).getReason().name();
+        }
+        return error.getClass().getSimpleName();
+    }
+
+    private static boolean jfrAvailable() {
+        if (!Boolean.parseBoolean(System.getProperty("salsa.metrics.jfr", "true"))) {
+            return false;
+        }
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * One operation being timed.
+     */
+    public final class Sample {
+
+        private final Operation operation;
+        private final Object event;
+        private final long start;
+
+        private Sample(Operation operation) {
+            this.operation = operation;
+            this.event = JFR_AVAILABLE ? OperationEvent.start() : null;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * @param error what the operation failed with, or null if it succeeded
+         */
+        public void stop(Throwable error) {
+            record(operation, System.nanoTime() - start, error);
+            if (event != null) {
+                OperationEvent.finish(event, operation.label(), error == null ? null : errorType(error));
+            }
+        }
+    }
+
+    private static final class OperationStats implements OperationMXBean {
+
+        final LatencyHistogram latency = new LatencyHistogram();
+        final ConcurrentHashMap<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public long getErrors() {
+            long total = 0;
+            for (AtomicLong count : errors.values()) {
+                total += count.get();
+            }
+            return total;
+        }
+
+        @Override
+        public Map<String, Long> getErrorsByType() {
+            Map<String, Long> byType = new TreeMap<>();
+            for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+                byType.put(entry.getKey(), entry.getValue().get());
+            }
+            return byType;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return millis(latency.getMeanNanos());
+        }
+
+        @Override
+        public double getP50Millis() {
+            return millis(latency.getValueAtPercentile(50));
+        }
+
+        @Override
+        public double getP90Millis() {
+            return millis(latency.getValueAtPercentile(90));
+        }
+
+        @Override
+        public double getP99Millis() {
+            return millis(latency.getValueAtPercentile(99));
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return millis(latency.getMaxNanos());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT,
+                    "count=%d errors=%d mean_ms=%.2f p50_ms=%.2f p90_ms=%.2f p99_ms=%.2f max_ms=%.2f",
+                    getCount(), getErrors(), getMeanMillis(), getP50Millis(), getP90Millis(),
+                    getP99Millis(), getMaxMillis()));
+            for (Map.Entry<String, Long> entry : getErrorsByType().entrySet()) {
+                line.append(" error.").append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            return line.toString();
+        }
+    }
+
+    /**
+     * Read-only MBean whose attributes are the public fields of a
+     * statistics snapshot, read fresh on every request.
+     */
+    private static final class StatsMBean implements DynamicMBean {
+
+        private final Supplier<?> snapshot;
+        private final Map<String, Field> fields = new LinkedHashMap<>();
+        private final MBeanInfo info;
+
+        StatsMBean(Supplier<?> snapshot) {
+            this.snapshot = snapshot;
+            Object sample = snapshot.get();
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Field field : sample.getClass().getFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fields.put(field.getName(), field);
+                    attributes.add(new MBeanAttributeInfo(field.getName(), wrapperType(field.getType()).getName(),
+                            field.getName(), true, false, false));
+                }
+            }
+            info = new MBeanInfo(sample.getClass().getName(), "Statistics snapshot",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException,
+                ReflectionException {
+            Field field = fields.get(attribute);
+            if (field == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            try {
+                return field.get(snapshot.get());
+            } catch (IllegalAccessException e) {
+                throw new ReflectionException(e);
+            }
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Object current = snapshot.get();
+            AttributeList values = new AttributeList();
+            for (String attribute : attributes) {
+                Field field = fields.get(attribute);
+                if (field != null) {
+                    try {
+                        values.add(new Attribute(attribute, field.get(current)));
+                    } catch (IllegalAccessException e) {
+                        // Leave the attribute out, as the JMX contract allows
+                    }
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return info;
+        }
+
+        private static Class<?> wrapperType(Class<?> type) {
+            if (type == int.class) {
+                return Integer.class;
+            }
+            if (type == long.class) {
+                return Long.class;
+            }
+            if (type == double.class) {
+                return Double.class;
+            }
+            if (type == boolean.class) {
+                return Boolean.class;
+            }
+            return type;
+        }
+    }
+}
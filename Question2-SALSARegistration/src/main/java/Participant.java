@@ -0,0 +1,68 @@
+
+/**
+ * One row of the Participants table.
+ */
+public final class Participant {
+
+    private final String registrationId;
+    private final String name;
+    private final String department;
+    private final String partner;
+    private final String contact;
+    private final String email;
+    private final String imagePath;
+
+    public Participant(String registrationId, String name, String department,
+            String partner, String contact, String email, String imagePath) {
+        this.registrationId = registrationId;
+        this.name = name;
+        this.department = department;
+        this.partner = partner;
+        this.contact = contact;
+        this.email = email;
+        this.imagePath = imagePath == null ? "" : imagePath;
+    }
+
+    public String getRegistrationId() {
+        return registrationId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public String getPartner() {
+        return partner;
+    }
+
+    public String getContact() {
+        return contact;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * This participant with a different image path, or itself if unchanged
+     */
+    public Participant withImagePath(String newImagePath) {
+        if (imagePath.equals(newImagePath == null ? "" : newImagePath)) {
+            return this;
+        }
+        return new Participant(registrationId, name, department, partner, contact, email, newImagePath);
+    }
+
+    @Override
+    public String toString() {
+        return "Participant[" + registrationId + ", " + name + "]";
+    }
+}
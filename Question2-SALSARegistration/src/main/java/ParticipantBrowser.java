@@ -0,0 +1,128 @@
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.function.Consumer;
+
+
+/**
+ * Window listing all participants in a paged, sortable and filterable
+ * table. Click a column header to sort by it and double-click a row to
+ * open that participant in the registration form.
+ */
+public class ParticipantBrowser extends JDialog {
+
+    private static final int PAGE_SIZE = 200;
+    private static final int CACHED_PAGES = 20;
+    private static final int FILTER_DELAY_MS = 250;
+
+    private final ParticipantTableModel model;
+    private final JTable table;
+    private final JLabel lblStatus = new JLabel(" ");
+
+    /**
+     * @param onOpen receives the Registration ID of a double-clicked row
+     */
+    public ParticipantBrowser(Frame owner, ConnectionPool connectionPool,
+            BackgroundExecutor executor, Consumer<String> onOpen) {
+        super(owner, "Browse Participants", false);
+        model = new ParticipantTableModel(connectionPool, executor, PAGE_SIZE, CACHED_PAGES);
+        model.setStatusListener(lblStatus::setText);
+
+        table = new JTable(model);
+        table.setFont(new Font("Arial", Font.PLAIN, 13));
+        table.setRowHeight(22);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && table.getSelectedRow() >= 0) {
+                    Participant participant = model.getParticipant(table.getSelectedRow());
+                    if (participant != null) {
+                        onOpen.accept(participant.getRegistrationId());
+                    }
+                }
+            }
+        });
+
+        // Sorting is done by the database, so the header drives the model directly
+        JTableHeader header = table.getTableHeader();
+        header.setFont(new Font("Arial", Font.BOLD, 13));
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.convertColumnIndexToModel(header.columnAtPoint(e.getPoint()));
+                if (column >= 0) {
+                    model.sortBy(column);
+                    updateHeaders();
+                }
+            }
+        });
+
+        JTextField txtFilter = new JTextField(30);
+        txtFilter.setFont(new Font("Arial", Font.PLAIN, 14));
+        Timer filterTimer = new Timer(FILTER_DELAY_MS, e -> model.setFilter(txtFilter.getText()));
+        filterTimer.setRepeats(false);
+        txtFilter.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+        });
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JLabel lblFilter = new JLabel("Filter:");
+        lblFilter.setFont(new Font("Arial", Font.BOLD, 14));
+        filterPanel.add(lblFilter);
+        filterPanel.add(txtFilter);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(filterPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(lblStatus, BorderLayout.SOUTH);
+        setContentPane(panel);
+
+        updateHeaders();
+        setSize(900, 500);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Load the first page and show the window.
+     */
+    public void open() {
+        model.reload();
+        setVisible(true);
+    }
+
+    /**
+     * Mark the sorted column with an arrow
+     */
+    private void updateHeaders() {
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            int column = table.convertColumnIndexToModel(i);
+            String name = ParticipantTableModel.COLUMN_NAMES[column];
+            if (column == model.getSortColumn()) {
+                name += model.isAscending() ? " \u25B2" : " \u25BC";
+            }
+            table.getColumnModel().getColumn(i).setHeaderValue(name);
+        }
+        table.getTableHeader().repaint();
+    }
+}
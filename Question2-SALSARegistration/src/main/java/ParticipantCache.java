@@ -0,0 +1,165 @@
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Bounded LRU cache of participants keyed by RegistrationID, with an
+ * optional time-to-live. IDs are compared ignoring case and surrounding
+ * spaces, like the Access primary key, so "r001" finds and invalidates
+ * the entry for "R001".
+ *
+ * Lookups read through the cache and writes keep it coherent: callers put
+ * the new record after a successful INSERT or UPDATE and invalidate it
+ * after a DELETE. Every write bumps a version number, so a lookup that
+ * raced with a write can detect that its result is already stale and skip
+ * caching it (see {@link #putIfUnchanged}).
+ */
+public class ParticipantCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, CachedParticipant> entries;
+    private long version = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    /**
+     * @param maxEntries maximum number of cached participants
+     * @param ttlMillis how long an entry stays valid, or 0 for no expiry
+     */
+    public ParticipantCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, CachedParticipant>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedParticipant> eldest) {
+                if (size() > ParticipantCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the cached participant, or null on a miss.
+     */
+    public synchronized Participant get(String registrationId) {
+        String key = ParticipantKeyIndex.normalizeId(registrationId);
+        CachedParticipant entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (ttlMillis > 0 && System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+            entries.remove(key);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.participant;
+    }
+
+    /**
+     * Version to pass to {@link #putIfUnchanged} when caching a value read
+     * from the database.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Cache a freshly written participant.
+     */
+    public synchronized void put(Participant participant) {
+        version++;
+        entries.put(ParticipantKeyIndex.normalizeId(participant.getRegistrationId()),
+                new CachedParticipant(participant));
+    }
+
+    /**
+     * Cache a participant read from the database, unless a write has
+     * happened since {@code readVersion} was taken.
+     */
+    public synchronized boolean putIfUnchanged(Participant participant, long readVersion) {
+        if (version != readVersion) {
+            return false;
+        }
+        entries.put(ParticipantKeyIndex.normalizeId(participant.getRegistrationId()),
+                new CachedParticipant(participant));
+        return true;
+    }
+
+    /**
+     * Drop a participant after it was deleted or its write failed.
+     */
+    public synchronized void invalidate(String registrationId) {
+        version++;
+        entries.remove(ParticipantKeyIndex.normalizeId(registrationId));
+    }
+
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), maxEntries, hits, misses, evictions, expirations);
+    }
+
+    /**
+     * Immutable view of cache statistics.
+     */
+    public static final class Stats {
+
+        public final int size;
+        public final int maxEntries;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long expirations;
+
+        Stats(int size, int maxEntries, long hits, long misses, long evictions, long expirations) {
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d/%d, hits=%d, misses=%d, hitRatio=%.1f%%, "
+                    + "evictions=%d, expirations=%d",
+                    size, maxEntries, hits, misses, hitRatio() * 100, evictions, expirations);
+        }
+    }
+
+    private static final class CachedParticipant {
+
+        final Participant participant;
+        final long storedAt = System.currentTimeMillis();
+
+        CachedParticipant(Participant participant) {
+            this.participant = participant;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Streams the Participants table to CSV or JSON Lines.
+ *
+ * Rows are read with a forward-only, read-only result set and written one
+ * at a time through a fixed-size buffer onto a file channel, so memory use
+ * does not grow with the number of participants.
+ */
+public class ParticipantExporter {
+
+    public enum Format {
+        CSV, JSONL
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ConnectionPool connectionPool;
+    private final int fetchSize;
+
+    public ParticipantExporter(ConnectionPool connectionPool, int fetchSize) {
+        this.connectionPool = connectionPool;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Export the given columns of every participant to {@code target}.
+     *
+     * @param columns column names from {@link ParticipantImporter#COLUMNS}
+     * @param gzip whether to gzip the output
+     * @return number of rows written
+     */
+    public long export(Path target, Format format, List<String> columns, boolean gzip)
+            throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(columns.get(i));
+        }
+        sql.append(" FROM Participants");
+
+        long rows = 0;
+        try (Connection conn = connectionPool.getConnection();
+                Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ChannelTextWriter out = ChannelTextWriter.open(target, gzip)) {
+
+            stmt.setFetchSize(fetchSize);
+            StringBuilder line = new StringBuilder(256);
+            // CRLF as RFC 4180 and CsvWriter use; JSON Lines are separated by LF
+            String lineEnd = format == Format.CSV ? "\r\n" : "\n";
+
+            if (format == Format.CSV) {
+                for (int i = 0; i < columns.size(); i++) {
+                    line.append(i > 0 ? "," : "").append(columns.get(i));
+                }
+                out.write(line.append(lineEnd));
+            }
+
+            try (ResultSet rs = stmt.executeQuery(sql.toString())) {
+                while (rs.next()) {
+                    line.setLength(0);
+                    if (format == Format.CSV) {
+                        for (int i = 0; i < columns.size(); i++) {
+                            if (i > 0) {
+                                line.append(',');
+                            }
+                            line.append(CsvWriter.escape(rs.getString(i + 1)));
+                        }
+                    } else {
+                        line.append('{');
+                        for (int i = 0; i < columns.size(); i++) {
+                            if (i > 0) {
+                                line.append(',');
+                            }
+                            Json.quote(line, columns.get(i)).append(':');
+                            Json.quote(line, rs.getString(i + 1));
+                        }
+                        line.append('}');
+                    }
+                    out.write(line.append(lineEnd));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Resolve a comma separated column list against the table columns.
+     */
+    static List<String> parseColumns(String spec) {
+        List<String> columns = new ArrayList<>();
+        for (String name : spec.split(",")) {
+            String column = null;
+            for (String known : ParticipantImporter.COLUMNS) {
+                if (known.equalsIgnoreCase(name.trim())) {
+                    column = known;
+                }
+            }
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown column: " + name.trim());
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    /**
+     * Command line entry point:
+     * {@code --export <file> [--format csv|jsonl] [--gzip] [--columns a,b,c] [--fetch-size <n>]}
+     *
+     * @return process exit code
+     */
+    static int run(String[] args) {
+        String usage = "Usage: --export <file> [--format csv|jsonl] [--gzip] "
+                + "[--columns RegistrationID,Name,...] [--fetch-size <n>]";
+        Path target = null;
+        Format format = null;
+        boolean gzip = false;
+        List<String> columns = parseColumns(String.join(",", ParticipantImporter.COLUMNS));
+        int fetchSize = 1000;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--export":
+                        target = Paths.get(args[++i]);
+                        break;
+                    case "--format":
+                        format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                        break;
+                    case "--gzip":
+                        gzip = true;
+                        break;
+                    case "--columns":
+                        columns = parseColumns(args[++i]);
+                        break;
+                    case "--fetch-size":
+                        fetchSize = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        return 2;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            System.err.println(usage);
+            return 2;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage);
+            return 2;
+        }
+        if (target == null) {
+            System.err.println(usage);
+            return 2;
+        }
+        String fileName = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        gzip |= fileName.endsWith(".gz");
+        if (format == null) {
+            format = fileName.contains(".json") ? Format.JSONL : Format.CSV;
+        }
+
+        long start = System.nanoTime();
+        try (JdbcParticipantRepository repository = SALSARegistrationSystem.openRepository(SALSARegistrationSystem.BACKEND)) {
+            long rows = new ParticipantExporter(repository.getConnectionPool(), fetchSize)
+                    .export(target, format, columns, gzip);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Exported %d participants to %s in %.2f s (%.0f rows/sec)%n",
+                    rows, target, seconds, rows / Math.max(seconds, 1e-9));
+            return 0;
+        } catch (IOException | SQLException e) {
+            e.printStackTrace();
+            System.err.println("Export Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * UTF-8 text writer that encodes into one reusable buffer and drains
+     * it onto a channel whenever it fills up.
+     */
+    private static final class ChannelTextWriter implements AutoCloseable {
+
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private ChannelTextWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        static ChannelTextWriter open(Path target, boolean gzip) throws IOException {
+            FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            if (!gzip) {
+                return new ChannelTextWriter(file);
+            }
+            OutputStream compressed = new GZIPOutputStream(Channels.newOutputStream(file), BUFFER_SIZE);
+            return new ChannelTextWriter(Channels.newChannel(compressed));
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    result.throwException();
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
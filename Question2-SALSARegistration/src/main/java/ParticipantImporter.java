@@ -0,0 +1,316 @@
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Bulk import of participants from a CSV file.
+ *
+ * Rows are validated with the same rules as the registration form and
+ * inserted with JDBC batches, one transaction per chunk, so the Access
+ * file is written once per chunk instead of once per row. Registration
+ * IDs and emails already in the database are caught by a
+ * {@link ParticipantKeyIndex} before they reach a batch, so a duplicate
+ * does not force its whole chunk into the slow row-by-row fallback.
+ * Invalid rows, duplicates and rows the database refuses are written to
+ * a reject file with the reason.
+ *
+ * The CSV may start with a header naming the columns in any order;
+ * without one the columns are read in table order.
+ */
+public class ParticipantImporter {
+
+    static final String[] COLUMNS = {"RegistrationID", "Name", "Department",
+        "Partner", "Contact", "Email", "ImagePath"};
+
+    // ImagePath is optional in the input
+    private static final int REQUIRED_COLUMNS = 6;
+
+    private final ConnectionPool connectionPool;
+    private final ParticipantKeyIndex keys;
+    private final int batchSize;
+
+    /**
+     * @param keys duplicate check for participants already stored
+     */
+    public ParticipantImporter(ConnectionPool connectionPool, ParticipantKeyIndex keys, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.connectionPool = connectionPool;
+        this.keys = keys;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import every row of {@code csvFile}, writing rejected rows to
+     * {@code rejectFile}.
+     */
+    public Summary importCsv(Path csvFile, Path rejectFile) throws IOException, SQLException {
+        long start = System.nanoTime();
+        Summary summary = new Summary();
+
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(csvFile, StandardCharsets.UTF_8));
+                CsvWriter rejects = new CsvWriter(Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8));
+                Connection conn = connectionPool.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(JdbcParticipantRepository.INSERT_SQL)) {
+
+            conn.setAutoCommit(false);
+            String[] rejectHeader = new String[COLUMNS.length + 2];
+            rejectHeader[0] = "Line";
+            System.arraycopy(COLUMNS, 0, rejectHeader, 1, COLUMNS.length);
+            rejectHeader[rejectHeader.length - 1] = "Error";
+            rejects.writeRecord(rejectHeader);
+
+            String[] record = reader.readRecord();
+            int[] columnIndex = headerColumns(record);
+            if (columnIndex != null) {
+                record = reader.readRecord();
+            } else {
+                columnIndex = new int[]{0, 1, 2, 3, 4, 5, 6};
+            }
+
+            Chunk chunk = new Chunk(batchSize);
+            Set<String> seenIds = new HashSet<>();
+            Set<String> seenEmails = new HashSet<>();
+
+            for (; record != null; record = reader.readRecord()) {
+                if (record.length == 1 && record[0].trim().isEmpty()) {
+                    continue;
+                }
+                summary.rowsRead++;
+                long line = reader.getRecordLine();
+                Participant participant = toParticipant(record, columnIndex);
+
+                String error = ParticipantValidator.validate(participant);
+                if (error == null && !seenIds.add(ParticipantKeyIndex.normalizeId(participant.getRegistrationId()))) {
+                    error = "Registration ID appears more than once in the file";
+                }
+                if (error == null && !seenEmails.add(ParticipantKeyIndex.normalizeEmail(participant.getEmail()))) {
+                    error = "Email appears more than once in the file";
+                }
+                if (error == null) {
+                    try {
+                        keys.checkNew(participant);
+                    } catch (DuplicateParticipantException e) {
+                        error = e.getReason().getMessage();
+                    }
+                }
+                if (error != null) {
+                    reject(rejects, line, participant, error, summary);
+                    continue;
+                }
+
+                chunk.add(participant, line);
+                if (chunk.size() == batchSize) {
+                    writeChunk(conn, pstmt, chunk, rejects, summary);
+                }
+            }
+            writeChunk(conn, pstmt, chunk, rejects, summary);
+        }
+
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    /**
+     * Insert a chunk in one transaction. If the batch fails, fall back to
+     * row-by-row inserts so only the offending rows are rejected.
+     */
+    private void writeChunk(Connection conn, PreparedStatement pstmt, Chunk chunk,
+            CsvWriter rejects, Summary summary) throws SQLException, IOException {
+        if (chunk.size() == 0) {
+            return;
+        }
+        try {
+            for (Participant participant : chunk.participants) {
+                JdbcParticipantRepository.bind(pstmt, participant);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            conn.commit();
+            summary.imported += chunk.size();
+        } catch (SQLException e) {
+            // UCanAccess wraps the BatchUpdateException, so any failure triggers the fallback
+            conn.rollback();
+            pstmt.clearBatch();
+            for (int i = 0; i < chunk.size(); i++) {
+                Participant participant = chunk.participants.get(i);
+                try {
+                    JdbcParticipantRepository.bind(pstmt, participant);
+                    pstmt.executeUpdate();
+                    summary.imported++;
+                } catch (SQLException rowError) {
+                    reject(rejects, chunk.lines.get(i), participant, rowError.getMessage(), summary);
+                }
+            }
+            conn.commit();
+        }
+        summary.chunks++;
+        chunk.clear();
+    }
+
+    private static void reject(CsvWriter rejects, long line, Participant participant,
+            String error, Summary summary) throws IOException {
+        rejects.writeRecord(String.valueOf(line),
+                participant.getRegistrationId(), participant.getName(),
+                participant.getDepartment(), participant.getPartner(),
+                participant.getContact(), participant.getEmail(),
+                participant.getImagePath(), error);
+        summary.rejected++;
+    }
+
+    /**
+     * Map table columns to positions in a header record.
+     *
+     * @return column positions indexed like {@link #COLUMNS}, with -1 for
+     *         missing optional columns, or null if the record is not a header
+     */
+    private static int[] headerColumns(String[] record) {
+        if (record == null) {
+            return null;
+        }
+        int[] index = new int[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            index[c] = -1;
+            for (int i = 0; i < record.length; i++) {
+                if (COLUMNS[c].equalsIgnoreCase(record[i].trim())) {
+                    index[c] = i;
+                    break;
+                }
+            }
+        }
+        for (int c = 0; c < REQUIRED_COLUMNS; c++) {
+            if (index[c] < 0) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    private static Participant toParticipant(String[] record, int[] columnIndex) {
+        String[] values = new String[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            int i = columnIndex[c];
+            values[c] = i >= 0 && i < record.length ? record[i].trim() : "";
+        }
+        return new Participant(values[0], values[1], values[2], values[3],
+                values[4], values[5], values[6]);
+    }
+
+    /**
+     * Command line entry point:
+     * {@code --import <file.csv> [--rejects <file>] [--batch-size <n>]}
+     *
+     * @return process exit code
+     */
+    static int run(String[] args) {
+        Path csvFile = null;
+        Path rejectFile = null;
+        int batchSize = 500;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--import":
+                        csvFile = Paths.get(args[++i]);
+                        break;
+                    case "--rejects":
+                        rejectFile = Paths.get(args[++i]);
+                        break;
+                    case "--batch-size":
+                        batchSize = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        return 2;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println("Usage: --import <file.csv> [--rejects <file>] [--batch-size <n>]");
+            return 2;
+        }
+        if (csvFile == null) {
+            System.err.println("Usage: --import <file.csv> [--rejects <file>] [--batch-size <n>]");
+            return 2;
+        }
+        if (rejectFile == null) {
+            rejectFile = Paths.get(csvFile + ".rejects.csv");
+        }
+
+        try (JdbcParticipantRepository repository = SALSARegistrationSystem.openRepository(SALSARegistrationSystem.BACKEND)) {
+            repository.createSchema();
+            System.out.println("Importing " + csvFile + " in batches of " + batchSize + "...");
+            ParticipantKeyIndex keys = new ParticipantKeyIndex(repository);
+            keys.load();
+            Summary summary = new ParticipantImporter(repository.getConnectionPool(), keys, batchSize)
+                    .importCsv(csvFile, rejectFile);
+            System.out.println("Duplicate checks: " + keys.getStats());
+            System.out.println("Import finished: " + summary);
+            if (summary.rejected > 0) {
+                System.out.println("Rejected rows written to " + rejectFile);
+            }
+            return summary.rejected > 0 ? 1 : 0;
+        } catch (IOException | SQLException e) {
+            e.printStackTrace();
+            System.err.println("Import Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Counters for one import run.
+     */
+    public static final class Summary {
+
+        public long rowsRead;
+        public long imported;
+        public long rejected;
+        public long chunks;
+        public long elapsedNanos;
+
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d imported, %d rejected, %d chunks in %.2f s (%.0f rows/sec)",
+                    rowsRead, imported, rejected, chunks, elapsedNanos / 1e9, rowsPerSecond());
+        }
+    }
+
+    private static final class Chunk {
+
+        final List<Participant> participants;
+        final List<Long> lines;
+
+        Chunk(int capacity) {
+            participants = new ArrayList<>(capacity);
+            lines = new ArrayList<>(capacity);
+        }
+
+        void add(Participant participant, long line) {
+            participants.add(participant);
+            lines.add(line);
+        }
+
+        int size() {
+            return participants.size();
+        }
+
+        void clear() {
+            participants.clear();
+            lines.clear();
+        }
+    }
+}
@@ -0,0 +1,362 @@
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+
+/**
+ * In-memory membership test for Registration IDs and email addresses, so
+ * a registration can be checked for duplicates without a database round
+ * trip.
+ *
+ * Each key is stored as a 64-bit hash in an open-addressing set of
+ * primitive longs. A miss proves the key is free. A hit may be a hash
+ * collision or a key that has since been deleted or changed, so it is
+ * confirmed with one database lookup before the registration is
+ * refused. Until {@link #markLoaded()} every check goes to the database.
+ *
+ * IDs are compared ignoring case, like the Access primary key, and
+ * emails ignoring case and surrounding spaces. Deleting a participant
+ * drops its ID; emails are never dropped, because legacy data may share
+ * one between participants. A stale email only costs an extra lookup.
+ *
+ * Each email also records the hash of the ID that last stored it, so an
+ * update that keeps a participant's own email is answered without the
+ * email lookup, which scans the table. An email that several stored
+ * participants share when the index is loaded has no single owner and
+ * is always confirmed.
+ */
+public class ParticipantKeyIndex {
+
+    // Owner of an email held by more than one participant
+    private static final long SHARED = -1;
+
+    private final ParticipantRepository repository;
+    private final LongHashSet ids = new LongHashSet();
+    // Email hash to the hash of the ID that last stored it, or SHARED
+    private final LongLongHashMap emails = new LongLongHashMap();
+    private boolean loaded;
+
+    private long checks = 0;
+    private long answeredInMemory = 0;
+    private long databaseLookups = 0;
+    private long duplicates = 0;
+
+    /**
+     * @param repository used to confirm possible duplicates
+     */
+    public ParticipantKeyIndex(ParticipantRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Add every stored participant and mark the index loaded.
+     */
+    public void load() throws SQLException {
+        repository.forEach(this::add);
+        markLoaded();
+    }
+
+    /**
+     * Record a participant's ID and email. Once loaded, the participant
+     * becomes the email's owner: it was checked before being stored, so
+     * any earlier owner has since moved to another email or been deleted.
+     */
+    public synchronized void add(Participant participant) {
+        ids.add(hash(normalizeId(participant.getRegistrationId())));
+        String email = normalizeEmail(participant.getEmail());
+        if (email != null) {
+            long key = hash(email);
+            long id = owner(participant.getRegistrationId());
+            long owner = emails.get(key);
+            emails.put(key, loaded || owner == 0 || owner == id ? id : SHARED);
+        }
+    }
+
+    /**
+     * Forget a deleted participant's ID.
+     */
+    public synchronized void removeId(String registrationId) {
+        ids.remove(hash(normalizeId(registrationId)));
+    }
+
+    /**
+     * Start answering from memory; call once every stored participant has
+     * been added.
+     */
+    public synchronized void markLoaded() {
+        loaded = true;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Check a new registration.
+     *
+     * @throws DuplicateParticipantException if its ID or email is taken
+     */
+    public void checkNew(Participant participant) throws SQLException {
+        String id = participant.getRegistrationId();
+        String email = normalizeEmail(participant.getEmail());
+        boolean idSeen;
+        boolean emailSeen;
+        synchronized (this) {
+            checks++;
+            idSeen = !loaded || ids.contains(hash(normalizeId(id)));
+            emailSeen = email != null && (!loaded || emails.get(hash(email)) != 0);
+            if (!idSeen && !emailSeen) {
+                answeredInMemory++;
+                return;
+            }
+        }
+        if (idSeen && confirm(repository.find(id) != null)) {
+            throw new DuplicateParticipantException(DuplicateParticipantException.Reason.DUPLICATE_ID, id);
+        }
+        if (emailSeen && confirm(repository.findByEmail(email, null) != null)) {
+            throw new DuplicateParticipantException(DuplicateParticipantException.Reason.DUPLICATE_EMAIL, email);
+        }
+    }
+
+    /**
+     * Check an update to an existing participant, whose new email must not
+     * belong to anyone else. An unused email, or one this participant
+     * already owns, needs no database lookup.
+     *
+     * @throws DuplicateParticipantException if the email is taken
+     */
+    public void checkUpdate(Participant participant) throws SQLException {
+        String email = normalizeEmail(participant.getEmail());
+        if (email == null) {
+            return;
+        }
+        synchronized (this) {
+            checks++;
+            long owner = emails.get(hash(email));
+            if (loaded && (owner == 0 || owner == owner(participant.getRegistrationId()))) {
+                answeredInMemory++;
+                return;
+            }
+        }
+        if (confirm(repository.findByEmail(email, participant.getRegistrationId()) != null)) {
+            throw new DuplicateParticipantException(DuplicateParticipantException.Reason.DUPLICATE_EMAIL, email);
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(ids.size(), emails.size(), checks, answeredInMemory, databaseLookups, duplicates);
+    }
+
+    private synchronized boolean confirm(boolean duplicate) {
+        databaseLookups++;
+        if (duplicate) {
+            duplicates++;
+        }
+        return duplicate;
+    }
+
+    /**
+     * The value recorded for an email's owner: the ID's hash, never zero
+     */
+    private static long owner(String registrationId) {
+        long h = hash(normalizeId(registrationId));
+        return h == 0 ? 1 : h;
+    }
+
+    static String normalizeId(String registrationId) {
+        return registrationId.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the email as compared for duplicates, or null if blank
+     */
+    static String normalizeEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String trimmed = email.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3
+     * mixer so nearby strings spread across the table.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Set of longs with linear probing. Zero marks an empty slot, so a zero
+     * key is stored as one; that only adds a collision. Removal shifts the
+     * following entries back instead of leaving tombstones.
+     */
+    private static final class LongHashSet {
+
+        private long[] slots = new long[1024];
+        private int size;
+
+        boolean contains(long key) {
+            key = key == 0 ? 1 : key;
+            int mask = slots.length - 1;
+            for (int i = (int) key & mask; slots[i] != 0; i = (i + 1) & mask) {
+                if (slots[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long key) {
+            key = key == 0 ? 1 : key;
+            // Keep the table at most half full so probe runs stay short
+            if (size * 2 >= slots.length) {
+                resize();
+            }
+            int mask = slots.length - 1;
+            int i = (int) key & mask;
+            for (; slots[i] != 0; i = (i + 1) & mask) {
+                if (slots[i] == key) {
+                    return;
+                }
+            }
+            slots[i] = key;
+            size++;
+        }
+
+        void remove(long key) {
+            key = key == 0 ? 1 : key;
+            int mask = slots.length - 1;
+            int i = (int) key & mask;
+            while (slots[i] != key) {
+                if (slots[i] == 0) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            // Move back any later entry whose home slot is at or before the gap
+            int gap = i;
+            for (int j = (gap + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = (int) slots[j] & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    slots[gap] = slots[j];
+                    gap = j;
+                }
+            }
+            slots[gap] = 0;
+            size--;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void resize() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            size = 0;
+            for (long key : old) {
+                if (key != 0) {
+                    add(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Map from long to long with linear probing, for keys that are never
+     * removed. As in {@link LongHashSet} a zero key is stored as one; a
+     * zero value means the key is absent, so values must not be zero.
+     */
+    private static final class LongLongHashMap {
+
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private int size;
+
+        long get(long key) {
+            key = key == 0 ? 1 : key;
+            int mask = keys.length - 1;
+            for (int i = (int) key & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return 0;
+        }
+
+        void put(long key, long value) {
+            key = key == 0 ? 1 : key;
+            // Keep the table at most half full so probe runs stay short
+            if (size * 2 >= keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = (int) key & mask;
+            for (; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the index counters.
+     */
+    public static final class Stats {
+
+        public final int ids;
+        public final int emails;
+        public final long checks;
+        public final long answeredInMemory;
+        public final long databaseLookups;
+        public final long duplicates;
+
+        Stats(int ids, int emails, long checks, long answeredInMemory, long databaseLookups, long duplicates) {
+            this.ids = ids;
+            this.emails = emails;
+            this.checks = checks;
+            this.answeredInMemory = answeredInMemory;
+            this.databaseLookups = databaseLookups;
+            this.duplicates = duplicates;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ids=%d, emails=%d, checks=%d, answeredInMemory=%d, databaseLookups=%d, "
+                    + "duplicates=%d", ids, emails, checks, answeredInMemory, databaseLookups, duplicates);
+        }
+    }
+}
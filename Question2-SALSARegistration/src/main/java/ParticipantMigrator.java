@@ -0,0 +1,122 @@
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Copies every participant from one storage backend to another.
+ *
+ * Rows are streamed from the source and written to the target in batches,
+ * one transaction per batch. The target must be empty, and the row counts
+ * of both sides are compared at the end so a partial copy is reported.
+ */
+public class ParticipantMigrator {
+
+    private final ParticipantRepository source;
+    private final ParticipantRepository target;
+    private final int batchSize;
+
+    public ParticipantMigrator(ParticipantRepository source, ParticipantRepository target, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.source = source;
+        this.target = target;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Copy all participants.
+     *
+     * @return number of participants copied
+     */
+    public long migrate() throws SQLException {
+        target.createSchema();
+        int existing = target.count();
+        if (existing > 0) {
+            throw new SQLException("Target already holds " + existing
+                    + " participants; migrate into an empty database");
+        }
+
+        List<Participant> batch = new ArrayList<>(batchSize);
+        long[] copied = {0};
+        source.forEach(participant -> {
+            batch.add(participant);
+            if (batch.size() == batchSize) {
+                target.insertAll(batch);
+                copied[0] += batch.size();
+                batch.clear();
+            }
+        });
+        target.insertAll(batch);
+        copied[0] += batch.size();
+
+        int sourceCount = source.count();
+        int targetCount = target.count();
+        if (sourceCount != targetCount) {
+            throw new SQLException("Row counts differ after migration: source " + sourceCount
+                    + ", target " + targetCount);
+        }
+        return copied[0];
+    }
+
+    /**
+     * Command line entry point:
+     * {@code --migrate --from access|hsqldb --to access|hsqldb [--batch-size <n>]}
+     *
+     * @return process exit code
+     */
+    static int run(String[] args) {
+        String usage = "Usage: --migrate --from access|hsqldb --to access|hsqldb [--batch-size <n>]";
+        String from = null;
+        String to = null;
+        int batchSize = 1000;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--migrate":
+                        break;
+                    case "--from":
+                        from = args[++i];
+                        break;
+                    case "--to":
+                        to = args[++i];
+                        break;
+                    case "--batch-size":
+                        batchSize = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        return 2;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(usage);
+            return 2;
+        }
+        if (from == null || to == null || from.equals(to)) {
+            System.err.println(usage);
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        try (JdbcParticipantRepository source = SALSARegistrationSystem.openRepository(from);
+                JdbcParticipantRepository target = SALSARegistrationSystem.openRepository(to)) {
+            System.out.println("Migrating participants from " + from + " to " + to + "...");
+            long copied = new ParticipantMigrator(source, target, batchSize).migrate();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Migrated %d participants in %.2f s (%.0f rows/sec)%n",
+                    copied, seconds, copied / Math.max(seconds, 1e-9));
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(usage);
+            return 2;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.err.println("Migration Error: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+
+import java.sql.SQLException;
+import java.util.List;
+
+
+/**
+ * Storage for registered participants.
+ *
+ * Implementations are safe to use from several threads at once.
+ */
+public interface ParticipantRepository extends AutoCloseable {
+
+    /**
+     * Callback for {@link #forEach}.
+     */
+    interface ParticipantVisitor {
+        void visit(Participant participant) throws SQLException;
+    }
+
+    /**
+     * Create the participant storage if it does not exist yet.
+     */
+    void createSchema() throws SQLException;
+
+    /**
+     * @return number of rows inserted
+     * @throws DuplicateParticipantException if the Registration ID exists
+     */
+    int insert(Participant participant) throws SQLException;
+
+    /**
+     * Insert several participants in one transaction; nothing is stored
+     * if any of them fails.
+     */
+    void insertAll(List<Participant> participants) throws SQLException;
+
+    /**
+     * @return the participant, or null if none has this ID
+     */
+    Participant find(String registrationId) throws SQLException;
+
+    /**
+     * A participant whose email matches ignoring case and surrounding
+     * spaces, or null.
+     *
+     * @param email normalized email: trimmed and lower case
+     * @param exceptRegistrationId participant to leave out, or null
+     */
+    Participant findByEmail(String email, String exceptRegistrationId) throws SQLException;
+
+    /**
+     * @return number of rows updated, 0 if the participant does not exist
+     */
+    int update(Participant participant) throws SQLException;
+
+    /**
+     * @return number of rows deleted, 0 if the participant does not exist
+     */
+    int delete(String registrationId) throws SQLException;
+
+    int count() throws SQLException;
+
+    /**
+     * Up to {@code limit} participants ordered by Registration ID, starting
+     * after {@code afterId}, or from the first if it is null.
+     */
+    List<Participant> list(String afterId, int limit) throws SQLException;
+
+    /**
+     * Visit every participant, streaming rather than loading them all.
+     */
+    void forEach(ParticipantVisitor visitor) throws SQLException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,537 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * In-memory search index over participant names, departments, partners,
+ * emails and registration IDs.
+ *
+ * Words are kept in a sorted map from word to the participants containing
+ * it, which answers prefix queries with a range scan. A second map from
+ * character trigrams to words finds spelling variants for typo-tolerant
+ * matching. Every word of a query must match a participant, either
+ * exactly, as a prefix, or within a small edit distance (counting a swap
+ * of adjacent letters as one edit). Misspelt matches are only looked up
+ * when exact and prefix matches do not fill the requested number of
+ * results.
+ *
+ * The index is built once from the database and then kept current with
+ * {@link #put} and {@link #remove}. Removed entries are dropped lazily and
+ * the postings are compacted when they pile up.
+ */
+public class ParticipantSearchIndex {
+
+    private static final int SCORE_EXACT = 3;
+    private static final int SCORE_PREFIX = 2;
+    private static final int SCORE_FUZZY = 1;
+
+    // Upper bound on participants examined per query, keeps short prefixes fast
+    private static final int MAX_CANDIDATES = 2000;
+
+    // Each participant's word list starts with its ID and whole email address
+    private static final int PREFIX_ONLY_WORDS = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, IntList> postings = new TreeMap<>();
+    private final Map<String, List<String>> trigrams = new HashMap<>();
+    // Words already listed under their trigrams
+    private final Set<String> gramWords = new HashSet<>();
+    // Keyed by ParticipantKeyIndex.normalizeId, as IDs ignore case like the Access key
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<Participant> docs = new ArrayList<>();
+    private final List<String[]> docWords = new ArrayList<>();
+    private int removed = 0;
+
+    /**
+     * Add a participant, replacing any earlier entry with the same ID
+     * ignoring case.
+     */
+    public void put(Participant participant) {
+        lock.writeLock().lock();
+        try {
+            String key = ParticipantKeyIndex.normalizeId(participant.getRegistrationId());
+            removeLocked(key);
+            add(key, participant);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index a participant whose key is not in the index.
+     */
+    private void add(String key, Participant participant) {
+        int docId = docs.size();
+        String[] words = words(participant);
+        docs.add(participant);
+        docWords.add(words);
+        docIds.put(key, docId);
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            // IDs and whole email addresses (the first words) are unique per
+            // participant and only worth prefix matching, but the same word can
+            // also appear in another participant's name or department
+            if (i >= PREFIX_ONLY_WORDS && gramWords.add(word)) {
+                for (String gram : grams(word)) {
+                    trigrams.computeIfAbsent(gram, g -> new ArrayList<>()).add(word);
+                }
+            }
+            IntList list = postings.computeIfAbsent(word, w -> new IntList());
+            // A name word can repeat the ID or email; list the participant once
+            if (list.size == 0 || list.values[list.size - 1] != docId) {
+                list.add(docId);
+            }
+        }
+    }
+
+    public void remove(String registrationId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(ParticipantKeyIndex.normalizeId(registrationId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            trigrams.clear();
+            gramWords.clear();
+            docIds.clear();
+            docs.clear();
+            docWords.clear();
+            removed = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(String key) {
+        Integer docId = docIds.remove(key);
+        if (docId == null) {
+            return;
+        }
+        docs.set(docId, null);
+        docWords.set(docId, null);
+        removed++;
+        if (removed > 1000 && removed > docIds.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuild the postings without removed participants.
+     */
+    private void compact() {
+        List<Participant> live = new ArrayList<>(docIds.size());
+        for (Participant participant : docs) {
+            if (participant != null) {
+                live.add(participant);
+            }
+        }
+        postings.clear();
+        trigrams.clear();
+        gramWords.clear();
+        docIds.clear();
+        docs.clear();
+        docWords.clear();
+        removed = 0;
+        // Not through put, which could start another compaction part way through this one
+        for (Participant participant : live) {
+            add(ParticipantKeyIndex.normalizeId(participant.getRegistrationId()), participant);
+        }
+    }
+
+    /**
+     * Find participants matching every word of {@code query}, best matches
+     * first.
+     */
+    public List<Participant> search(String query, int limit) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            // Gather candidates for the most selective term and check the others per participant
+            String anchor = terms[0];
+            int anchorCount = Integer.MAX_VALUE;
+            for (String term : terms) {
+                int count = countPrefixMatches(term, anchorCount);
+                if (count < anchorCount) {
+                    anchor = term;
+                    anchorCount = count;
+                }
+            }
+
+            PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+            BitSet seen = new BitSet(docs.size());
+            Candidates candidates = new Candidates(seen);
+
+            collectPrefixMatches(anchor, candidates);
+            int found = score(terms, null, candidates, best, limit);
+            if (found < limit) {
+                // Score the same candidates again, now letting the other terms match misspelt
+                List<Set<String>> fuzzyWords = new ArrayList<>(Collections.<Set<String>>nCopies(terms.length, null));
+                best.clear();
+                found = score(terms, fuzzyWords, candidates, best, limit);
+                if (found < limit && maxEdits(anchor) > 0 && !candidates.full()) {
+                    candidates.clearList();
+                    for (String word : fuzzyWords(anchor)) {
+                        if (!candidates.addAll(postings.get(word))) {
+                            break;
+                        }
+                    }
+                    score(terms, fuzzyWords, candidates, best, limit);
+                }
+            }
+
+            List<Participant> results = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                results.add(best.poll().participant);
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Score the candidates, keeping the best {@code limit} in {@code best}.
+     *
+     * @param fuzzyWords typo matches per term, filled in when first needed,
+     *        or null to match only exactly and by prefix
+     * @return number of candidates that matched every term
+     */
+    private int score(String[] terms, List<Set<String>> fuzzyWords, Candidates candidates,
+            PriorityQueue<Match> best, int limit) {
+        int found = 0;
+        for (int i = 0; i < candidates.list.size; i++) {
+            int docId = candidates.list.values[i];
+            String[] words = docWords.get(docId);
+            if (words == null) {
+                continue;
+            }
+            int score = 0;
+            for (int t = 0; t < terms.length; t++) {
+                int termScore = bestScore(terms[t], words);
+                if (termScore == 0 && fuzzyWords != null && maxEdits(terms[t]) > 0) {
+                    Set<String> typos = fuzzyWords.get(t);
+                    if (typos == null) {
+                        typos = fuzzyWords(terms[t]);
+                        fuzzyWords.set(t, typos);
+                    }
+                    termScore = fuzzyScore(typos, words);
+                }
+                if (termScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += termScore;
+            }
+            if (score > 0) {
+                found++;
+                if (best.size() < limit) {
+                    best.add(new Match(docs.get(docId), docId, score));
+                } else if (score > best.peek().score || score == best.peek().score && docId < best.peek().docId) {
+                    // Most matches lose to the worst kept one, so only the rest touch the heap
+                    best.poll();
+                    best.add(new Match(docs.get(docId), docId, score));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Postings of words starting with {@code term}, counted up to {@code cap}.
+     */
+    private int countPrefixMatches(String term, int cap) {
+        int count = 0;
+        for (IntList list : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            count += list.size;
+            if (count >= cap) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Participants with a word that equals or starts with {@code term}.
+     */
+    private void collectPrefixMatches(String term, Candidates candidates) {
+        for (IntList list : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            if (!candidates.addAll(list)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Indexed words within {@link #maxEdits(String)} edits of a prefix of
+     * {@code term}.
+     */
+    private Set<String> fuzzyWords(String term) {
+        int maxEdits = maxEdits(term);
+        if (maxEdits == 0) {
+            return Collections.emptySet();
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams(term)) {
+            List<String> words = trigrams.get(gram);
+            if (words != null) {
+                for (String word : words) {
+                    shared.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+        // Each edit destroys at most three trigrams
+        int minShared = Math.max(1, term.length() - 3 * maxEdits);
+        Set<String> matches = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            String word = entry.getKey();
+            if (entry.getValue() >= minShared && fuzzyPrefixMatch(term, word, maxEdits)) {
+                matches.add(word);
+            }
+        }
+        return matches;
+    }
+
+    private static int bestScore(String term, String[] words) {
+        int best = 0;
+        for (String word : words) {
+            if (word.equals(term)) {
+                return SCORE_EXACT;
+            }
+            if (word.startsWith(term)) {
+                best = SCORE_PREFIX;
+            }
+        }
+        return best;
+    }
+
+    private static int fuzzyScore(Set<String> typos, String[] words) {
+        if (!typos.isEmpty()) {
+            for (int i = PREFIX_ONLY_WORDS; i < words.length; i++) {
+                if (typos.contains(words[i])) {
+                    return SCORE_FUZZY;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static int maxEdits(String term) {
+        if (term.length() < 3) {
+            return 0;
+        }
+        return term.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Whether {@code term} is within {@code maxEdits} edits of {@code word}
+     * or of one of its prefixes, so a misspelt word still matches while it
+     * is being typed. Uses the optimal string alignment distance, so
+     * swapping two adjacent letters counts as one edit.
+     */
+    static boolean fuzzyPrefixMatch(String term, String word, int maxEdits) {
+        int n = term.length();
+        int m = Math.min(word.length(), n + maxEdits);
+        int[] before = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] curr = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            char c = term.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char w = word.charAt(j - 1);
+                int cost = c == w ? 0 : 1;
+                int d = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && c == word.charAt(j - 2) && term.charAt(i - 2) == w) {
+                    d = Math.min(d, before[j - 2] + 1);
+                }
+                curr[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = before;
+            before = prev;
+            prev = curr;
+            curr = swap;
+        }
+        // Best distance from the whole term to any prefix of the word
+        int best = Integer.MAX_VALUE;
+        for (int j = Math.max(0, n - maxEdits); j <= m; j++) {
+            best = Math.min(best, prev[j]);
+        }
+        return best <= maxEdits;
+    }
+
+    /**
+     * Words indexed for a participant: the ID, the whole email address, then
+     * the words of the name, department, partner and email.
+     */
+    private static String[] words(Participant participant) {
+        String email = participant.getEmail() == null ? "" : participant.getEmail().toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        words.add(participant.getRegistrationId().toLowerCase(Locale.ROOT));
+        words.add(email);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : new String[]{participant.getName(), participant.getDepartment(),
+            participant.getPartner(), email}) {
+            tokenize(field, tokens);
+        }
+        // Kept even when they repeat the ID or email, so they can match misspelt
+        words.addAll(tokens);
+        return words.toArray(new String[0]);
+    }
+
+    static String[] tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, tokens);
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * Split text into lower case runs of letters and digits.
+     */
+    private static void tokenize(String text, Collection<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Trigrams of a word padded at the front, so short words and words with
+     * swapped letters still share a gram with their correct spelling.
+     */
+    private static List<String> grams(String word) {
+        String padded = "$$" + word;
+        List<String> grams = new ArrayList<>(word.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Among equal scores, prefer participants registered first
+    private static final Comparator<Match> WORST_FIRST = (a, b) -> a.score != b.score
+            ? Integer.compare(a.score, b.score)
+            : Integer.compare(b.docId, a.docId);
+
+    private static final class Match {
+
+        final Participant participant;
+        final int docId;
+        final int score;
+
+        Match(Participant participant, int docId, int score) {
+            this.participant = participant;
+            this.docId = docId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Growable list of document IDs.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[2];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+    }
+
+    /**
+     * Distinct document IDs gathered for one query, capped at
+     * {@link #MAX_CANDIDATES} across all passes.
+     */
+    private static final class Candidates {
+
+        final BitSet seen;
+        final IntList list = new IntList();
+        int total = 0;
+
+        Candidates(BitSet seen) {
+            this.seen = seen;
+        }
+
+        /**
+         * @return false once the cap is reached
+         */
+        boolean addAll(IntList docIds) {
+            for (int i = 0; i < docIds.size; i++) {
+                if (full()) {
+                    return false;
+                }
+                int docId = docIds.values[i];
+                if (!seen.get(docId)) {
+                    seen.set(docId);
+                    list.add(docId);
+                    total++;
+                }
+            }
+            return true;
+        }
+
+        boolean full() {
+            return total >= MAX_CANDIDATES;
+        }
+
+        void clearList() {
+            list.size = 0;
+        }
+    }
+}
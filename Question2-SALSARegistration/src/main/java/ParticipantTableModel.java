@@ -0,0 +1,379 @@
+
+import javax.swing.table.AbstractTableModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+
+/**
+ * Table model that pages participants in from the database on demand.
+ *
+ * Only the rows a table actually paints are requested. Rows are fetched a
+ * page at a time on a background executor with keyset pagination: the
+ * next page continues after the sort key of the last row of the previous
+ * one, so reading deep into the table costs the same as reading its
+ * start. When the user jumps somewhere no neighbouring page is known for
+ * (dragging the scroll bar), the page is read with LIMIT/OFFSET instead.
+ * Sorting and filtering are done by the database, and only a bounded
+ * number of pages is kept in memory.
+ *
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class ParticipantTableModel extends AbstractTableModel {
+
+    static final String[] COLUMN_NAMES = {"Registration ID", "Name", "Department",
+        "Partner", "Contact", "Email"};
+
+    // Columns searched by the filter
+    private static final String[] FILTER_COLUMNS = {"RegistrationID", "Name", "Department",
+        "Partner", "Email"};
+
+    // Pages either side of the last painted row that are still worth fetching
+    private static final int FETCH_WINDOW = 3;
+
+    private final ConnectionPool connectionPool;
+    private final BackgroundExecutor executor;
+    private final int pageSize;
+    private final Map<Integer, List<Participant>> pages;
+    private final Set<Integer> pending = new HashSet<>();
+    private Consumer<String> statusListener = status -> { };
+
+    // Sort key of the last row of each page fetched so far, for keyset queries
+    private final Map<Integer, String[]> pageEnds = new HashMap<>();
+
+    private int sortColumn = 0;
+    private boolean ascending = true;
+    private String filter = "";
+    private int rowCount = 0;
+    private int generation = 0;
+    private volatile int lastPaintedPage = 0;
+
+    /**
+     * @param pageSize rows per database query
+     * @param cachedPages maximum pages kept in memory
+     */
+    public ParticipantTableModel(ConnectionPool connectionPool, BackgroundExecutor executor,
+            int pageSize, int cachedPages) {
+        this.connectionPool = connectionPool;
+        this.executor = executor;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<Participant>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Participant>> eldest) {
+                return size() > cachedPages;
+            }
+        };
+    }
+
+    /**
+     * Receive short status messages such as the row count or query errors.
+     */
+    public void setStatusListener(Consumer<String> statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Sort by a column; sorting by the current column again reverses the
+     * order.
+     */
+    public void sortBy(int column) {
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = true;
+        }
+        reload();
+    }
+
+    /**
+     * Show only participants with {@code text} in their ID, name,
+     * department, partner or email. An empty string shows everyone.
+     */
+    public void setFilter(String text) {
+        String trimmed = text == null ? "" : text.trim();
+        if (!trimmed.equals(filter)) {
+            filter = trimmed;
+            reload();
+        }
+    }
+
+    /**
+     * Drop all loaded rows and count the matching participants again.
+     */
+    public void reload() {
+        generation++;
+        pages.clear();
+        pageEnds.clear();
+        pending.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+
+        int requested = generation;
+        Query query = new Query();
+        try {
+            executor.submit(() -> count(query), count -> {
+                if (requested == generation) {
+                    rowCount = count;
+                    fireTableDataChanged();
+                    statusListener.accept(count + " participants");
+                }
+            }, e -> {
+                e.printStackTrace();
+                statusListener.accept("Could not load participants: " + e.getMessage());
+            });
+        } catch (RejectedExecutionException e) {
+            statusListener.accept("The system is busy. Please try again in a moment.");
+        }
+    }
+
+    /**
+     * Participant shown at a row, or null if that page is still loading.
+     */
+    public Participant getParticipant(int row) {
+        int page = row / pageSize;
+        List<Participant> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        // Read ahead once the user is into the second half of a page
+        if (row % pageSize >= pageSize / 2 && (page + 1) * pageSize < rowCount) {
+            requestPage(page + 1);
+        }
+        int index = row % pageSize;
+        return index < rows.size() ? rows.get(index) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        lastPaintedPage = row / pageSize;
+        Participant participant = getParticipant(row);
+        if (participant == null) {
+            return column == 1 ? "Loading..." : "";
+        }
+        switch (column) {
+            case 0:
+                return participant.getRegistrationId();
+            case 1:
+                return participant.getName();
+            case 2:
+                return participant.getDepartment();
+            case 3:
+                return participant.getPartner();
+            case 4:
+                return participant.getContact();
+            default:
+                return participant.getEmail();
+        }
+    }
+
+    private void requestPage(int page) {
+        if (!pending.add(page)) {
+            return;
+        }
+        int requested = generation;
+        Query query = new Query();
+        // A keyset query needs the end of the previous page; otherwise skip with OFFSET
+        String[] after = page == 0 ? null : pageEnds.get(page - 1);
+        boolean useOffset = page > 0 && after == null;
+        try {
+            executor.submit(() -> {
+                // Skip pages the user has already scrolled past
+                if (Math.abs(page - lastPaintedPage) > FETCH_WINDOW) {
+                    return null;
+                }
+                return fetchPage(query, page, useOffset, after);
+            }, rows -> {
+                if (requested != generation) {
+                    return;
+                }
+                pending.remove(page);
+                if (rows == null) {
+                    return;
+                }
+                pages.put(page, rows);
+                if (!rows.isEmpty()) {
+                    Participant last = rows.get(rows.size() - 1);
+                    pageEnds.put(page, new String[]{sortValue(last, query.sortColumn), last.getRegistrationId()});
+                }
+                int first = page * pageSize;
+                int lastRow = Math.min(rowCount, first + pageSize) - 1;
+                if (lastRow >= first) {
+                    fireTableRowsUpdated(first, lastRow);
+                }
+            }, e -> {
+                if (requested == generation) {
+                    pending.remove(page);
+                }
+                e.printStackTrace();
+                statusListener.accept("Could not load participants: " + e.getMessage());
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full while scrolling fast; the page is asked for again when painted
+            pending.remove(page);
+        }
+    }
+
+    private int count(Query query) throws SQLException {
+        List<String> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM Participants" + query.where(params, null);
+        try (Connection conn = connectionPool.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private List<Participant> fetchPage(Query query, int page, boolean useOffset, String[] after)
+            throws SQLException {
+        List<String> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM Participants")
+                .append(query.where(params, after))
+                .append(query.orderBy())
+                .append(" LIMIT ?");
+        if (useOffset) {
+            sql.append(" OFFSET ?");
+        }
+        try (Connection conn = connectionPool.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = bind(pstmt, params);
+            pstmt.setInt(index++, pageSize);
+            if (useOffset) {
+                pstmt.setInt(index, page * pageSize);
+            }
+            List<Participant> rows = new ArrayList<>(pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Participant(
+                            rs.getString("RegistrationID"),
+                            rs.getString("Name"),
+                            rs.getString("Department"),
+                            rs.getString("Partner"),
+                            rs.getString("Contact"),
+                            rs.getString("Email"),
+                            rs.getString("ImagePath")));
+                }
+            }
+            return Collections.unmodifiableList(rows);
+        }
+    }
+
+    private static int bind(PreparedStatement pstmt, List<String> params) throws SQLException {
+        int index = 1;
+        for (String param : params) {
+            pstmt.setString(index++, param);
+        }
+        return index;
+    }
+
+    private static String sortValue(Participant participant, int column) {
+        switch (column) {
+            case 0:
+                return participant.getRegistrationId();
+            case 1:
+                return participant.getName();
+            case 2:
+                return participant.getDepartment();
+            case 3:
+                return participant.getPartner();
+            case 4:
+                return participant.getContact();
+            default:
+                return participant.getEmail();
+        }
+    }
+
+    /**
+     * Snapshot of the sort and filter settings, safe to use off the EDT.
+     */
+    private final class Query {
+
+        final int sortColumn = ParticipantTableModel.this.sortColumn;
+        final boolean ascending = ParticipantTableModel.this.ascending;
+        final String filter = ParticipantTableModel.this.filter;
+
+        /**
+         * Sort expression; nulls compare as empty strings so keyset
+         * comparisons see the same order as ORDER BY.
+         */
+        String sortKey() {
+            String column = ParticipantImporter.COLUMNS[sortColumn];
+            return sortColumn == 0 ? column : "COALESCE(" + column + ", '')";
+        }
+
+        String where(List<String> params, String[] after) {
+            List<String> conditions = new ArrayList<>();
+            if (!filter.isEmpty()) {
+                String pattern = "%" + filter.toLowerCase(Locale.ROOT)
+                        .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                StringBuilder any = new StringBuilder("(");
+                for (int i = 0; i < FILTER_COLUMNS.length; i++) {
+                    any.append(i > 0 ? " OR " : "")
+                            .append("LOWER(").append(FILTER_COLUMNS[i]).append(") LIKE ? ESCAPE '\\'");
+                    params.add(pattern);
+                }
+                conditions.add(any.append(')').toString());
+            }
+            if (after != null) {
+                String op = ascending ? ">" : "<";
+                if (sortColumn == 0) {
+                    conditions.add("RegistrationID " + op + " ?");
+                    params.add(after[1]);
+                } else {
+                    // Ties on the sort column are broken by the unique RegistrationID
+                    conditions.add("(" + sortKey() + " " + op + " ? OR (" + sortKey() + " = ? AND RegistrationID "
+                            + op + " ?))");
+                    params.add(after[0] == null ? "" : after[0]);
+                    params.add(after[0] == null ? "" : after[0]);
+                    params.add(after[1]);
+                }
+            }
+            return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        }
+
+        String orderBy() {
+            String direction = ascending ? " ASC" : " DESC";
+            return sortColumn == 0
+                    ? " ORDER BY RegistrationID" + direction
+                    : " ORDER BY " + sortKey() + direction + ", RegistrationID" + direction;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+
+import java.util.regex.Pattern;
+
+
+/**
+ * Validation rules for participant records, shared by the registration
+ * form and the headless tools.
+ */
+public final class ParticipantValidator {
+
+    static final Pattern EMAIL_PATTERN
+            = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+
+    static final Pattern CONTACT_PATTERN = Pattern.compile("\\d{10,15}");
+
+    private ParticipantValidator() {
+    }
+
+    /**
+     * Check a participant against the registration rules.
+     *
+     * @return an error message suitable for the user, or null if valid
+     */
+    public static String validate(Participant participant) {
+        if (isBlank(participant.getRegistrationId())
+                || isBlank(participant.getName())
+                || isBlank(participant.getDepartment())
+                || isBlank(participant.getPartner())
+                || isBlank(participant.getContact())
+                || isBlank(participant.getEmail())) {
+            return "All fields are required!";
+        }
+
+        if (!EMAIL_PATTERN.matcher(participant.getEmail().trim()).matches()) {
+            return "Invalid email format! Please enter a valid email address.";
+        }
+
+        if (!CONTACT_PATTERN.matcher(participant.getContact().trim()).matches()) {
+            return "Invalid contact number! Please enter 10-15 digits.";
+        }
+
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,613 @@
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Headless HTTP/JSON front end to the registration database, so several
+ * check-in kiosks or a web form can share one database.
+ *
+ * <pre>
+ * POST   /participants                   register (JSON body): 201, 400, 409
+ * GET    /participants/{id}              look up: 200, 404
+ * PUT    /participants/{id}              update (JSON body): 200, 400, 404, 409
+ * DELETE /participants/{id}              delete: 204, 404
+ * GET    /participants?after=ID&amp;limit=N  list in ID order: 200
+ * GET    /health                         200
+ * </pre>
+ *
+ * Requests run on a bounded thread pool; when it and its queue are full
+ * the accepting thread handles the request itself, which slows down
+ * accepting new connections instead of failing them. Reads run
+ * concurrently on the connection pool, while writes take one lock since
+ * the Access file has a single writer. The same validation rules as the
+ * registration form apply. A 409 response carries a {@code code} of
+ * {@code DUPLICATE_ID} or {@code DUPLICATE_EMAIL}.
+ *
+ * A photo is sent as base64 image bytes in the {@code image} field and
+ * comes back as a {@code sha256:} reference in {@code imagePath}. Other
+ * requests may only name a photo already in the image store that way;
+ * paths on the server's disk are refused, so clients cannot make the
+ * server read its own files.
+ *
+ * With {@code -Dsalsa.writeBehind=true} registrations are acknowledged
+ * once journaled and reach the database in group commits; see
+ * {@link WriteBehindQueue}. {@code /health} then reports the queue.
+ */
+public class RegistrationServer implements AutoCloseable {
+
+    // Room for a photo sent base64-encoded in the image field
+    private static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+    private static final int DEFAULT_LIST_LIMIT = 100;
+    private static final int MAX_LIST_LIMIT = 1000;
+
+    private final ParticipantRepository repository;
+    private final ParticipantCache participantCache;
+    private final ParticipantKeyIndex keys;
+    private final WriteBehindQueue writeBehind;
+    private final ImageStore imageStore;
+    private final OperationMetrics metrics;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+
+    /**
+     * @param keys duplicate check, loaded from the repository
+     * @param writeBehind queue for new registrations, or null to insert them directly
+     * @param imageStore where photos sent in a request's image field are stored
+     * @param metrics where request latencies and errors are recorded
+     * @param threads request handler threads
+     * @param queueCapacity requests waiting for a handler thread
+     */
+    public RegistrationServer(ParticipantRepository repository, ParticipantCache participantCache,
+            ParticipantKeyIndex keys, WriteBehindQueue writeBehind, ImageStore imageStore,
+            OperationMetrics metrics, InetSocketAddress address, int threads, int queueCapacity)
+            throws IOException {
+        this.repository = repository;
+        this.participantCache = participantCache;
+        this.keys = keys;
+        this.writeBehind = writeBehind;
+        this.imageStore = imageStore;
+        this.metrics = metrics;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "http-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        server = HttpServer.create(address, queueCapacity);
+        server.setExecutor(executor);
+        server.createContext("/participants", this::handleParticipants);
+        server.createContext("/health", exchange -> {
+            requests.incrementAndGet();
+            if (writeBehind == null) {
+                send(exchange, 200, "{\"status\":\"ok\"}");
+                return;
+            }
+            WriteBehindQueue.Stats stats = writeBehind.getStats();
+            send(exchange, 200, String.format("{\"status\":\"ok\",\"queueDepth\":%d,\"maxQueueDepth\":%d,"
+                    + "\"flushes\":%d,\"rowsFlushed\":%d,\"rowsFailed\":%d,\"rowsRetried\":%d,"
+                    + "\"avgFlushMs\":%.1f,\"maxFlushMs\":%.1f,\"journalBytes\":%d}",
+                    stats.depth, stats.maxDepth, stats.flushes, stats.rowsFlushed, stats.rowsFailed, stats.rowsRetried,
+                    stats.averageFlushNanos / 1e6, stats.maxFlushNanos / 1e6, stats.journalBytes));
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stop accepting requests, giving running ones a second to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        System.out.println("Server stopped: " + requests + " requests, " + serverErrors + " server errors");
+        System.out.println("Duplicate checks: " + keys.getStats());
+    }
+
+    private void handleParticipants(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        OperationMetrics.Sample sample = null;
+        Exception error = null;
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            String id = path.length() > "/participants/".length()
+                    ? decode(path.substring("/participants/".length())) : null;
+            OperationMetrics.Operation operation = operation(exchange.getRequestMethod(), id);
+            if (operation == null) {
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+            sample = metrics.start(operation);
+            switch (operation) {
+                case LIST:
+                    list(exchange);
+                    break;
+                case REGISTER:
+                    register(exchange);
+                    break;
+                case SEARCH:
+                    get(exchange, id);
+                    break;
+                case UPDATE:
+                    update(exchange, id);
+                    break;
+                default:
+                    delete(exchange, id);
+            }
+        } catch (IllegalArgumentException e) {
+            error = e;
+            sendError(exchange, 400, e.getMessage());
+        } catch (DuplicateParticipantException e) {
+            error = e;
+            send(exchange, 409, "{\"error\":" + Json.quote(e.getReason().getMessage())
+                    + ",\"code\":" + Json.quote(e.getReason().name()) + "}");
+        } catch (SQLException e) {
+            error = e;
+            serverErrors.incrementAndGet();
+            // Driver messages can name tables and files, so clients only get a fixed message
+            System.err.println(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " failed:");
+            e.printStackTrace();
+            sendError(exchange, 500, "Database error, please try again later");
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            if (sample != null) {
+                sample.stop(error);
+            }
+            exchange.close();
+        }
+    }
+
+    /**
+     * The operation a request performs, or null if the method is not
+     * allowed on the path.
+     */
+    private static OperationMetrics.Operation operation(String method, String id) {
+        switch (method) {
+            case "GET":
+                return id == null ? OperationMetrics.Operation.LIST : OperationMetrics.Operation.SEARCH;
+            case "POST":
+                return id == null ? OperationMetrics.Operation.REGISTER : null;
+            case "PUT":
+                return id == null ? null : OperationMetrics.Operation.UPDATE;
+            case "DELETE":
+                return id == null ? null : OperationMetrics.Operation.DELETE;
+            default:
+                return null;
+        }
+    }
+
+    private void register(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> json = readJson(exchange);
+        Participant participant = toParticipant(json, null);
+        String error = ParticipantValidator.validate(participant);
+        if (error != null) {
+            sendError(exchange, 400, error);
+            return;
+        }
+        participant = storeImage(participant, json.get("image"), false);
+        writeLock.lock();
+        try {
+            // Writes are serialized, so nothing can take this ID or email between the check and the insert
+            if (writeBehind != null) {
+                writeBehind.register(participant);
+            } else {
+                keys.checkNew(participant);
+                repository.insert(participant);
+            }
+            keys.add(participant);
+            participantCache.put(participant);
+        } finally {
+            writeLock.unlock();
+        }
+        send(exchange, 201, toJson(participant));
+    }
+
+    private void get(HttpExchange exchange, String id) throws IOException, SQLException {
+        Participant participant = lookup(id);
+        if (participant == null) {
+            sendError(exchange, 404, "No participant found with this Registration ID!");
+        } else {
+            send(exchange, 200, toJson(participant));
+        }
+    }
+
+    private void update(HttpExchange exchange, String id) throws IOException, SQLException {
+        Map<String, String> json = readJson(exchange);
+        Participant participant = toParticipant(json, id);
+        String error = ParticipantValidator.validate(participant);
+        if (error != null) {
+            sendError(exchange, 400, error);
+            return;
+        }
+        participant = storeImage(participant, json.get("image"), true);
+        awaitStored(id, participant.getEmail());
+        int rows;
+        writeLock.lock();
+        try {
+            keys.checkUpdate(participant);
+            rows = repository.update(participant);
+            if (rows > 0) {
+                keys.add(participant);
+                participantCache.put(participant);
+            } else {
+                participantCache.invalidate(id);
+            }
+        } catch (SQLException e) {
+            participantCache.invalidate(id);
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+        if (rows > 0) {
+            send(exchange, 200, toJson(participant));
+        } else {
+            sendError(exchange, 404, "No participant found with this Registration ID!");
+        }
+    }
+
+    private void delete(HttpExchange exchange, String id) throws IOException, SQLException {
+        awaitStored(id, null);
+        int rows;
+        writeLock.lock();
+        try {
+            rows = repository.delete(id);
+            if (rows > 0) {
+                keys.removeId(id);
+            }
+        } finally {
+            participantCache.invalidate(id);
+            writeLock.unlock();
+        }
+        if (rows > 0) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            sendError(exchange, 404, "No participant found with this Registration ID!");
+        }
+    }
+
+    private void list(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int limit = DEFAULT_LIST_LIMIT;
+        if (query.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(query.get("limit"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("limit must be a number");
+            }
+            if (limit < 1 || limit > MAX_LIST_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIST_LIMIT);
+            }
+        }
+        List<Participant> participants = repository.list(query.get("after"), limit);
+
+        StringBuilder json = new StringBuilder(participants.size() * 160 + 64).append("{\"participants\":[");
+        for (int i = 0; i < participants.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendJson(json, participants.get(i));
+        }
+        json.append("],\"next\":");
+        // A full page means there may be more; the client passes this back as ?after=
+        Json.quote(json, participants.size() == limit
+                ? participants.get(participants.size() - 1).getRegistrationId() : null);
+        send(exchange, 200, json.append('}').toString());
+    }
+
+    /**
+     * Look a participant up in the cache, falling back to the database
+     */
+    private Participant lookup(String id) throws SQLException {
+        Participant cached = participantCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        if (writeBehind != null) {
+            Participant queued = writeBehind.getPending(id);
+            if (queued != null) {
+                return queued;
+            }
+        }
+        long cacheVersion = participantCache.version();
+        Participant participant = repository.find(id);
+        if (participant != null) {
+            participantCache.putIfUnchanged(participant, cacheVersion);
+        }
+        return participant;
+    }
+
+    /**
+     * Wait until registrations still in the write-behind queue with this
+     * ID or email reach the database, so an update or delete applies to
+     * them and the duplicate email check sees them
+     */
+    private void awaitStored(String id, String email) throws SQLException {
+        if (writeBehind != null && writeBehind.isPending(id, email)) {
+            try {
+                writeBehind.awaitFlushed();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for queued registrations", e);
+            }
+        }
+    }
+
+    /**
+     * Store a photo sent as base64 in the image field and record its
+     * reference. Otherwise imagePath must be blank or name a stored photo,
+     * or on an update be the participant's current value, so a legacy
+     * path can be sent back unchanged. The file system is never read for
+     * a client's path, and errors do not say why a value was refused.
+     */
+    private Participant storeImage(Participant participant, String image, boolean update) throws SQLException {
+        String imagePath = participant.getImagePath();
+        if (image != null && !image.trim().isEmpty()) {
+            if (!imagePath.isEmpty()) {
+                throw new IllegalArgumentException("Send either image or imagePath, not both");
+            }
+            byte[] data;
+            try {
+                data = Base64.getDecoder().decode(image.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("image is not valid base64");
+            }
+            try {
+                return participant.withImagePath(imageStore.ingest(data));
+            } catch (IOException | RuntimeException e) {
+                // Decoders also fail with unchecked exceptions on malformed data
+                throw new IllegalArgumentException("image is not a readable image");
+            }
+        }
+        if (imagePath.isEmpty() || imageStore.contains(imagePath)) {
+            return participant;
+        }
+        if (update) {
+            Participant current = lookup(participant.getRegistrationId());
+            if (current != null && imagePath.equals(current.getImagePath())) {
+                return participant;
+            }
+        }
+        throw new IllegalArgumentException("imagePath must be the sha256: reference of a stored image; "
+                + "send a new photo as base64 in image");
+    }
+
+    private static Participant toParticipant(Map<String, String> json, String pathId) {
+        String id = json.get("registrationId");
+        if (pathId != null) {
+            if (id != null && !id.trim().equals(pathId)) {
+                throw new IllegalArgumentException("registrationId does not match the URL");
+            }
+            id = pathId;
+        }
+        return new Participant(trim(id), trim(json.get("name")), trim(json.get("department")),
+                trim(json.get("partner")), trim(json.get("contact")), trim(json.get("email")),
+                trim(json.get("imagePath")));
+    }
+
+    private static String trim(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    private static String toJson(Participant participant) {
+        return appendJson(new StringBuilder(160), participant).toString();
+    }
+
+    private static StringBuilder appendJson(StringBuilder json, Participant participant) {
+        json.append("{\"registrationId\":");
+        Json.quote(json, participant.getRegistrationId()).append(",\"name\":");
+        Json.quote(json, participant.getName()).append(",\"department\":");
+        Json.quote(json, participant.getDepartment()).append(",\"partner\":");
+        Json.quote(json, participant.getPartner()).append(",\"contact\":");
+        Json.quote(json, participant.getContact()).append(",\"email\":");
+        Json.quote(json, participant.getEmail()).append(",\"imagePath\":");
+        return Json.quote(json, participant.getImagePath()).append('}');
+    }
+
+    private static Map<String, String> readJson(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_BODY_BYTES) {
+                    throw new IllegalArgumentException("Request body too large");
+                }
+            }
+        }
+        return Json.parseObject(new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> values = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    values.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Command line entry point:
+     * {@code --serve [--port <n>] [--bind <address>] [--threads <n>]}
+     *
+     * @return process exit code
+     */
+    static int run(String[] args) {
+        String usage = "Usage: --serve [--port <n>] [--bind <address>] [--threads <n>]";
+        int port = 8080;
+        String bind = "127.0.0.1";
+        int threads = 64;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--serve":
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--bind":
+                        bind = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        return 2;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.println(usage);
+            return 2;
+        }
+
+        OperationMetrics metrics = new OperationMetrics();
+        OperationMetrics.Sample connect = metrics.start(OperationMetrics.Operation.CONNECT);
+        JdbcParticipantRepository repository;
+        try {
+            repository = SALSARegistrationSystem.openRepository(SALSARegistrationSystem.BACKEND);
+            repository.createSchema();
+            connect.stop(null);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            System.err.println("Database Connection Error: " + e.getMessage());
+            return 1;
+        }
+        ParticipantKeyIndex keys = new ParticipantKeyIndex(repository);
+        WriteBehindQueue writeBehind = null;
+        if (SALSARegistrationSystem.WRITE_BEHIND) {
+            try {
+                writeBehind = SALSARegistrationSystem.openWriteBehind(repository, keys);
+            } catch (IOException | SQLException e) {
+                repository.close();
+                e.printStackTrace();
+                System.err.println("Write-behind Error: " + e.getMessage());
+                return 1;
+            }
+        }
+        WriteBehindQueue queue = writeBehind;
+        try {
+            // After the journal replay, so replayed registrations are included
+            long start = System.nanoTime();
+            keys.load();
+            System.out.printf("Loaded %d registration IDs for duplicate checks in %d ms%n",
+                    keys.getStats().ids, (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            // Checks still work, going to the database every time
+            e.printStackTrace();
+            System.err.println("Duplicate check index unavailable: " + e.getMessage());
+        }
+
+        ParticipantCache participantCache = new ParticipantCache(SALSARegistrationSystem.CACHE_MAX_ENTRIES,
+                SALSARegistrationSystem.CACHE_TTL_MS);
+        metrics.registerMBeans();
+        metrics.registerStats("connectionPool", repository.getConnectionPool()::getStats);
+        ImageStore imageStore = new ImageStore(SALSARegistrationSystem.IMAGE_STORE_DIR,
+                SALSARegistrationSystem.IMAGE_MAX_SIZE, SALSARegistrationSystem.IMAGE_QUALITY);
+        metrics.registerStats("participantCache", participantCache::getStats);
+        metrics.registerStats("imageStore", imageStore::getStats);
+        metrics.registerStats("duplicateChecks", keys::getStats);
+        if (queue != null) {
+            metrics.registerStats("writeBehind", queue::getStats);
+        }
+        metrics.startLogging(SALSARegistrationSystem.METRICS_LOG_INTERVAL_MS);
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        try {
+            RegistrationServer server = new RegistrationServer(repository, participantCache, keys, queue,
+                    imageStore, metrics, new InetSocketAddress(bind, port), threads, threads * 4);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                if (queue != null) {
+                    queue.close();
+                }
+                metrics.close();
+                repository.close();
+                stopped.countDown();
+            }));
+            server.start();
+            System.out.println("Registration service listening on http://" + bind + ":" + server.getAddress().getPort()
+                    + "/participants (" + SALSARegistrationSystem.BACKEND + " backend, " + threads + " threads)");
+        } catch (IOException e) {
+            if (queue != null) {
+                queue.close();
+            }
+            metrics.close();
+            repository.close();
+            e.printStackTrace();
+            System.err.println("Server Error: " + e.getMessage());
+            return 1;
+        }
+
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+}
@@ -3,111 +3,299 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 
 public class SALSARegistrationSystem extends JFrame {
 
-    // Database connection details
+    // Database connection details; -Dsalsa.backend=hsqldb selects the embedded HSQLDB store
     private static final String DB_PATH = new File("src/main/resources/database/VUE_Exhibition.accdb").getAbsolutePath();
-    private static final String DB_URL = "jdbc:ucanaccess://" + DB_PATH;
+    private static final String HSQLDB_PATH = System.getProperty("salsa.hsqldb.path",
+            new File("src/main/resources/database/hsqldb/salsa").getAbsolutePath());
+    static final String BACKEND = System.getProperty("salsa.backend", "access");
+
+    // Connection pool settings, overridable with -Dsalsa.pool.* system properties
+    private static final int POOL_MIN_SIZE = Integer.getInteger("salsa.pool.minSize", 1);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("salsa.pool.maxSize", 4);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("salsa.pool.idleTimeoutMs", 300_000L);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("salsa.pool.borrowTimeoutMs", 10_000L);
+
+    // Participant cache settings; a TTL of 0 keeps entries until evicted
+    static final int CACHE_MAX_ENTRIES = Integer.getInteger("salsa.cache.maxEntries", 1000);
+    static final long CACHE_TTL_MS = Long.getLong("salsa.cache.ttlMs", 0L);
+
+    // Photo thumbnails are generated once and kept on disk between runs
+    private static final Path THUMBNAIL_DIR = Paths.get(System.getProperty("salsa.thumbnail.dir",
+            new File(System.getProperty("java.io.tmpdir"), "salsa-thumbnails").getPath()));
+    private static final int PREVIEW_SIZE = 190;
+
+    // Photos are normalized into a content-addressed store when a participant is saved
+    static final Path IMAGE_STORE_DIR = Paths.get(System.getProperty("salsa.images.dir",
+            new File("src/main/resources/database/images").getAbsolutePath()));
+    static final int IMAGE_MAX_SIZE = Integer.getInteger("salsa.images.maxSize", 800);
+    static final float IMAGE_QUALITY = Float.parseFloat(System.getProperty("salsa.images.quality", "0.85"));
+
+    // Startup settings; turn seeding off in production with -Dsalsa.seed=false
+    private static final boolean SEED_TEST_DATA = Boolean.parseBoolean(System.getProperty("salsa.seed", "true"));
+    private static final boolean EXIT_WHEN_READY = Boolean.getBoolean("salsa.startup.exitWhenReady");
+
+    // Write-behind mode acknowledges registrations from a local journal and stores them in group commits
+    static final boolean WRITE_BEHIND = Boolean.getBoolean("salsa.writeBehind");
+    private static final int WRITE_BEHIND_BATCH_SIZE = Integer.getInteger("salsa.writeBehind.batchSize", 100);
+    private static final long WRITE_BEHIND_MAX_DELAY_MS = Long.getLong("salsa.writeBehind.maxDelayMs", 200L);
+    // Metrics are logged every interval (0 turns the log off) and always published over JMX
+    static final long METRICS_LOG_INTERVAL_MS = Long.getLong("salsa.metrics.logIntervalMs", 60_000L);
+
+    private static final Path WRITE_BEHIND_JOURNAL = Paths.get(System.getProperty("salsa.writeBehind.journal",
+            new File("src/main/resources/database/registrations.journal").getAbsolutePath()));
+
+    // Quick find settings
+    private static final int QUICK_FIND_RESULTS = 8;
+    private static final int QUICK_FIND_DELAY_MS = 150;
 
     // GUI Components
+    private JTextField txtQuickFind;
+    private JPopupMenu quickFindPopup;
+    private Timer quickFindTimer;
     private JTextField txtRegID, txtName, txtDepartment, txtPartner, txtContact, txtEmail;
     private JLabel lblImagePreview;
-    private JButton btnRegister, btnSearch, btnUpdate, btnDelete, btnClear, btnExit, btnUploadImage;
+    private JButton btnRegister, btnSearch, btnUpdate, btnDelete, btnClear, btnBrowse, btnExit, btnUploadImage;
     private String selectedImagePath = "";
 
-    private static final Pattern EMAIL_PATTERN
-            = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-
     private boolean isDatabaseInitialized = false;
-
-    public SALSARegistrationSystem() {
-        initializeDatabase();
-        if (isDatabaseInitialized) {
-            seedTestData();
-        }
+    private boolean isDatabaseStarting = false;
+    private final StartupTimeline timeline;
+    private JdbcParticipantRepository repository;
+    private volatile WriteBehindQueue writeBehind;
+    private ParticipantKeyIndex participantKeys;
+    private final ParticipantCache participantCache = new ParticipantCache(CACHE_MAX_ENTRIES, CACHE_TTL_MS);
+
+    // Background workers for JDBC calls and image decoding
+    private final BackgroundExecutor dbExecutor = new BackgroundExecutor("db-worker", POOL_MAX_SIZE, 16);
+    private final BackgroundExecutor imageExecutor = new BackgroundExecutor("image-loader", 2, 8);
+    private final BackgroundExecutor browseExecutor = new BackgroundExecutor("table-loader", 2, 8);
+    private ParticipantBrowser participantBrowser;
+    private final ImageStore imageStore = new ImageStore(IMAGE_STORE_DIR, IMAGE_MAX_SIZE, IMAGE_QUALITY);
+    private final ThumbnailCache thumbnailCache = new ThumbnailCache(THUMBNAIL_DIR, imageStore,
+            PREVIEW_SIZE, PREVIEW_SIZE, 64);
+    private final ParticipantSearchIndex searchIndex = new ParticipantSearchIndex();
+    private final OperationMetrics metrics = new OperationMetrics();
+    private Future<?> pendingWrite;
+    private Future<?> pendingSearch;
+    private Future<?> pendingImage;
+
+    public SALSARegistrationSystem(StartupTimeline timeline) {
+        this.timeline = timeline;
         initializeGUI();
+        initializeDatabase();
     }
 
-    
+    /**
+     * Open the database in the background so the window shows at once.
+     * Seeding and the quick find index follow once the schema is checked.
+     */
     private void initializeDatabase() {
         File dbFile = new File(DB_PATH);
-        if (!dbFile.exists()) {
+        if ("access".equals(BACKEND) && !dbFile.exists()) {
             showError("Database file not found at: " + DB_PATH);
             System.err.println("Database file missing: " + DB_PATH);
             return;
         }
-        try (Connection conn = DriverManager.getConnection(DB_URL)) {
-            System.out.println("Connected to database successfully!");
-            DatabaseMetaData dbMeta = conn.getMetaData();
-            ResultSet tables = dbMeta.getTables(null, null, "Participants", null);
-
-            if (!tables.next()) { 
-                String createTableSQL = "CREATE TABLE Participants ("
-                        + "RegistrationID TEXT PRIMARY KEY, "
-                        + "Name TEXT NOT NULL, "
-                        + "Department TEXT, "
-                        + "Partner TEXT, "
-                        + "Contact TEXT, "
-                        + "Email TEXT, "
-                        + "ImagePath TEXT)";
-                try (Statement stmt = conn.createStatement()) {
-                    stmt.execute(createTableSQL);
-                    System.out.println("Table created successfully!");
-                }
-            } else {
-                System.out.println("Table 'Participants' already exists!");
+        isDatabaseStarting = true;
+        updateButtonStates();
+        dbExecutor.submit(() -> {
+            JdbcParticipantRepository opened = metrics.time(OperationMetrics.Operation.CONNECT,
+                    SALSARegistrationSystem::openDatabase);
+            publishMetrics(opened);
+            return opened;
+        }, opened -> {
+            repository = opened;
+            participantKeys = new ParticipantKeyIndex(repository);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::closeStorage));
+            if (!WRITE_BEHIND) {
+                databaseReady();
+                return;
             }
-
-            isDatabaseInitialized = true;
-        } catch (SQLException e) {
+            // Replay the journal before accepting new registrations
+            dbExecutor.submit(() -> {
+                WriteBehindQueue queue = openWriteBehind(repository, participantKeys);
+                metrics.registerStats("writeBehind", queue::getStats);
+                return queue;
+            }, queue -> {
+                writeBehind = queue;
+                databaseReady();
+            }, e -> {
+                e.printStackTrace();
+                showError("Write-behind unavailable, registrations will be stored directly: " + e.getMessage());
+                databaseReady();
+            });
+        }, e -> {
+            isDatabaseStarting = false;
+            updateButtonStates();
             e.printStackTrace();
             showError("Database Initialization Error: " + e.getMessage());
+        });
+    }
+
+    /**
+     * Publish operation metrics and component statistics over JMX and
+     * start the periodic metrics log
+     */
+    private void publishMetrics(JdbcParticipantRepository opened) {
+        metrics.registerMBeans();
+        metrics.registerStats("connectionPool", opened.getConnectionPool()::getStats);
+        metrics.registerStats("participantCache", participantCache::getStats);
+        metrics.registerStats("imageStore", imageStore::getStats);
+        metrics.startLogging(METRICS_LOG_INTERVAL_MS);
+    }
+
+    /**
+     * Enable the form, then seed and index in the background
+     */
+    private void databaseReady() {
+        isDatabaseStarting = false;
+        isDatabaseInitialized = true;
+        updateButtonStates();
+        timeline.mark("database ready");
+        if (SEED_TEST_DATA) {
+            dbExecutor.submit(() -> {
+                seedTestData();
+                return null;
+            }, ignored -> loadSearchIndex(), e -> {
+                e.printStackTrace();
+                showError("Seeding Error: " + e.getMessage());
+                loadSearchIndex();
+            });
+        } else {
+            System.out.println("Seeding disabled, skipping.");
+            loadSearchIndex();
+        }
+    }
+
+    /**
+     * Open the configured backend and make sure the Participants table exists
+     */
+    private static JdbcParticipantRepository openDatabase() throws SQLException {
+        JdbcParticipantRepository opened = openRepository(BACKEND);
+        try {
+            System.out.println("Connected to " + BACKEND + " database successfully!");
+            opened.createSchema();
+        } catch (SQLException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    /**
+     * Open the write-behind queue configured by the salsa.writeBehind.*
+     * properties, replaying registrations left in its journal
+     */
+    static WriteBehindQueue openWriteBehind(ParticipantRepository repository, ParticipantKeyIndex keys)
+            throws IOException, SQLException {
+        WriteBehindQueue queue = WriteBehindQueue.open(repository, keys, WRITE_BEHIND_JOURNAL,
+                WRITE_BEHIND_BATCH_SIZE, WRITE_BEHIND_MAX_DELAY_MS);
+        System.out.printf("Write-behind enabled: batches of %d or every %d ms, journal %s%n",
+                WRITE_BEHIND_BATCH_SIZE, WRITE_BEHIND_MAX_DELAY_MS, WRITE_BEHIND_JOURNAL);
+        return queue;
+    }
+
+    /**
+     * Open a participant repository on the given backend
+     *
+     * @param backend "access" or "hsqldb"
+     */
+    static JdbcParticipantRepository openRepository(String backend) throws SQLException {
+        switch (backend) {
+            case "access":
+                return new AccessParticipantRepository(new File(DB_PATH), POOL_MIN_SIZE, POOL_MAX_SIZE,
+                        POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS);
+            case "hsqldb":
+                return new HsqldbParticipantRepository(new File(HSQLDB_PATH), POOL_MIN_SIZE, POOL_MAX_SIZE,
+                        POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS);
+            default:
+                throw new IllegalArgumentException("Unknown backend: " + backend + " (expected access or hsqldb)");
         }
     }
 
- 
-    private void seedTestData() {
+    private void seedTestData() throws SQLException {
         // Check if table is empty
-        try (Connection conn = DriverManager.getConnection(DB_URL); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Participants")) {
+        if (repository.count() > 0) {
+            System.out.println("Table already has data, skipping seeding.");
+            return;
+        }
 
-            if (rs.next() && rs.getInt(1) > 0) {
-                System.out.println("Table already has data, skipping seeding.");
-                return;
-            }
+        System.out.println("Seeding 10 test entries...");
+        List<Participant> participants = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            participants.add(new Participant(
+                    "TEST" + String.format("%03d", i),
+                    "Test User " + i,
+                    "Department " + ((i % 3) + 1),
+                    "Partner " + i,
+                    "123456789" + i,
+                    "test" + i + "@example.com",
+                    "")); // Empty image path for test data
+        }
+        repository.insertAll(participants);
+        System.out.println("Seeded " + participants.size() + " entries");
+        System.out.println("Seeding completed successfully!");
+    }
 
-            System.out.println("Seeding 10 test entries...");
-
-            String insertSQL = "INSERT INTO Participants (RegistrationID, Name, Department, "
-                    + "Partner, Contact, Email, ImagePath) VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-            try (PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
-                for (int i = 1; i <= 10; i++) {
-                    pstmt.setString(1, "TEST" + String.format("%03d", i));
-                    pstmt.setString(2, "Test User " + i);
-                    pstmt.setString(3, "Department " + ((i % 3) + 1));
-                    pstmt.setString(4, "Partner " + i);
-                    pstmt.setString(5, "123456789" + i);
-                    pstmt.setString(6, "test" + i + "@example.com");
-                    pstmt.setString(7, ""); // Empty image path for test data
-
-                    int rowsInserted = pstmt.executeUpdate();
-                    if (rowsInserted > 0) {
-                        System.out.println("Seeded entry: TEST" + String.format("%03d", i));
-                    }
-                }
-                System.out.println("Seeding completed successfully!");
-            }
-        } catch (SQLException e) {
+    /**
+     * Fill the quick find index and the duplicate check from the database
+     * in one pass in the background
+     */
+    private void loadSearchIndex() {
+        long start = System.nanoTime();
+        dbExecutor.submit(() -> {
+            repository.forEach(participant -> {
+                searchIndex.put(participant);
+                participantKeys.add(participant);
+            });
+            participantKeys.markLoaded();
+            metrics.registerStats("duplicateChecks", participantKeys::getStats);
+            return searchIndex.size();
+        }, size -> {
+            System.out.printf("Indexed %d participants for quick find and duplicate checks in %d ms%n",
+                    size, (System.nanoTime() - start) / 1_000_000);
+            startupComplete();
+        }, e -> {
             e.printStackTrace();
-            showError("Seeding Error: " + e.getMessage());
+            System.err.println("Quick find unavailable: " + e.getMessage());
+            startupComplete();
+        });
+    }
+
+    /**
+     * Report the startup timeline once everything is loaded
+     */
+    private void startupComplete() {
+        timeline.mark("search index ready");
+        System.out.println(timeline);
+        if (EXIT_WHEN_READY) {
+            shutdown();
         }
     }
 
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        timeline.mark("first paint");
+    }
+
     /**
      * Initialize GUI components
      */
@@ -146,7 +334,7 @@ public class SALSARegistrationSystem extends JFrame {
 
         add(mainPanel);
 
-        setSize(900, 600);
+        setSize(900, 650);
         setLocationRelativeTo(null);
         setResizable(true);
     }
@@ -203,6 +391,47 @@ public class SALSARegistrationSystem extends JFrame {
         txtContact = createStyledTextField();
         txtEmail = createStyledTextField();
 
+        // Quick find across names, departments, partners and emails
+        txtQuickFind = createStyledTextField();
+        txtQuickFind.setToolTipText("Type part of a name, department, partner or email");
+        quickFindPopup = new JPopupMenu();
+        quickFindPopup.setFocusable(false);
+        quickFindTimer = new Timer(QUICK_FIND_DELAY_MS, e -> showQuickFindResults());
+        quickFindTimer.setRepeats(false);
+        txtQuickFind.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                quickFindTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                quickFindTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                quickFindTimer.restart();
+            }
+        });
+        txtQuickFind.addActionListener(e -> {
+            quickFindTimer.stop();
+            List<Participant> matches = searchIndex.search(txtQuickFind.getText(), 1);
+            if (!matches.isEmpty()) {
+                selectQuickFindResult(matches.get(0));
+            }
+        });
+
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        JLabel quickFindLabel = new JLabel("Quick Find:");
+        quickFindLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        panel.add(quickFindLabel, gbc);
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        panel.add(txtQuickFind, gbc);
+        gbc.weightx = 0.0;
+
         // Form fields
         String[] labels = {"Registration ID:", "Full Name:", "Department:",
             "Dance Partner:", "Contact Number:", "Email Address:"};
@@ -210,7 +439,7 @@ public class SALSARegistrationSystem extends JFrame {
 
         for (int i = 0; i < labels.length; i++) {
             gbc.gridx = 0;
-            gbc.gridy = i;
+            gbc.gridy = i + 1;
             JLabel label = new JLabel(labels[i]);
             label.setFont(new Font("Arial", Font.BOLD, 14));
             panel.add(label, gbc);
@@ -224,6 +453,36 @@ public class SALSARegistrationSystem extends JFrame {
         return panel;
     }
 
+    /**
+     * Show the best quick find matches under the quick find field
+     */
+    private void showQuickFindResults() {
+        quickFindPopup.setVisible(false);
+        quickFindPopup.removeAll();
+        String query = txtQuickFind.getText().trim();
+        if (query.isEmpty() || !txtQuickFind.isShowing()) {
+            return;
+        }
+        for (Participant participant : searchIndex.search(query, QUICK_FIND_RESULTS)) {
+            JMenuItem item = new JMenuItem(participant.getName() + " \u2014 "
+                    + participant.getDepartment() + " (" + participant.getRegistrationId() + ")");
+            item.addActionListener(e -> selectQuickFindResult(participant));
+            quickFindPopup.add(item);
+        }
+        if (quickFindPopup.getComponentCount() > 0) {
+            quickFindPopup.show(txtQuickFind, 0, txtQuickFind.getHeight());
+        }
+    }
+
+    /**
+     * Load a quick find match into the form
+     */
+    private void selectQuickFindResult(Participant participant) {
+        quickFindPopup.setVisible(false);
+        txtRegID.setText(participant.getRegistrationId());
+        searchParticipant();
+    }
+
     /**
      * Create image upload panel
      */
@@ -280,6 +539,9 @@ public class SALSARegistrationSystem extends JFrame {
         btnClear = createStyledButton("Clear", new Color(105, 105, 105));
         btnClear.addActionListener(e -> clearFields());
 
+        btnBrowse = createStyledButton("Browse", new Color(106, 90, 205));
+        btnBrowse.addActionListener(e -> browseParticipants());
+
         btnExit = createStyledButton("Exit", new Color(178, 34, 34));
         btnExit.addActionListener(e -> exitApplication());
 
@@ -288,6 +550,7 @@ public class SALSARegistrationSystem extends JFrame {
         panel.add(btnUpdate);
         panel.add(btnDelete);
         panel.add(btnClear);
+        panel.add(btnBrowse);
         panel.add(btnExit);
 
         return panel;
@@ -345,13 +608,48 @@ public class SALSARegistrationSystem extends JFrame {
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
             selectedImagePath = selectedFile.getAbsolutePath();
+            showImagePreview(selectedImagePath);
+            System.out.println("Image selected: " + selectedImagePath);
+        }
+    }
 
-            ImageIcon imageIcon = new ImageIcon(selectedImagePath);
-            Image image = imageIcon.getImage().getScaledInstance(
-                    190, 190, Image.SCALE_SMOOTH);
-            lblImagePreview.setIcon(new ImageIcon(image));
+    /**
+     * Decode and scale an image in the background, showing a placeholder
+     * until it is ready. A newer request supersedes any pending one.
+     */
+    private void showImagePreview(String imagePath) {
+        if (pendingImage != null) {
+            pendingImage.cancel(false);
+        }
+        lblImagePreview.setIcon(null);
+        if (imagePath == null || imagePath.isEmpty()) {
+            lblImagePreview.setText("No image");
+            return;
+        }
+        BufferedImage cached = thumbnailCache.peek(imagePath);
+        if (cached != null) {
+            lblImagePreview.setIcon(new ImageIcon(cached));
             lblImagePreview.setText("");
-            System.out.println("Image selected: " + selectedImagePath);
+            return;
+        }
+        lblImagePreview.setText("Loading photo...");
+
+        try {
+            pendingImage = imageExecutor.submit(metrics.timed(OperationMetrics.Operation.IMAGE_LOAD,
+                    () -> thumbnailCache.get(imagePath)), thumbnail -> {
+                lblImagePreview.setIcon(new ImageIcon(thumbnail));
+                lblImagePreview.setText("");
+            }, e -> {
+                if (e instanceof FileNotFoundException) {
+                    System.out.println("Image file not found: " + imagePath);
+                    lblImagePreview.setText("Image not found");
+                } else {
+                    System.err.println("Image load error: " + e.getMessage());
+                    lblImagePreview.setText("Image unavailable");
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lblImagePreview.setText("Image not loaded");
         }
     }
 
@@ -359,28 +657,68 @@ public class SALSARegistrationSystem extends JFrame {
      * Validate input fields
      */
     private boolean validateInput() {
-        if (txtRegID.getText().trim().isEmpty()
-                || txtName.getText().trim().isEmpty()
-                || txtDepartment.getText().trim().isEmpty()
-                || txtPartner.getText().trim().isEmpty()
-                || txtContact.getText().trim().isEmpty()
-                || txtEmail.getText().trim().isEmpty()) {
-            showError("All fields are required!");
+        String error = ParticipantValidator.validate(readForm());
+        if (error != null) {
+            showError(error);
             return false;
         }
+        return true;
+    }
 
-        if (!EMAIL_PATTERN.matcher(txtEmail.getText().trim()).matches()) {
-            showError("Invalid email format! Please enter a valid email address.");
-            return false;
-        }
+    /**
+     * Read the form into a participant record
+     */
+    private Participant readForm() {
+        return new Participant(
+                txtRegID.getText().trim(),
+                txtName.getText().trim(),
+                txtDepartment.getText().trim(),
+                txtPartner.getText().trim(),
+                txtContact.getText().trim(),
+                txtEmail.getText().trim(),
+                selectedImagePath);
+    }
 
-        String contact = txtContact.getText().trim();
-        if (!contact.matches("\\d{10,15}")) {
-            showError("Invalid contact number! Please enter 10-15 digits.");
-            return false;
+    /**
+     * Run a database write in the background with the CRUD buttons disabled
+     */
+    private <T> void runWrite(Callable<T> task, Consumer<T> onSuccess,
+            Consumer<Exception> onFailure) {
+        try {
+            pendingWrite = dbExecutor.submit(task, result -> {
+                updateButtonStates();
+                onSuccess.accept(result);
+            }, e -> {
+                updateButtonStates();
+                onFailure.accept(e);
+            });
+        } catch (RejectedExecutionException e) {
+            showError("The system is busy. Please try again in a moment.");
         }
+        updateButtonStates();
+    }
 
-        return true;
+    /**
+     * Enable or disable buttons according to the work in flight. Writes
+     * lock the whole form; a search only locks Update and Delete so the
+     * user cannot act on a half-loaded record.
+     */
+    private void updateButtonStates() {
+        boolean writing = isRunning(pendingWrite);
+        boolean searching = isRunning(pendingSearch);
+        boolean starting = isDatabaseStarting;
+        btnRegister.setEnabled(!writing && !starting);
+        btnSearch.setEnabled(!writing && !starting);
+        btnUpdate.setEnabled(!writing && !searching && !starting);
+        btnDelete.setEnabled(!writing && !searching && !starting);
+        btnBrowse.setEnabled(!starting);
+        btnUploadImage.setEnabled(!writing);
+        setCursor(Cursor.getPredefinedCursor(writing || searching
+                ? Cursor.WAIT_CURSOR : Cursor.DEFAULT_CURSOR));
+    }
+
+    private static boolean isRunning(Future<?> future) {
+        return future != null && !future.isDone();
     }
 
     /**
@@ -395,34 +733,39 @@ public class SALSARegistrationSystem extends JFrame {
             return;
         }
 
-        String sql = "INSERT INTO Participants (RegistrationID, Name, Department, "
-                + "Partner, Contact, Email, ImagePath) VALUES (?, ?, ?, ?, ?, ?, ?)";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, txtRegID.getText().trim());
-            pstmt.setString(2, txtName.getText().trim());
-            pstmt.setString(3, txtDepartment.getText().trim());
-            pstmt.setString(4, txtPartner.getText().trim());
-            pstmt.setString(5, txtContact.getText().trim());
-            pstmt.setString(6, txtEmail.getText().trim());
-            pstmt.setString(7, selectedImagePath);
-
-            int rowsInserted = pstmt.executeUpdate();
+        Participant form = readForm();
+        runWrite(metrics.timed(OperationMetrics.Operation.REGISTER, () -> {
+            Participant participant = form.withImagePath(imageStore.store(form.getImagePath()));
+            WriteBehindQueue queue = writeBehind;
+            int rows;
+            if (queue != null) {
+                queue.register(participant);
+                rows = 1;
+            } else {
+                // Rejects most duplicates from memory before any JDBC call
+                participantKeys.checkNew(participant);
+                rows = repository.insert(participant);
+            }
+            if (rows > 0) {
+                participantKeys.add(participant);
+                participantCache.put(participant);
+                searchIndex.put(participant);
+            }
+            return rows;
+        }), rowsInserted -> {
             if (rowsInserted > 0) {
                 showSuccess("Participant registered successfully!");
                 clearFields();
-                System.out.println("Registered participant: " + txtRegID.getText().trim());
+                System.out.println("Registered participant: " + form.getRegistrationId());
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            if (e.getMessage().contains("duplicate")) {
-                showError("Registration ID already exists!");
+        }, e -> {
+            if (e instanceof DuplicateParticipantException) {
+                showError(((DuplicateParticipantException) e).getReason().getMessage());
             } else {
+                e.printStackTrace();
                 showError("Registration Error: " + e.getMessage());
             }
-        }
+        });
     }
 
     /**
@@ -439,49 +782,66 @@ public class SALSARegistrationSystem extends JFrame {
             return;
         }
 
-        String sql = "SELECT * FROM Participants WHERE RegistrationID = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, regID);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                txtName.setText(rs.getString("Name"));
-                txtDepartment.setText(rs.getString("Department"));
-                txtPartner.setText(rs.getString("Partner"));
-                txtContact.setText(rs.getString("Contact"));
-                txtEmail.setText(rs.getString("Email"));
-                selectedImagePath = rs.getString("ImagePath");
-
-                // Display image if available
-                if (selectedImagePath != null && !selectedImagePath.isEmpty()) {
-                    File imgFile = new File(selectedImagePath);
-                    if (imgFile.exists()) {
-                        ImageIcon imageIcon = new ImageIcon(selectedImagePath);
-                        Image image = imageIcon.getImage().getScaledInstance(
-                                190, 190, Image.SCALE_SMOOTH);
-                        lblImagePreview.setIcon(new ImageIcon(image));
-                        lblImagePreview.setText("");
-                        System.out.println("Loaded image for: " + regID);
-                    } else {
-                        System.out.println("Image file not found: " + selectedImagePath);
-                    }
+        // Only the latest search matters; an older one finishes quietly in the background
+        if (pendingSearch != null) {
+            pendingSearch.cancel(false);
+        }
+        try {
+            pendingSearch = dbExecutor.submit(metrics.timed(OperationMetrics.Operation.SEARCH,
+                    () -> lookupParticipant(regID)), participant -> {
+                updateButtonStates();
+                if (participant != null) {
+                    showParticipant(participant);
+                    showSuccess("Participant found!");
+                    System.out.println("Searched participant: " + regID);
                 } else {
-                    lblImagePreview.setIcon(null);
-                    lblImagePreview.setText("No image");
+                    showError("No participant found with this Registration ID!");
                 }
+            }, e -> {
+                updateButtonStates();
+                e.printStackTrace();
+                showError("Search Error: " + e.getMessage());
+            });
+        } catch (RejectedExecutionException e) {
+            showError("The system is busy. Please try again in a moment.");
+        }
+        updateButtonStates();
+    }
 
-                showSuccess("Participant found!");
-                System.out.println("Searched participant: " + regID);
-            } else {
-                showError("No participant found with this Registration ID!");
+    /**
+     * Look a participant up in the cache, falling back to the database
+     */
+    private Participant lookupParticipant(String regID) throws SQLException {
+        Participant cached = participantCache.get(regID);
+        if (cached != null) {
+            return cached;
+        }
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            Participant queued = queue.getPending(regID);
+            if (queued != null) {
+                return queued;
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showError("Search Error: " + e.getMessage());
         }
+        long cacheVersion = participantCache.version();
+        Participant participant = repository.find(regID);
+        if (participant != null) {
+            participantCache.putIfUnchanged(participant, cacheVersion);
+        }
+        return participant;
+    }
+
+    /**
+     * Fill the form with a participant's details
+     */
+    private void showParticipant(Participant participant) {
+        txtName.setText(participant.getName());
+        txtDepartment.setText(participant.getDepartment());
+        txtPartner.setText(participant.getPartner());
+        txtContact.setText(participant.getContact());
+        txtEmail.setText(participant.getEmail());
+        selectedImagePath = participant.getImagePath();
+        showImagePreview(selectedImagePath);
     }
 
     /**
@@ -496,32 +856,42 @@ public class SALSARegistrationSystem extends JFrame {
             return;
         }
 
-        String sql = "UPDATE Participants SET Name = ?, Department = ?, "
-                + "Partner = ?, Contact = ?, Email = ?, ImagePath = ? "
-                + "WHERE RegistrationID = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, txtName.getText().trim());
-            pstmt.setString(2, txtDepartment.getText().trim());
-            pstmt.setString(3, txtPartner.getText().trim());
-            pstmt.setString(4, txtContact.getText().trim());
-            pstmt.setString(5, txtEmail.getText().trim());
-            pstmt.setString(6, selectedImagePath);
-            pstmt.setString(7, txtRegID.getText().trim());
-
-            int rowsUpdated = pstmt.executeUpdate();
+        Participant form = readForm();
+        runWrite(metrics.timed(OperationMetrics.Operation.UPDATE, () -> {
+            Participant participant = form.withImagePath(imageStore.store(form.getImagePath()));
+            awaitStored(participant.getRegistrationId(), participant.getEmail());
+            participantKeys.checkUpdate(participant);
+            int rows;
+            try {
+                rows = repository.update(participant);
+            } catch (SQLException e) {
+                participantCache.invalidate(participant.getRegistrationId());
+                throw e;
+            }
+            if (rows > 0) {
+                participantCache.put(participant);
+                searchIndex.put(participant);
+                participantKeys.add(participant);
+            } else {
+                participantCache.invalidate(participant.getRegistrationId());
+                searchIndex.remove(participant.getRegistrationId());
+            }
+            return rows;
+        }), rowsUpdated -> {
             if (rowsUpdated > 0) {
                 showSuccess("Participant updated successfully!");
-                System.out.println("Updated participant: " + txtRegID.getText().trim());
+                System.out.println("Updated participant: " + form.getRegistrationId());
             } else {
                 showError("No participant found with this Registration ID!");
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            showError("Update Error: " + e.getMessage());
-        }
+        }, e -> {
+            if (e instanceof DuplicateParticipantException) {
+                showError(((DuplicateParticipantException) e).getReason().getMessage());
+            } else {
+                e.printStackTrace();
+                showError("Update Error: " + e.getMessage());
+            }
+        });
     }
 
     /**
@@ -550,13 +920,19 @@ public class SALSARegistrationSystem extends JFrame {
             return;
         }
 
-        String sql = "DELETE FROM Participants WHERE RegistrationID = ?";
-
-        try (Connection conn = DriverManager.getConnection(DB_URL); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, regID);
-            int rowsDeleted = pstmt.executeUpdate();
-
+        runWrite(metrics.timed(OperationMetrics.Operation.DELETE, () -> {
+            awaitStored(regID, null);
+            try {
+                int rows = repository.delete(regID);
+                if (rows > 0) {
+                    searchIndex.remove(regID);
+                    participantKeys.removeId(regID);
+                }
+                return rows;
+            } finally {
+                participantCache.invalidate(regID);
+            }
+        }), rowsDeleted -> {
             if (rowsDeleted > 0) {
                 showSuccess("Participant deleted successfully!");
                 clearFields();
@@ -564,17 +940,46 @@ public class SALSARegistrationSystem extends JFrame {
             } else {
                 showError("No participant found with this Registration ID!");
             }
-
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
             showError("Delete Error: " + e.getMessage());
+        });
+    }
+
+    /**
+     * Wait until registrations still in the write-behind queue with this
+     * ID or email reach the database, so an update or delete applies to
+     * them and the duplicate email check sees them
+     */
+    private void awaitStored(String regID, String email) throws InterruptedException, SQLException {
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null && queue.isPending(regID, email)) {
+            queue.awaitFlushed();
+        }
+    }
+
+    /**
+     * Open the participant table
+     */
+    private void browseParticipants() {
+        if (!isDatabaseInitialized) {
+            showError("Database not initialized. Please check database configuration.");
+            return;
+        }
+        if (participantBrowser == null) {
+            participantBrowser = new ParticipantBrowser(this, repository.getConnectionPool(), browseExecutor, regID -> {
+                txtRegID.setText(regID);
+                searchParticipant();
+            });
         }
+        participantBrowser.open();
     }
 
     /**
      * Clear all input fields
      */
     private void clearFields() {
+        txtQuickFind.setText("");
         txtRegID.setText("");
         txtName.setText("");
         txtDepartment.setText("");
@@ -582,6 +987,9 @@ public class SALSARegistrationSystem extends JFrame {
         txtContact.setText("");
         txtEmail.setText("");
         selectedImagePath = "";
+        if (pendingImage != null) {
+            pendingImage.cancel(false);
+        }
         lblImagePreview.setIcon(null);
         lblImagePreview.setText("No image selected");
         txtRegID.requestFocus();
@@ -601,8 +1009,39 @@ public class SALSARegistrationSystem extends JFrame {
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            System.out.println("Application exiting");
-            System.exit(0);
+            shutdown();
+        }
+    }
+
+    /**
+     * Stop background work, release the database and exit
+     */
+    private void shutdown() {
+        System.out.println("Application exiting");
+        dbExecutor.shutdown();
+        System.out.println("Participant cache: " + participantCache.getStats());
+        if (participantKeys != null) {
+            System.out.println("Duplicate checks: " + participantKeys.getStats());
+        }
+        metrics.close();
+        imageExecutor.shutdown();
+        browseExecutor.shutdown();
+        System.out.println(thumbnailCache);
+        System.out.println("Image store: " + imageStore.getStats());
+        closeStorage();
+        System.exit(0);
+    }
+
+    /**
+     * Store queued registrations, then close the database
+     */
+    private void closeStorage() {
+        WriteBehindQueue queue = writeBehind;
+        if (queue != null) {
+            queue.close();
+        }
+        if (repository != null) {
+            repository.close();
         }
     }
 
@@ -636,6 +1075,11 @@ public class SALSARegistrationSystem extends JFrame {
      * Main method to launch application
      */
     public static void main(String[] args) {
+        StartupTimeline timeline = new StartupTimeline();
+        if (args.length > 0) {
+            System.exit(runCommand(args));
+        }
+
         try {
             // Set look and feel to system default
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -644,8 +1088,33 @@ public class SALSARegistrationSystem extends JFrame {
         }
 
         SwingUtilities.invokeLater(() -> {
-            SALSARegistrationSystem app = new SALSARegistrationSystem();
+            SALSARegistrationSystem app = new SALSARegistrationSystem(timeline);
             app.setVisible(true);
+            timeline.mark("window shown");
         });
     }
+
+    /**
+     * Run a headless command instead of the GUI
+     */
+    private static int runCommand(String[] args) {
+        switch (args[0]) {
+            case "--import":
+                return ParticipantImporter.run(args);
+            case "--export":
+                return ParticipantExporter.run(args);
+            case "--migrate":
+                return ParticipantMigrator.run(args);
+            case "--serve":
+                return RegistrationServer.run(args);
+            default:
+                System.err.println("Unknown command: " + args[0]);
+                System.err.println("Usage: java -jar SALSA-Registration-System.jar "
+                        + "[--import <file.csv> [--rejects <file>] [--batch-size <n>]"
+                        + " | --export <file> [--format csv|jsonl] [--gzip] [--columns a,b,c] [--fetch-size <n>]"
+                        + " | --migrate --from access|hsqldb --to access|hsqldb [--batch-size <n>]"
+                        + " | --serve [--port <n>] [--bind <address>] [--threads <n>]]");
+                return 2;
+        }
+    }
 }
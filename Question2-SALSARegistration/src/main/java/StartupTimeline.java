@@ -0,0 +1,48 @@
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Records how long startup milestones take, measured from the start of
+ * {@code main}, and prints them as one line once startup is complete.
+ */
+public class StartupTimeline {
+
+    private final long start = System.nanoTime();
+    private final List<String> events = new ArrayList<>();
+    private final List<Long> times = new ArrayList<>();
+
+    /**
+     * Record that a milestone was reached now. Only the first call for
+     * each name counts.
+     */
+    public synchronized void mark(String event) {
+        if (!events.contains(event)) {
+            events.add(event);
+            times.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Milliseconds from the start of main to a milestone, or -1 if it has
+     * not been reached.
+     */
+    public synchronized long millis(String event) {
+        int i = events.indexOf(event);
+        return i < 0 ? -1 : times.get(i) / 1_000_000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        // JVM startup before main; read late so the management classes load off the critical path
+        long jvmMillis = ManagementFactory.getRuntimeMXBean().getUptime()
+                - (System.nanoTime() - start) / 1_000_000;
+        StringBuilder line = new StringBuilder("Startup timeline: JVM ").append(jvmMillis).append(" ms");
+        for (int i = 0; i < events.size(); i++) {
+            line.append(", ").append(events.get(i)).append(' ').append(times.get(i) / 1_000_000).append(" ms");
+        }
+        return line.toString();
+    }
+}
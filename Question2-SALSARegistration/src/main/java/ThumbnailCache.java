@@ -0,0 +1,242 @@
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Two-tier cache of participant photo thumbnails.
+ *
+ * Thumbnails are generated once per image file and stored as PNG in a disk
+ * directory, keyed by a hash of the file's path, size and modification
+ * time, so an edited photo gets a fresh thumbnail. Photos in the
+ * {@link ImageStore} never change, so their thumbnails are keyed by the
+ * photo's hash and read through the store. Recently used
+ * thumbnails are also kept in a bounded in-memory LRU map of soft
+ * references, which the garbage collector may clear under memory pressure.
+ *
+ * {@link #get(String)} may decode an image and should be called off the
+ * Event Dispatch Thread.
+ */
+public class ThumbnailCache {
+
+    private final Path directory;
+    private final ImageStore store;
+    private final int width;
+    private final int height;
+    private final Map<String, MemoryEntry> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+
+    /**
+     * @param directory where thumbnail files are stored; created if missing
+     * @param store where {@code sha256:} image references are read from
+     * @param width thumbnail width in pixels
+     * @param height thumbnail height in pixels
+     * @param memoryEntries maximum thumbnails kept in memory
+     */
+    public ThumbnailCache(Path directory, ImageStore store, int width, int height, int memoryEntries) {
+        this.directory = directory;
+        this.store = store;
+        this.width = width;
+        this.height = height;
+        this.memory = new LinkedHashMap<String, MemoryEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MemoryEntry> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the in-memory thumbnail for an image without touching the
+     * disk, or null if it is not loaded. Cheap enough for the EDT.
+     */
+    public BufferedImage peek(String imagePath) {
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(imagePath);
+            return entry == null ? null : entry.image.get();
+        }
+    }
+
+    /**
+     * Return the thumbnail for an image, generating and storing it if
+     * necessary.
+     */
+    public BufferedImage get(String imagePath) throws IOException {
+        boolean stored = ImageStore.isReference(imagePath);
+        File source = stored ? null : new File(imagePath);
+        if (source != null && !source.isFile()) {
+            throw new FileNotFoundException(imagePath);
+        }
+        long lastModified = source == null ? 0 : source.lastModified();
+
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(imagePath);
+            BufferedImage image = entry == null ? null : entry.image.get();
+            if (image != null && entry.lastModified == lastModified) {
+                memoryHits.incrementAndGet();
+                return image;
+            }
+        }
+
+        String key = stored ? imagePath.substring(ImageStore.PREFIX.length()) : cacheKey(source, lastModified);
+        Path cached = directory.resolve(key + ".png");
+        BufferedImage thumbnail = null;
+        if (Files.isRegularFile(cached)) {
+            thumbnail = ImageIO.read(cached.toFile());
+            if (thumbnail != null) {
+                diskHits.incrementAndGet();
+            }
+        }
+        if (thumbnail == null) {
+            if (stored) {
+                try (InputStream in = store.open(imagePath)) {
+                    thumbnail = createThumbnail(ImageIO.createImageInputStream(in), imagePath);
+                }
+            } else {
+                thumbnail = createThumbnail(ImageIO.createImageInputStream(source), imagePath);
+            }
+            generated.incrementAndGet();
+            store(thumbnail, cached);
+        }
+
+        synchronized (memory) {
+            memory.put(imagePath, new MemoryEntry(lastModified, thumbnail));
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Decode an image and scale it to the thumbnail size.
+     */
+    private BufferedImage createThumbnail(ImageInputStream input, String source) throws IOException {
+        try (ImageInputStream in = input) {
+            if (in == null) {
+                throw new IOException("Cannot read image: " + source);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Let the decoder skip pixels we would throw away anyway, keeping
+                // at least twice the target resolution for the smooth scaling below
+                int subsampling = Math.min(reader.getWidth(0) / (2 * width),
+                        reader.getHeight(0) / (2 * height));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return scale(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale by repeated bilinear halving, which is much faster than
+     * {@code Image.SCALE_SMOOTH} while giving comparable quality.
+     */
+    static BufferedImage scale(BufferedImage image, int targetWidth, int targetHeight) {
+        BufferedImage current = image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        do {
+            w = Math.max(targetWidth, w > targetWidth ? w / 2 : targetWidth);
+            h = Math.max(targetHeight, h > targetHeight ? h / 2 : targetHeight);
+
+            BufferedImage step = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private void store(BufferedImage thumbnail, Path target) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "thumb", ".tmp");
+            try {
+                ImageIO.write(thumbnail, "png", temp.toFile());
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // The thumbnail is still usable from memory
+            System.err.println("Could not store thumbnail " + target + ": " + e.getMessage());
+        }
+    }
+
+    private static String cacheKey(File source, long lastModified) {
+        String key = source.getAbsolutePath() + "|" + source.length() + "|" + lastModified;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        int size;
+        synchronized (memory) {
+            size = memory.size();
+        }
+        return "ThumbnailCache[inMemory=" + size + ", memoryHits=" + memoryHits
+                + ", diskHits=" + diskHits + ", generated=" + generated + "]";
+    }
+
+    private static final class MemoryEntry {
+
+        final long lastModified;
+        final SoftReference<BufferedImage> image;
+
+        MemoryEntry(long lastModified, BufferedImage image) {
+            this.lastModified = lastModified;
+            this.image = new SoftReference<>(image);
+        }
+    }
+}
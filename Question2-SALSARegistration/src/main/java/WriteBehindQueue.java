@@ -0,0 +1,622 @@
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+
+/**
+ * Write-behind buffer for new registrations.
+ *
+ * A registration is acknowledged as soon as it is appended and synced to
+ * a local journal file. A background thread then inserts queued
+ * registrations in group commits of up to {@code batchSize} rows, or
+ * whatever has queued once the oldest registration has waited
+ * {@code maxDelayMillis}, so the database pays one commit per group
+ * instead of one per participant. Duplicates are refused before a
+ * registration is acknowledged, using a {@link ParticipantKeyIndex} for
+ * stored participants and the queue itself for pending ones.
+ *
+ * A flush that fails for any reason but a broken constraint, such as a
+ * pool timeout or a locked database file, leaves its rows queued and
+ * journaled and is retried after a delay that doubles with each failure,
+ * up to 30 seconds. Only rows the database refuses for a constraint are
+ * dropped from the queue; each is appended with the error, as a JSON
+ * line, to the dead-letter file {@code <journal>.rejected}.
+ *
+ * Each journal record is a length, a CRC32 and the participant as JSON.
+ * The journal is emptied whenever the queue drains. After a crash, or a
+ * close while the database is unavailable, the journal is replayed on the
+ * next start; records that reached the database before are skipped and a
+ * torn final record is ignored. Because the journal is only emptied when
+ * the queue drains, a participant deleted after being stored but before
+ * that point comes back if the process crashes in between.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+    // Sanity limit for a record length read back from the journal
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    // Delay before retrying a failed flush, doubled after each failure in a row
+    private static final long INITIAL_RETRY_MILLIS = 100;
+    private static final long MAX_RETRY_MILLIS = 30_000;
+
+    private final ParticipantRepository repository;
+    private final ParticipantKeyIndex keys;
+    private final FileChannel journal;
+    private final Path deadLetterPath;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread flusher;
+
+    // Guarded by lock; pending maps are keyed the way ParticipantKeyIndex compares keys
+    private final Object lock = new Object();
+    private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+    private final Map<String, Participant> pending = new HashMap<>();
+    private final Set<String> pendingEmails = new HashSet<>();
+    private boolean flushing;
+    private boolean flushRequested;
+    private boolean closed;
+    private long journaledBytes;
+    private int maxDepth;
+    private long flushes;
+    private long rowsFlushed;
+    private long rowsFailed;
+    private long rowsRetried;
+    private long retryDelayMillis;
+    private long retryAt;
+    private SQLException lastFailure;
+    private long totalFlushNanos;
+    private long maxFlushNanos;
+
+    // Guarded by syncLock; counts bytes ever appended, so truncation does not reset it
+    private final Object syncLock = new Object();
+    private long syncedBytes;
+
+    private WriteBehindQueue(ParticipantRepository repository, ParticipantKeyIndex keys, FileChannel journal,
+            Path deadLetterPath, int batchSize, long maxDelayMillis) {
+        this.repository = repository;
+        this.keys = keys;
+        this.journal = journal;
+        this.deadLetterPath = deadLetterPath;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = maxDelayMillis * 1_000_000L;
+        this.flusher = new Thread(this::flushLoop, "write-behind-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Open the journal, replay any registrations left from a previous run
+     * into the database and start flushing.
+     *
+     * @param keys duplicate check for stored participants
+     * @param batchSize most rows per group commit
+     * @param maxDelayMillis longest a registration waits before a flush
+     */
+    public static WriteBehindQueue open(ParticipantRepository repository, ParticipantKeyIndex keys,
+            Path journalPath, int batchSize, long maxDelayMillis) throws IOException, SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+        FileChannel journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            WriteBehindQueue queue = new WriteBehindQueue(repository, keys, journal,
+                    journalPath.resolveSibling(journalPath.getFileName() + ".rejected"), batchSize, maxDelayMillis);
+            queue.replay(journalPath);
+            queue.flusher.start();
+            return queue;
+        } catch (IOException | SQLException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Journal a registration and queue it for the database. Returns once
+     * the registration is durable on disk.
+     *
+     * @throws DuplicateParticipantException if the Registration ID or
+     *         email is already registered or queued
+     */
+    public void register(Participant participant) throws SQLException {
+        String id = ParticipantKeyIndex.normalizeId(participant.getRegistrationId());
+        String email = ParticipantKeyIndex.normalizeEmail(participant.getEmail());
+        synchronized (lock) {
+            checkNotQueued(id, email);
+        }
+        keys.checkNew(participant);
+        byte[] record = encode(participant);
+        long journaled;
+        synchronized (lock) {
+            checkNotQueued(id, email);
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    journal.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new SQLException("Could not write registration journal: " + e.getMessage(), e);
+            }
+            // Queue in the same step as the append, so the journal cannot be emptied in between
+            journaledBytes += record.length;
+            journaled = journaledBytes;
+            queue.add(new Queued(participant, System.nanoTime()));
+            pending.put(id, participant);
+            if (email != null) {
+                pendingEmails.add(email);
+            }
+            maxDepth = Math.max(maxDepth, queue.size());
+            // The flusher waits without a timeout while the queue is empty
+            if (queue.size() == 1 || queue.size() >= batchSize) {
+                lock.notifyAll();
+            }
+        }
+        try {
+            sync(journaled);
+        } catch (IOException e) {
+            // The registration stays queued and will normally still be stored
+            throw new SQLException("Could not sync registration journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Make the journal durable up to the given byte count. Registrations
+     * that arrive while one sync runs share the next one.
+     */
+    private void sync(long journaled) throws IOException {
+        synchronized (syncLock) {
+            if (syncedBytes >= journaled) {
+                return;
+            }
+            long target;
+            synchronized (lock) {
+                target = journaledBytes;
+            }
+            journal.force(false);
+            syncedBytes = target;
+        }
+    }
+
+    /**
+     * Registration that has been acknowledged but may not be in the
+     * database yet, or null.
+     */
+    public Participant getPending(String registrationId) {
+        synchronized (lock) {
+            return pending.get(ParticipantKeyIndex.normalizeId(registrationId));
+        }
+    }
+
+    /**
+     * Whether a queued registration has this Registration ID or, if not
+     * null, this email.
+     */
+    public boolean isPending(String registrationId, String email) {
+        String normalizedEmail = ParticipantKeyIndex.normalizeEmail(email);
+        synchronized (lock) {
+            return pending.containsKey(ParticipantKeyIndex.normalizeId(registrationId))
+                    || normalizedEmail != null && pendingEmails.contains(normalizedEmail);
+        }
+    }
+
+    /**
+     * Flush everything queued so far and wait for it, for example before
+     * updating or deleting a participant that may still be queued. A flush
+     * waiting to be retried is tried again at once.
+     *
+     * @throws SQLException if a flush since the call left rows to retry,
+     *         or the queue is closed with rows left in the journal
+     */
+    public void awaitFlushed() throws InterruptedException, SQLException {
+        synchronized (lock) {
+            long attempts = flushes;
+            flushRequested = true;
+            lock.notifyAll();
+            while (!queue.isEmpty() || flushing) {
+                if (lastFailure != null && (flushes > attempts || closed && !flushing)) {
+                    throw new SQLException("Queued registrations could not be stored yet: "
+                            + lastFailure.getMessage(), lastFailure);
+                }
+                lock.wait();
+            }
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (lock) {
+            long journalBytes;
+            try {
+                journalBytes = journal.isOpen() ? journal.size() : 0;
+            } catch (IOException e) {
+                journalBytes = -1;
+            }
+            return new Stats(queue.size(), maxDepth, flushes, rowsFlushed, rowsFailed, rowsRetried,
+                    flushes == 0 ? 0 : totalFlushNanos / flushes, maxFlushNanos, journalBytes);
+        }
+    }
+
+    /**
+     * Flush the remaining registrations and close the journal.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Could not close registration journal: " + e.getMessage());
+        }
+        System.out.println("Write-behind queue closed: " + getStats());
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Queued> batch = new ArrayList<>(batchSize);
+            synchronized (lock) {
+                try {
+                    while (!readyToFlush()) {
+                        if (queue.isEmpty()) {
+                            lock.wait();
+                        } else {
+                            long due = queue.peek().queuedAt + maxDelayNanos;
+                            if (retryAt != 0 && retryAt - due > 0) {
+                                due = retryAt;
+                            }
+                            lock.wait(Math.max(1, (due - System.nanoTime()) / 1_000_000));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // Only close() stops the flusher, so registrations are never lost here
+                    continue;
+                }
+                if (queue.isEmpty()) {
+                    // Closed and drained
+                    return;
+                }
+                while (!queue.isEmpty() && batch.size() < batchSize) {
+                    batch.add(queue.poll());
+                }
+                flushing = true;
+            }
+
+            long start = System.nanoTime();
+            List<Queued> rejected = new ArrayList<>();
+            List<Queued> retry = new ArrayList<>();
+            SQLException failure = null;
+            try {
+                store(batch, rejected, retry);
+            } catch (SQLException e) {
+                failure = e;
+            }
+            long elapsed = System.nanoTime() - start;
+
+            synchronized (lock) {
+                // The rows to retry are the end of the batch
+                for (Queued queued : batch.subList(0, batch.size() - retry.size())) {
+                    Participant participant = queued.participant;
+                    pending.remove(ParticipantKeyIndex.normalizeId(participant.getRegistrationId()));
+                    String email = ParticipantKeyIndex.normalizeEmail(participant.getEmail());
+                    if (email != null) {
+                        pendingEmails.remove(email);
+                    }
+                }
+                // Back at the head of the queue, in their original order
+                for (int i = retry.size() - 1; i >= 0; i--) {
+                    queue.addFirst(retry.get(i));
+                }
+                flushing = false;
+                flushes++;
+                rowsFlushed += batch.size() - retry.size() - rejected.size();
+                rowsFailed += rejected.size();
+                rowsRetried += retry.size();
+                totalFlushNanos += elapsed;
+                maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+                if (failure != null) {
+                    retryDelayMillis = Math.min(MAX_RETRY_MILLIS,
+                            retryDelayMillis == 0 ? INITIAL_RETRY_MILLIS : retryDelayMillis * 2);
+                    retryAt = System.nanoTime() + retryDelayMillis * 1_000_000L;
+                    lastFailure = failure;
+                    flushRequested = false;
+                    System.err.println("Write-behind could not store " + retry.size() + " registrations, "
+                            + (closed ? "leaving them in the journal for the next start"
+                                    : "retrying in " + retryDelayMillis + " ms") + ": " + failure.getMessage());
+                } else {
+                    retryDelayMillis = 0;
+                    retryAt = 0;
+                    lastFailure = null;
+                }
+                if (queue.isEmpty()) {
+                    flushRequested = false;
+                    truncateJournal();
+                }
+                lock.notifyAll();
+                if (failure != null && closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean readyToFlush() {
+        if (queue.isEmpty()) {
+            return closed;
+        }
+        if (closed || flushRequested) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (retryAt != 0 && now - retryAt < 0) {
+            return false;
+        }
+        return queue.size() >= batchSize || now - queue.peek().queuedAt >= maxDelayNanos;
+    }
+
+    /**
+     * Insert a batch in one transaction, falling back to one row at a time
+     * so a single bad row does not hold back the others. Rows refused for a
+     * constraint are written to the dead-letter file and added to
+     * {@code rejected}; on any other error, including an unchecked
+     * exception from the repository, the failed row and those after it are
+     * added to {@code retry}.
+     *
+     * @throws SQLException the error that stopped the batch, once
+     *         {@code retry} holds the rows still to store
+     */
+    private void store(List<Queued> batch, List<Queued> rejected, List<Queued> retry) throws SQLException {
+        List<Participant> participants = new ArrayList<>(batch.size());
+        for (Queued queued : batch) {
+            participants.add(queued.participant);
+        }
+        try {
+            repository.insertAll(participants);
+        } catch (SQLException | RuntimeException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                Participant participant = batch.get(i).participant;
+                try {
+                    repository.insert(participant);
+                } catch (RuntimeException rowError) {
+                    // Not a refusal by the database, so the row is kept and the flusher carries on
+                    retry.addAll(batch.subList(i, batch.size()));
+                    throw new SQLException("Could not store " + participant.getRegistrationId() + ": " + rowError,
+                            rowError);
+                } catch (SQLException rowError) {
+                    if (!JdbcParticipantRepository.isConstraintViolation(rowError)
+                            || !deadLetter(participant, rowError)) {
+                        retry.addAll(batch.subList(i, batch.size()));
+                        throw rowError;
+                    }
+                    rejected.add(batch.get(i));
+                    System.err.println("Write-behind rejected " + participant.getRegistrationId()
+                            + ": " + rowError.getMessage() + "; written to " + deadLetterPath);
+                }
+            }
+        }
+    }
+
+    /**
+     * Append a refused registration and the reason to the dead-letter
+     * file and sync it.
+     *
+     * @return false if it could not be written, so the row must be kept
+     */
+    private boolean deadLetter(Participant participant, SQLException error) {
+        StringBuilder line = json(participant).append(",\"error\":");
+        Json.quote(line, error.getMessage()).append("}\n");
+        try (FileChannel file = FileChannel.open(deadLetterPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                file.write(buffer);
+            }
+            file.force(false);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not write " + deadLetterPath + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void truncateJournal() {
+        try {
+            journal.truncate(0);
+            journal.force(false);
+        } catch (IOException e) {
+            // Harmless: replay skips registrations that are already stored
+            System.err.println("Could not truncate registration journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Store registrations left in the journal by a previous run.
+     */
+    private void replay(Path journalPath) throws IOException, SQLException {
+        List<Participant> unflushed = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        long position = 0;
+        long size = journal.size();
+        while (position + header.capacity() <= size) {
+            header.clear();
+            journal.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || position + 8 + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            journal.read(payload, position + 8);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            Participant participant = decode(new String(payload.array(), 0, length, StandardCharsets.UTF_8));
+            if (repository.find(participant.getRegistrationId()) == null) {
+                unflushed.add(participant);
+            }
+            position += 8 + length;
+        }
+        if (position < size) {
+            System.err.println("Ignoring " + (size - position) + " bytes of incomplete journal records in "
+                    + journalPath);
+        }
+        List<Queued> retry = new ArrayList<>();
+        if (position > 0) {
+            long now = System.nanoTime();
+            for (int i = 0; i < unflushed.size() && retry.isEmpty(); i += batchSize) {
+                List<Queued> batch = new ArrayList<>();
+                for (Participant participant : unflushed.subList(i, Math.min(unflushed.size(), i + batchSize))) {
+                    batch.add(new Queued(participant, now));
+                }
+                try {
+                    store(batch, new ArrayList<>(), retry);
+                } catch (SQLException e) {
+                    // Queue the rest, so the flusher retries them
+                    for (Participant participant : unflushed.subList(Math.min(unflushed.size(), i + batchSize),
+                            unflushed.size())) {
+                        retry.add(new Queued(participant, now));
+                    }
+                    System.err.println("Could not replay " + retry.size() + " registrations, queued for retry: "
+                            + e.getMessage());
+                }
+            }
+            System.out.println("Replayed " + (unflushed.size() - retry.size()) + " registrations from "
+                    + journalPath);
+        }
+        if (retry.isEmpty()) {
+            truncateJournal();
+            return;
+        }
+        // Keep the journal, minus any torn record, and append after it
+        journal.truncate(position);
+        journal.position(position);
+        journaledBytes = position;
+        for (Queued queued : retry) {
+            queue.add(queued);
+            pending.put(ParticipantKeyIndex.normalizeId(queued.participant.getRegistrationId()), queued.participant);
+            String email = ParticipantKeyIndex.normalizeEmail(queued.participant.getEmail());
+            if (email != null) {
+                pendingEmails.add(email);
+            }
+        }
+        maxDepth = queue.size();
+    }
+
+    private static byte[] encode(Participant participant) {
+        byte[] payload = json(participant).append('}').toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    /**
+     * The participant as a JSON object, without the closing brace
+     */
+    private static StringBuilder json(Participant participant) {
+        StringBuilder json = new StringBuilder(160).append("{\"registrationId\":");
+        Json.quote(json, participant.getRegistrationId()).append(",\"name\":");
+        Json.quote(json, participant.getName()).append(",\"department\":");
+        Json.quote(json, participant.getDepartment()).append(",\"partner\":");
+        Json.quote(json, participant.getPartner()).append(",\"contact\":");
+        Json.quote(json, participant.getContact()).append(",\"email\":");
+        Json.quote(json, participant.getEmail()).append(",\"imagePath\":");
+        return Json.quote(json, participant.getImagePath());
+    }
+
+    private static Participant decode(String json) {
+        Map<String, String> values = Json.parseObject(json);
+        return new Participant(values.get("registrationId"), values.get("name"), values.get("department"),
+                values.get("partner"), values.get("contact"), values.get("email"), values.get("imagePath"));
+    }
+
+    private void checkNotQueued(String id, String email) throws SQLException {
+        if (closed) {
+            throw new SQLException("Write-behind queue is closed");
+        }
+        if (pending.containsKey(id)) {
+            throw new DuplicateParticipantException(DuplicateParticipantException.Reason.DUPLICATE_ID, id);
+        }
+        if (email != null && pendingEmails.contains(email)) {
+            throw new DuplicateParticipantException(DuplicateParticipantException.Reason.DUPLICATE_EMAIL, email);
+        }
+    }
+
+    private static final class Queued {
+
+        final Participant participant;
+        final long queuedAt;
+
+        Queued(Participant participant, long queuedAt) {
+            this.participant = participant;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * Snapshot of the queue counters.
+     */
+    public static final class Stats {
+
+        public final int depth;
+        public final int maxDepth;
+        public final long flushes;
+        public final long rowsFlushed;
+        public final long rowsFailed;
+        public final long rowsRetried;
+        public final long averageFlushNanos;
+        public final long maxFlushNanos;
+        public final long journalBytes;
+
+        Stats(int depth, int maxDepth, long flushes, long rowsFlushed, long rowsFailed, long rowsRetried,
+                long averageFlushNanos, long maxFlushNanos, long journalBytes) {
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.flushes = flushes;
+            this.rowsFlushed = rowsFlushed;
+            this.rowsFailed = rowsFailed;
+            this.rowsRetried = rowsRetried;
+            this.averageFlushNanos = averageFlushNanos;
+            this.maxFlushNanos = maxFlushNanos;
+            this.journalBytes = journalBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth=%d, maxDepth=%d, flushes=%d, rowsFlushed=%d, rowsFailed=%d, "
+                    + "rowsRetried=%d, avgFlush=%.1f ms, maxFlush=%.1f ms, journal=%d bytes",
+                    depth, maxDepth, flushes, rowsFlushed, rowsFailed, rowsRetried,
+                    averageFlushNanos / 1e6, maxFlushNanos / 1e6, journalBytes);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+
+public class CsvReaderTest {
+
+    @Test
+    public void skipsAByteOrderMarkBeforeTheFirstCell() throws Exception {
+        try (CsvReader reader = new CsvReader(new StringReader("\uFEFFRegistrationID,Name\r\nR001,\"\uFEFFAna\"\r\n"))) {
+            assertArrayEquals(new String[]{"RegistrationID", "Name"}, reader.readRecord());
+            // Only the mark at the start of the input is dropped
+            assertArrayEquals(new String[]{"R001", "\uFEFFAna"}, reader.readRecord());
+            assertNull(reader.readRecord());
+        }
+    }
+
+    @Test
+    public void readsQuotedFieldsWithCommasQuotesAndLineBreaks() throws Exception {
+        try (CsvReader reader = new CsvReader(new StringReader("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\n"))) {
+            assertArrayEquals(new String[]{"a,b", "say \"hi\"", "two\nlines"}, reader.readRecord());
+            assertNull(reader.readRecord());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class HsqldbParticipantRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void registrationIdsIgnoreCase() throws Exception {
+        try (HsqldbParticipantRepository repository = open()) {
+            repository.createSchema();
+            assertIdsIgnoreCase(repository);
+        }
+    }
+
+    @Test
+    public void upgradesTablesWithCaseSensitiveIds() throws Exception {
+        File path = new File(folder.getRoot(), "salsa");
+        try (Connection conn = DriverManager.getConnection("jdbc:hsqldb:file:" + path + ";shutdown=true");
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE CACHED TABLE Participants (RegistrationID VARCHAR(255) PRIMARY KEY, "
+                    + "Name VARCHAR(255) NOT NULL, Department VARCHAR(255), Partner VARCHAR(255), "
+                    + "Contact VARCHAR(255), Email VARCHAR(255), ImagePath VARCHAR(255))");
+        }
+        try (HsqldbParticipantRepository repository = open()) {
+            repository.createSchema();
+            assertIdsIgnoreCase(repository);
+        }
+    }
+
+    @Test
+    public void reportsOtherConstraintViolationsAsErrors() throws Exception {
+        try (HsqldbParticipantRepository repository = open()) {
+            repository.createSchema();
+            try {
+                repository.insert(new Participant("R001", null, "Dept", "Partner", "0123456789", null, null));
+                fail("Expected a missing name to be refused");
+            } catch (DuplicateParticipantException e) {
+                fail("A missing name is not a duplicate: " + e.getMessage());
+            } catch (SQLException e) {
+                assertEquals("23502", e.getSQLState());
+            }
+            assertEquals(0, repository.count());
+        }
+    }
+
+    private HsqldbParticipantRepository open() throws Exception {
+        return new HsqldbParticipantRepository(new File(folder.getRoot(), "salsa"), 1, 2, 60_000, 5_000);
+    }
+
+    private static void assertIdsIgnoreCase(HsqldbParticipantRepository repository) throws Exception {
+        repository.insert(participant("R001"));
+        try {
+            repository.insert(participant("r001"));
+            fail("Expected a duplicate ID");
+        } catch (DuplicateParticipantException e) {
+            assertEquals(DuplicateParticipantException.Reason.DUPLICATE_ID, e.getReason());
+        }
+        assertEquals(1, repository.count());
+        assertEquals("R001", repository.find("r001").getRegistrationId());
+        assertEquals(1, repository.update(participant("r001")));
+        assertEquals(1, repository.delete("r001"));
+        assertEquals(0, repository.count());
+    }
+
+    private static Participant participant(String id) {
+        return new Participant(id, "Name", "Dept", "Partner", "0123456789", id + "@example.com", null);
+    }
+}
@@ -0,0 +1,35 @@
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+
+public class ParticipantCacheTest {
+
+    private final ParticipantCache cache = new ParticipantCache(10, 0);
+    private final Participant participant = new Participant("R001", "Name", "Dept", "Partner", "0123456789",
+            "r001@example.com", null);
+
+    @Test
+    public void findsEntriesIgnoringCase() {
+        cache.put(participant);
+        assertSame(participant, cache.get("r001"));
+        assertSame(participant, cache.get(" R001 "));
+    }
+
+    @Test
+    public void invalidatesEntriesIgnoringCase() {
+        cache.put(participant);
+        cache.invalidate("r001");
+        assertNull(cache.get("R001"));
+    }
+
+    @Test
+    public void readVersionIsStaleAfterAnInvalidationInAnotherCase() {
+        long version = cache.version();
+        cache.invalidate("r001");
+        assertFalse(cache.putIfUnchanged(participant, version));
+        assertNull(cache.get("R001"));
+    }
+}
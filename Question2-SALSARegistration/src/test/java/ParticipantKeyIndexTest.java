@@ -0,0 +1,81 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+public class ParticipantKeyIndexTest {
+
+    private final AtomicInteger emailLookups = new AtomicInteger();
+    private Participant emailOwner;
+
+    // Only findByEmail is used once the index is loaded
+    private final ParticipantRepository repository = (ParticipantRepository) Proxy.newProxyInstance(
+            ParticipantRepository.class.getClassLoader(), new Class<?>[] {ParticipantRepository.class},
+            (proxy, method, args) -> {
+                if (!method.getName().equals("findByEmail")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                emailLookups.incrementAndGet();
+                Participant owner = emailOwner;
+                return owner != null && !owner.getRegistrationId().equalsIgnoreCase((String) args[1]) ? owner : null;
+            });
+
+    private final ParticipantKeyIndex keys = new ParticipantKeyIndex(repository);
+
+    @Test
+    public void updateKeepingOwnEmailSkipsTheLookup() throws Exception {
+        keys.add(participant("R001", "ana@example.com"));
+        keys.markLoaded();
+        keys.checkUpdate(participant("r001", "Ana@Example.com "));
+        assertEquals(0, emailLookups.get());
+    }
+
+    @Test
+    public void updateTakingAnotherParticipantsEmailIsRefused() throws Exception {
+        Participant ana = participant("R001", "ana@example.com");
+        keys.add(ana);
+        keys.add(participant("R002", "ben@example.com"));
+        keys.markLoaded();
+        emailOwner = ana;
+        try {
+            keys.checkUpdate(participant("R002", "ana@example.com"));
+            fail("Expected a duplicate email");
+        } catch (DuplicateParticipantException e) {
+            assertEquals(DuplicateParticipantException.Reason.DUPLICATE_EMAIL, e.getReason());
+        }
+        assertEquals(1, emailLookups.get());
+    }
+
+    @Test
+    public void emailSharedByLegacyRowsIsAlwaysConfirmed() throws Exception {
+        Participant ana = participant("R001", "shared@example.com");
+        keys.add(ana);
+        keys.add(participant("R002", "shared@example.com"));
+        keys.markLoaded();
+        emailOwner = ana;
+        try {
+            keys.checkUpdate(participant("R002", "shared@example.com"));
+            fail("Expected a duplicate email");
+        } catch (DuplicateParticipantException e) {
+            assertEquals(1, emailLookups.get());
+        }
+    }
+
+    @Test
+    public void emailTakenOverAfterLoadingBelongsToTheNewOwner() throws Exception {
+        keys.add(participant("R001", "ana@example.com"));
+        keys.markLoaded();
+        // R001 moved to another email, then R002 was checked and stored with this one
+        keys.add(participant("R002", "ana@example.com"));
+        keys.checkUpdate(participant("R002", "ana@example.com"));
+        assertEquals(0, emailLookups.get());
+    }
+
+    private static Participant participant(String id, String email) {
+        return new Participant(id, "Name", "Dept", "Partner", "0123456789", email, null);
+    }
+}
@@ -0,0 +1,105 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class ParticipantSearchIndexTest {
+
+    private final ParticipantSearchIndex index = new ParticipantSearchIndex();
+
+    @Test
+    public void replacesEntriesWhoseIdDiffersInCase() {
+        index.put(participant("R001", "Ana"));
+        index.put(participant("r001", "Ana Maria"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void removesEntriesIgnoringCase() {
+        index.put(participant("R001", "Ana"));
+        index.remove(" r001 ");
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void matchesPrefixesOfEveryWord() {
+        index.put(participant("R001", "Michael Okello"));
+        index.put(participant("R002", "Michelle Okoth"));
+        index.put(participant("R003", "Grace Okello"));
+        assertEquals(ids("R001", "R002"), ids(index.search("mich", 10)));
+        // Okoth is one edit from "oke", so it follows as a typo match
+        assertEquals(ids("R001", "R002"), ids(index.search("mich oke", 10)));
+        assertEquals(ids("R001"), ids(index.search("mich okel", 10)));
+        // An exact word ranks above a longer word it starts
+        assertEquals(ids("R001", "R003"), ids(index.search("okello", 10)));
+        assertEquals(ids("R003"), ids(index.search("r003", 10)));
+    }
+
+    @Test
+    public void matchesMisspeltWords() {
+        index.put(participant("R001", "Michael Okello"));
+        index.put(participant("R002", "Grace Nakato"));
+        // One substitution, and a swap of adjacent letters counted as one edit
+        assertEquals(ids("R002"), ids(index.search("grece", 10)));
+        assertEquals(ids("R001"), ids(index.search("mihcael", 10)));
+        assertEquals(ids("R001"), ids(index.search("okelo mihc", 10)));
+        // Too many edits for a five-letter word
+        assertTrue(index.search("gruca", 10).isEmpty());
+    }
+
+    @Test
+    public void computesOptimalStringAlignmentDistanceToAPrefix() {
+        // A swap is two edits for plain Levenshtein distance
+        assertTrue(ParticipantSearchIndex.fuzzyPrefixMatch("mihcael", "michael", 1));
+        assertFalse(ParticipantSearchIndex.fuzzyPrefixMatch("mihcael", "michael", 0));
+        assertTrue(ParticipantSearchIndex.fuzzyPrefixMatch("mich", "michael", 0));
+        assertTrue(ParticipantSearchIndex.fuzzyPrefixMatch("mihc", "michael", 1));
+        assertTrue(ParticipantSearchIndex.fuzzyPrefixMatch("okelo", "okello", 1));
+        assertFalse(ParticipantSearchIndex.fuzzyPrefixMatch("mcihael", "michael", 0));
+        assertFalse(ParticipantSearchIndex.fuzzyPrefixMatch("mhicael", "michael", 1));
+        assertFalse(ParticipantSearchIndex.fuzzyPrefixMatch("nakoto", "okello", 2));
+    }
+
+    @Test
+    public void matchesMisspeltWordsThatAreAlsoAnotherParticipantsId() {
+        index.put(new Participant("KATO", "Grace Nakato", "Dept", "Partner", "0123456789", null, null));
+        index.put(participant("R002", "John Kato"));
+        assertEquals(ids("R002"), ids(index.search("jonh kaot", 10)));
+    }
+
+    @Test
+    public void staysSearchableAcrossCompactions() {
+        for (int i = 0; i < 2500; i++) {
+            index.put(participant("R001", "Michael Okello " + i));
+        }
+        index.put(participant("R002", "Grace Nakato"));
+        assertEquals(2, index.size());
+        assertEquals(ids("R001"), ids(index.search("okello 2499", 10)));
+        assertEquals(ids("R002"), ids(index.search("grece", 10)));
+    }
+
+    private static List<String> ids(String... ids) {
+        List<String> list = new ArrayList<>();
+        for (String id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static List<String> ids(List<Participant> participants) {
+        List<String> ids = new ArrayList<>();
+        for (Participant participant : participants) {
+            ids.add(participant.getRegistrationId());
+        }
+        return ids;
+    }
+
+    private static Participant participant(String id, String name) {
+        return new Participant(id, name, "Dept", "Partner", "0123456789", null, null);
+    }
+}
@@ -0,0 +1,235 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class WriteBehindQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void flushesASingleRegistrationAfterTheDelay() throws Exception {
+        MemoryRepository repository = new MemoryRepository();
+        try (WriteBehindQueue queue = open(repository, journal())) {
+            queue.register(participant("R001"));
+            // Far below the batch size, so only the delay can trigger the flush
+            awaitStored(repository, "R001");
+            assertEquals(0, queue.getStats().depth);
+        }
+    }
+
+    @Test
+    public void keepsRegistrationsWhileTheDatabaseIsUnavailable() throws Exception {
+        MemoryRepository repository = new MemoryRepository();
+        repository.unavailable = true;
+        Path journal = journal();
+        try (WriteBehindQueue queue = open(repository, journal)) {
+            queue.register(participant("R001"));
+            while (queue.getStats().rowsRetried < 2) {
+                Thread.sleep(10);
+            }
+            WriteBehindQueue.Stats stats = queue.getStats();
+            assertEquals(1, stats.depth);
+            assertEquals(0, stats.rowsFailed);
+            assertTrue(stats.journalBytes > 0);
+            assertNotNull(queue.getPending("r001"));
+
+            repository.unavailable = false;
+            awaitStored(repository, "R001");
+            assertNull(queue.getPending("R001"));
+        }
+        assertEquals(0, Files.size(journal));
+    }
+
+    @Test
+    public void replaysRegistrationsLeftByACloseWhileUnavailable() throws Exception {
+        MemoryRepository repository = new MemoryRepository();
+        repository.unavailable = true;
+        Path journal = journal();
+        try (WriteBehindQueue queue = open(repository, journal)) {
+            queue.register(participant("R001"));
+            queue.register(participant("R002"));
+        }
+        assertTrue(Files.size(journal) > 0);
+
+        repository.unavailable = false;
+        try (WriteBehindQueue queue = open(repository, journal)) {
+            assertNotNull(repository.stored.get("R001"));
+            assertNotNull(repository.stored.get("R002"));
+        }
+        assertEquals(0, Files.size(journal));
+    }
+
+    @Test
+    public void retriesAfterTheRepositoryThrowsAnUncheckedException() throws Exception {
+        MemoryRepository repository = new MemoryRepository();
+        repository.broken = new IllegalStateException("Driver bug");
+        try (WriteBehindQueue queue = open(repository, journal())) {
+            queue.register(participant("R001"));
+            try {
+                queue.awaitFlushed();
+                fail("Expected the flush to fail");
+            } catch (SQLException e) {
+                assertTrue(e.getMessage().contains("Driver bug"));
+            }
+            assertNotNull(queue.getPending("R001"));
+
+            repository.broken = null;
+            queue.register(participant("R002"));
+            queue.awaitFlushed();
+            assertNotNull(repository.stored.get("R001"));
+            assertNotNull(repository.stored.get("R002"));
+            assertEquals(0, queue.getStats().rowsFailed);
+        }
+    }
+
+    @Test
+    public void writesConstraintViolationsToTheDeadLetterFile() throws Exception {
+        MemoryRepository repository = new MemoryRepository();
+        repository.refused = "R002";
+        Path journal = journal();
+        try (WriteBehindQueue queue = open(repository, journal)) {
+            queue.register(participant("R001"));
+            queue.register(participant("R002"));
+            queue.register(participant("R003"));
+            queue.awaitFlushed();
+            assertEquals(1, queue.getStats().rowsFailed);
+            assertNull(queue.getPending("R002"));
+        }
+        assertNotNull(repository.stored.get("R001"));
+        assertNotNull(repository.stored.get("R003"));
+        assertEquals(0, Files.size(journal));
+        List<String> rejected = Files.readAllLines(journal.resolveSibling("registrations.journal.rejected"),
+                StandardCharsets.UTF_8);
+        assertEquals(1, rejected.size());
+        Map<String, String> line = Json.parseObject(rejected.get(0));
+        assertEquals("R002", line.get("registrationId"));
+        assertNotNull(line.get("error"));
+    }
+
+    private Path journal() {
+        return folder.getRoot().toPath().resolve("registrations.journal");
+    }
+
+    private static WriteBehindQueue open(MemoryRepository repository, Path journal) throws Exception {
+        return WriteBehindQueue.open(repository, new ParticipantKeyIndex(repository), journal, 100, 50);
+    }
+
+    private static void awaitStored(MemoryRepository repository, String id) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (repository.stored.get(id) == null) {
+            assertTrue("Timed out waiting for " + id, System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static Participant participant(String id) {
+        return new Participant(id, "Name " + id, "Dept", "Partner", "0123456789",
+                id.toLowerCase() + "@example.com", null);
+    }
+
+    /**
+     * Repository that can fail every insert as unreachable or with an
+     * unchecked exception, or refuse one Registration ID as a duplicate.
+     */
+    private static final class MemoryRepository implements ParticipantRepository {
+
+        final Map<String, Participant> stored = new ConcurrentHashMap<>();
+        volatile boolean unavailable;
+        volatile String refused;
+        volatile RuntimeException broken;
+
+        @Override
+        public void createSchema() {
+        }
+
+        @Override
+        public int insert(Participant participant) throws SQLException {
+            if (broken != null) {
+                throw broken;
+            }
+            if (unavailable) {
+                throw new SQLTransientConnectionException("Timed out waiting for a connection");
+            }
+            if (participant.getRegistrationId().equals(refused)) {
+                throw new DuplicateParticipantException(DuplicateParticipantException.Reason.DUPLICATE_ID,
+                        participant.getRegistrationId());
+            }
+            stored.put(participant.getRegistrationId(), participant);
+            return 1;
+        }
+
+        @Override
+        public void insertAll(List<Participant> participants) throws SQLException {
+            if (broken != null) {
+                throw broken;
+            }
+            if (unavailable) {
+                throw new SQLTransientConnectionException("Timed out waiting for a connection");
+            }
+            for (Participant participant : participants) {
+                if (participant.getRegistrationId().equals(refused)) {
+                    throw new SQLException("Batch refused", "23505");
+                }
+            }
+            for (Participant participant : participants) {
+                stored.put(participant.getRegistrationId(), participant);
+            }
+        }
+
+        @Override
+        public Participant find(String registrationId) {
+            return stored.get(registrationId);
+        }
+
+        @Override
+        public Participant findByEmail(String email, String exceptRegistrationId) {
+            return null;
+        }
+
+        @Override
+        public int update(Participant participant) {
+            return 0;
+        }
+
+        @Override
+        public int delete(String registrationId) {
+            return stored.remove(registrationId) == null ? 0 : 1;
+        }
+
+        @Override
+        public int count() {
+            return stored.size();
+        }
+
+        @Override
+        public List<Participant> list(String afterId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEach(ParticipantVisitor visitor) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}